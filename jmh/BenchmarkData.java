@@ -0,0 +1,46 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+// Synthetic students shared by the benchmarks, so every store is measured on the same rows
+final class BenchmarkData {
+    static final String[] FIRST_NAMES = {"Aarav", "Priya", "Rohan", "Neha", "Vikram", "Ananya", "Kabir",
+            "Isha", "Arjun", "Meera", "Dev", "Sara", "Nikhil", "Pooja", "Rahul", "Tara"};
+    static final String[] LAST_NAMES = {"Sharma", "Patel", "Singh", "Gupta", "Joshi", "Mehta", "Reddy",
+            "Nair", "Iyer", "Kapoor", "Das", "Bose", "Chopra", "Malhotra", "Verma", "Rao"};
+    static final String[] COURSES = {"Computer Science", "Electrical Engineering", "Mechanical Engineering",
+            "Civil Engineering", "Business Administration", "Mathematics", "Physics", "Economics"};
+    static final String[] SEARCH_TERMS = {"sharma", "priya", "ik", "joshi", "arjun mal", "ra", "zz"};
+
+    private BenchmarkData() {}
+
+    static Student newStudent(int i) {
+        String name = FIRST_NAMES[i % FIRST_NAMES.length] + " "
+                + LAST_NAMES[(i / FIRST_NAMES.length) % LAST_NAMES.length];
+        return new Student(0, name, "bench-" + i + "@example.com", 17 + i % 24, COURSES[i % COURSES.length]);
+    }
+
+    // Loads rows students through the repository's bulk path and returns their ids
+    static int[] load(StudentRepository repository, int rows) {
+        List<Student> batch = new ArrayList<>();
+        for (int i = 0; i < rows; i++) {
+            batch.add(newStudent(i));
+            if (batch.size() == 1000 || i == rows - 1) {
+                BatchResult result = repository.addStudents(batch);
+                if (result.hasFailures()) {
+                    throw new IllegalStateException("Could not load benchmark rows: " + result.getFailures().get(0));
+                }
+                batch.clear();
+            }
+        }
+        return repository.getStudentIds();
+    }
+
+    static int pick(int[] ids) {
+        return ids[ThreadLocalRandom.current().nextInt(ids.length)];
+    }
+
+    static <T> T pick(T[] values) {
+        return values[ThreadLocalRandom.current().nextInt(values.length)];
+    }
+}
@@ -0,0 +1,88 @@
+import benchmark.StoreOperations;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// StoreOperations on StudentDAO against an embedded H2 database in MySQL mode, so the SQL and
+// the connection pool are measured without a server
+public class DaoBindings implements StoreOperations {
+    private StudentDAO dao;
+    private int[] ids;
+    private AtomicInteger emails;
+
+    @Override
+    public void open(String store, int rows) {
+        PoolConfig config = new PoolConfig();
+        config.setUrl("jdbc:h2:mem:benchmark;MODE=MySQL;IGNORECASE=TRUE");
+        config.setUsername("sa");
+        config.setPassword("");
+        config.setDriverClassName("org.h2.Driver");
+        config.setMaxSize(Math.max(10, Runtime.getRuntime().availableProcessors() * 2));
+        DatabaseConnection.configure(config);
+
+        dao = new StudentDAO();
+        dao.createTable();
+        List<Student> batch = new ArrayList<>();
+        for (int i = 0; i < rows; i++) {
+            batch.add(BenchmarkData.newStudent(i));
+            if (batch.size() == dao.getBatchSize() || i == rows - 1) {
+                BatchResult result = dao.addStudents(batch);
+                if (result.hasFailures()) {
+                    throw new IllegalStateException("Could not load benchmark rows: " + result.getFailures().get(0));
+                }
+                batch.clear();
+            }
+        }
+        ids = dao.getStudentIds();
+        emails = new AtomicInteger(rows);
+    }
+
+    // The in-memory database goes away with the last pooled connection
+    @Override
+    public void close() {
+        DatabaseConnection.shutdown();
+    }
+
+    @Override
+    public Object getStudentById() {
+        return dao.getStudentById(BenchmarkData.pick(ids));
+    }
+
+    @Override
+    public Object addAndDeleteStudent() {
+        Student student = BenchmarkData.newStudent(emails.getAndIncrement());
+        dao.addStudent(student);
+        dao.deleteStudent(student.getId());
+        return student;
+    }
+
+    @Override
+    public Object updateStudent() {
+        Student student = dao.getStudentById(BenchmarkData.pick(ids));
+        student.setAge(17 + ThreadLocalRandom.current().nextInt(24));
+        dao.updateStudent(student);
+        return student;
+    }
+
+    @Override
+    public Object searchStudentsByName() {
+        return dao.searchStudentsByName(BenchmarkData.pick(BenchmarkData.SEARCH_TERMS));
+    }
+
+    @Override
+    public Object getStudentsByCourse() {
+        return dao.getStudentsByCourse(ThreadLocalRandom.current().nextBoolean() ? "engineering" : "science");
+    }
+
+    @Override
+    public Object getStudentsByExactCourse() {
+        return dao.getStudentsByExactCourse(BenchmarkData.pick(BenchmarkData.COURSES));
+    }
+
+    @Override
+    public Object getStatistics() {
+        return dao.getStatistics();
+    }
+}
@@ -0,0 +1,132 @@
+import benchmark.QueryOperations;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+
+// QueryOperations on an InMemoryDatabase of its own
+public class QueryBindings implements QueryOperations {
+    private InMemoryDatabase database;
+
+    @Override
+    public void open(int rows) {
+        database = InMemoryDatabase.createEmpty("benchmark-query");
+        BenchmarkData.load(database, rows);
+    }
+
+    @Override
+    public void close() {
+        database.clearAllData();
+    }
+
+    @Override
+    public Object courseAndAge() {
+        return database.query(StudentPredicate.and(
+                StudentPredicate.courseEquals(BenchmarkData.pick(BenchmarkData.COURSES)),
+                StudentPredicate.ageBetween(18, 29))).ids();
+    }
+
+    @Override
+    public Object nameAndCourse() {
+        return database.query(StudentPredicate.and(
+                StudentPredicate.nameContains(BenchmarkData.pick(BenchmarkData.LAST_NAMES)),
+                StudentPredicate.courseEquals(BenchmarkData.pick(BenchmarkData.COURSES)))).ids();
+    }
+
+    @Override
+    public Object courseOrCourse() {
+        return database.query(StudentPredicate.or(
+                StudentPredicate.courseEquals(BenchmarkData.pick(BenchmarkData.COURSES)),
+                StudentPredicate.courseEquals(BenchmarkData.pick(BenchmarkData.COURSES)))).ids();
+    }
+
+    @Override
+    public Object ageAndNotCourse() {
+        return database.query(StudentPredicate.and(
+                StudentPredicate.ageBetween(20, 21),
+                StudentPredicate.not(StudentPredicate.courseEquals(BenchmarkData.pick(BenchmarkData.COURSES))))).ids();
+    }
+
+    @Override
+    public Object unindexedScan() {
+        return database.query(StudentPredicate.nameContains(ThreadLocalRandom.current().nextBoolean() ? "ra" : "ik")).ids();
+    }
+
+    @Override
+    public Object filteredStatistics() {
+        return database.getStatistics(StudentPredicate.not(
+                StudentPredicate.nameContains(ThreadLocalRandom.current().nextBoolean() ? "ra" : "ik")));
+    }
+
+    @Override
+    public Object getCourseCount() {
+        long total = 0;
+        for (String course : BenchmarkData.COURSES) {
+            total += database.getCourseCount(course);
+        }
+        return total;
+    }
+
+    @Override
+    public Object listCourseAndAge() {
+        List<Student> matches = new ArrayList<>();
+        for (Student student : database.getStudentsByExactCourse(BenchmarkData.pick(BenchmarkData.COURSES))) {
+            if (student.getAge() >= 18 && student.getAge() <= 29) {
+                matches.add(student);
+            }
+        }
+        return matches;
+    }
+
+    @Override
+    public Object listNameAndCourse() {
+        String course = BenchmarkData.pick(BenchmarkData.COURSES);
+        List<Student> matches = new ArrayList<>();
+        for (Student student : database.searchStudentsByName(BenchmarkData.pick(BenchmarkData.LAST_NAMES))) {
+            if (course.equals(student.getCourse())) {
+                matches.add(student);
+            }
+        }
+        return matches;
+    }
+
+    @Override
+    public Object listCourseOrCourse() {
+        List<String> courses = List.of(BenchmarkData.pick(BenchmarkData.COURSES), BenchmarkData.pick(BenchmarkData.COURSES));
+        Set<Integer> seen = new HashSet<>();
+        List<Student> matches = new ArrayList<>();
+        for (String course : courses) {
+            for (Student student : database.getStudentsByExactCourse(course)) {
+                if (seen.add(student.getId())) {
+                    matches.add(student);
+                }
+            }
+        }
+        return matches;
+    }
+
+    @Override
+    public Object listAgeAndNotCourse() {
+        String course = BenchmarkData.pick(BenchmarkData.COURSES);
+        StudentQuery query = new StudentQuery();
+        query.setAgeRange(20, 21);
+        List<Student> matches = new ArrayList<>();
+        for (Student student : database.findStudents(query)) {
+            if (!course.equals(student.getCourse())) {
+                matches.add(student);
+            }
+        }
+        return matches;
+    }
+
+    @Override
+    public Object listCourseCount() {
+        long total = 0;
+        for (String course : BenchmarkData.COURSES) {
+            total += database.getStudentsByExactCourse(course).size();
+        }
+        return total;
+    }
+}
@@ -0,0 +1,95 @@
+import benchmark.SnapshotFormatOperations;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+// SnapshotFormatOperations on in-memory buffers, so the disk is not part of the measurement.
+// Student is not Serializable, so the serialized form uses a record with the same fields.
+public class SnapshotFormatBindings implements SnapshotFormatOperations {
+    private record SerializedStudent(int id, String name, String email, int age, String course)
+            implements Serializable {
+    }
+
+    private List<Student> students;
+    private ByteBuffer records;
+    private int[] offsets;
+    private byte[] serialized;
+
+    @Override
+    public void open(int rows) {
+        students = new ArrayList<>(rows);
+        for (int i = 0; i < rows; i++) {
+            Student student = BenchmarkData.newStudent(i);
+            student.setId(i + 1);
+            students.add(student);
+        }
+        records = (ByteBuffer) encodeRecords();
+        offsets = new int[rows];
+        for (int i = 0, offset = 0; i < rows; i++) {
+            offsets[i] = offset;
+            offset += 4 + records.getInt(offset);
+        }
+        serialized = (byte[]) serialize();
+        System.out.printf("%n%d students: StudentRecordCodec %d bytes, Java serialization %d bytes%n",
+                rows, records.limit(), serialized.length);
+    }
+
+    @Override
+    public Object encodeRecords() {
+        int size = 0;
+        for (Student student : students) {
+            size += StudentRecordCodec.encodedSize(student);
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(size);
+        for (Student student : students) {
+            StudentRecordCodec.encode(buffer, student);
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+    @Override
+    public Object decodeRecords() {
+        List<Student> decoded = new ArrayList<>(offsets.length);
+        for (int offset : offsets) {
+            decoded.add(StudentRecordCodec.decode(records, offset));
+        }
+        return decoded;
+    }
+
+    @Override
+    public Object serialize() {
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            try (ObjectOutputStream out = new ObjectOutputStream(new BufferedOutputStream(bytes, 1 << 16))) {
+                out.writeInt(students.size());
+                for (Student student : students) {
+                    out.writeObject(new SerializedStudent(student.getId(), student.getName(), student.getEmail(),
+                            student.getAge(), student.getCourse()));
+                }
+            }
+            return bytes.toByteArray();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public Object deserialize() {
+        try (ObjectInputStream in = new ObjectInputStream(new BufferedInputStream(new ByteArrayInputStream(serialized), 1 << 16))) {
+            int count = in.readInt();
+            List<Student> decoded = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                SerializedStudent student = (SerializedStudent) in.readObject();
+                decoded.add(new Student(student.id(), student.name(), student.email(), student.age(), student.course()));
+            }
+            return decoded;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } catch (ClassNotFoundException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,79 @@
+import benchmark.StoreOperations;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// StoreOperations on InMemoryDatabase or ColumnarStudentStore. The memory store is created with
+// InMemoryDatabase.createEmpty, never the shared instance, so persisted data is not touched.
+public class StoreBindings implements StoreOperations {
+    private StudentRepository repository;
+    private int[] ids;
+    // Emails for added students continue after the loaded ones so they never collide
+    private AtomicInteger emails;
+
+    @Override
+    public void open(String store, int rows) {
+        switch (store) {
+            case "memory":
+                repository = InMemoryDatabase.createEmpty("benchmark");
+                break;
+            case "columnar":
+                repository = new ColumnarStudentStore(rows);
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown store: " + store);
+        }
+        ids = BenchmarkData.load(repository, rows);
+        emails = new AtomicInteger(rows);
+    }
+
+    @Override
+    public void close() {
+        if (repository instanceof InMemoryDatabase) {
+            ((InMemoryDatabase) repository).clearAllData();
+        } else {
+            ((ColumnarStudentStore) repository).clearAllData();
+        }
+    }
+
+    @Override
+    public Object getStudentById() {
+        return repository.getStudentById(BenchmarkData.pick(ids));
+    }
+
+    @Override
+    public Object addAndDeleteStudent() {
+        Student student = BenchmarkData.newStudent(emails.getAndIncrement());
+        repository.addStudent(student);
+        repository.deleteStudent(student.getId());
+        return student;
+    }
+
+    @Override
+    public Object updateStudent() {
+        Student student = new Student(repository.getStudentById(BenchmarkData.pick(ids)));
+        student.setAge(17 + ThreadLocalRandom.current().nextInt(24));
+        repository.updateStudent(student);
+        return student;
+    }
+
+    @Override
+    public Object searchStudentsByName() {
+        return repository.searchStudentsByName(BenchmarkData.pick(BenchmarkData.SEARCH_TERMS));
+    }
+
+    @Override
+    public Object getStudentsByCourse() {
+        return repository.getStudentsByCourse(ThreadLocalRandom.current().nextBoolean() ? "engineering" : "science");
+    }
+
+    @Override
+    public Object getStudentsByExactCourse() {
+        return repository.getStudentsByExactCourse(BenchmarkData.pick(BenchmarkData.COURSES));
+    }
+
+    @Override
+    public Object getStatistics() {
+        return repository.getStatistics();
+    }
+}
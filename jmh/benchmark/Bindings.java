@@ -0,0 +1,16 @@
+package benchmark;
+
+// The stores live in the default package, which JMH cannot generate code for and a named
+// package cannot import, so each benchmark calls an interface from this package and the
+// default-package class implementing it is created by name
+final class Bindings {
+    private Bindings() {}
+
+    static <T> T create(String className, Class<T> type) {
+        try {
+            return type.cast(Class.forName(className).getDeclaredConstructor().newInstance());
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Cannot create benchmark binding " + className, e);
+        }
+    }
+}
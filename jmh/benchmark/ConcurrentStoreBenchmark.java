@@ -0,0 +1,11 @@
+package benchmark;
+
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+
+// StoreBenchmark with one thread per core sharing each store
+@State(Scope.Benchmark)
+@Threads(Threads.MAX)
+public class ConcurrentStoreBenchmark extends StoreBenchmark {
+}
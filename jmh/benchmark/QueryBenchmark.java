@@ -0,0 +1,91 @@
+package benchmark;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+// Predicate queries on InMemoryDatabase, answered by combining index postings or by scanning.
+// The list* methods are the list-based baseline; the query cache is off so they do the work.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx6g", "-Dstudentdb.cache.size=0"})
+public class QueryBenchmark {
+    @Param({"100000", "1000000"})
+    public int rows;
+
+    private QueryOperations operations;
+
+    @Setup(Level.Trial)
+    public void open() {
+        operations = Bindings.create("QueryBindings", QueryOperations.class);
+        operations.open(rows);
+    }
+
+    @TearDown(Level.Trial)
+    public void close() {
+        operations.close();
+    }
+
+    @Benchmark
+    public Object courseAndAge() {
+        return operations.courseAndAge();
+    }
+
+    @Benchmark
+    public Object nameAndCourse() {
+        return operations.nameAndCourse();
+    }
+
+    @Benchmark
+    public Object courseOrCourse() {
+        return operations.courseOrCourse();
+    }
+
+    @Benchmark
+    public Object ageAndNotCourse() {
+        return operations.ageAndNotCourse();
+    }
+
+    @Benchmark
+    public Object unindexedScan() {
+        return operations.unindexedScan();
+    }
+
+    @Benchmark
+    public Object filteredStatistics() {
+        return operations.filteredStatistics();
+    }
+
+    @Benchmark
+    public Object getCourseCount() {
+        return operations.getCourseCount();
+    }
+
+    @Benchmark
+    public Object listCourseAndAge() {
+        return operations.listCourseAndAge();
+    }
+
+    @Benchmark
+    public Object listNameAndCourse() {
+        return operations.listNameAndCourse();
+    }
+
+    @Benchmark
+    public Object listCourseOrCourse() {
+        return operations.listCourseOrCourse();
+    }
+
+    @Benchmark
+    public Object listAgeAndNotCourse() {
+        return operations.listAgeAndNotCourse();
+    }
+
+    @Benchmark
+    public Object listCourseCount() {
+        return operations.listCourseCount();
+    }
+}
@@ -0,0 +1,35 @@
+package benchmark;
+
+// Predicate queries measured by QueryBenchmark
+public interface QueryOperations {
+    void open(int rows);
+
+    void close();
+
+    Object courseAndAge();
+
+    Object nameAndCourse();
+
+    Object courseOrCourse();
+
+    Object ageAndNotCourse();
+
+    // No index answers these, so they run on the scan threads (studentdb.scan.parallelism)
+    Object unindexedScan();
+
+    Object filteredStatistics();
+
+    Object getCourseCount();
+
+    // The same filters the list-based way: each index lookup builds a list of students and
+    // the lists are combined by scanning them
+    Object listCourseAndAge();
+
+    Object listNameAndCourse();
+
+    Object listCourseOrCourse();
+
+    Object listAgeAndNotCourse();
+
+    Object listCourseCount();
+}
@@ -0,0 +1,46 @@
+package benchmark;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+// StudentRecordCodec against plain Java serialization of the same students. The setup prints
+// the encoded size of each; -prof gc shows the allocation per pass.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx6g")
+public class SnapshotFormatBenchmark {
+    @Param({"100000", "1000000"})
+    public int rows;
+
+    private SnapshotFormatOperations operations;
+
+    @Setup(Level.Trial)
+    public void open() {
+        operations = Bindings.create("SnapshotFormatBindings", SnapshotFormatOperations.class);
+        operations.open(rows);
+    }
+
+    @Benchmark
+    public Object encodeRecords() {
+        return operations.encodeRecords();
+    }
+
+    @Benchmark
+    public Object decodeRecords() {
+        return operations.decodeRecords();
+    }
+
+    @Benchmark
+    public Object serialize() {
+        return operations.serialize();
+    }
+
+    @Benchmark
+    public Object deserialize() {
+        return operations.deserialize();
+    }
+}
@@ -0,0 +1,15 @@
+package benchmark;
+
+// Encoding and decoding a whole store, measured by SnapshotFormatBenchmark
+public interface SnapshotFormatOperations {
+    // Prepares rows students and both encoded forms, and prints their sizes
+    void open(int rows);
+
+    Object encodeRecords();
+
+    Object decodeRecords();
+
+    Object serialize();
+
+    Object deserialize();
+}
@@ -0,0 +1,71 @@
+package benchmark;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+// Store hot paths on a single thread; ConcurrentStoreBenchmark runs the same methods on every
+// core. The dao store is StudentDAO against an embedded H2 database in MySQL mode. Add -prof gc
+// for the allocation rate per operation, and -p store=dao to run only the DAO.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx6g")
+@Threads(1)
+public class StoreBenchmark {
+    @Param({"1000", "100000", "1000000"})
+    public int rows;
+
+    @Param({"memory", "columnar", "dao"})
+    public String store;
+
+    private StoreOperations operations;
+
+    @Setup(Level.Trial)
+    public void open() {
+        operations = Bindings.create("dao".equals(store) ? "DaoBindings" : "StoreBindings", StoreOperations.class);
+        operations.open(store, rows);
+    }
+
+    @TearDown(Level.Trial)
+    public void close() {
+        operations.close();
+    }
+
+    @Benchmark
+    public Object getStudentById() {
+        return operations.getStudentById();
+    }
+
+    @Benchmark
+    public Object addAndDeleteStudent() {
+        return operations.addAndDeleteStudent();
+    }
+
+    @Benchmark
+    public Object updateStudent() {
+        return operations.updateStudent();
+    }
+
+    @Benchmark
+    public Object searchStudentsByName() {
+        return operations.searchStudentsByName();
+    }
+
+    @Benchmark
+    public Object getStudentsByCourse() {
+        return operations.getStudentsByCourse();
+    }
+
+    @Benchmark
+    public Object getStudentsByExactCourse() {
+        return operations.getStudentsByExactCourse();
+    }
+
+    @Benchmark
+    public Object getStatistics() {
+        return operations.getStatistics();
+    }
+}
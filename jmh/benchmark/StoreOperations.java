@@ -0,0 +1,24 @@
+package benchmark;
+
+// Store calls measured by StoreBenchmark; each call picks its own random student or term
+public interface StoreOperations {
+    // Creates the store (memory, columnar or dao) and loads rows students into it
+    void open(String store, int rows);
+
+    void close();
+
+    Object getStudentById();
+
+    // Adds a student and removes it again so the store keeps its size during the run
+    Object addAndDeleteStudent();
+
+    Object updateStudent();
+
+    Object searchStudentsByName();
+
+    Object getStudentsByCourse();
+
+    Object getStudentsByExactCourse();
+
+    Object getStatistics();
+}
@@ -0,0 +1,114 @@
+import java.util.*;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+// A bitmap of student ids per age. A range of ages is the union of its buckets, the cardinality
+// of each bucket is how a planner estimates a range without reading it, and walking the buckets
+// in age order visits students by age, then id. Buckets are locked while they change and
+// readers work on copies; an empty bucket is kept, as there are only as many as distinct ages.
+public class AgeIndex {
+    private final ConcurrentSkipListMap<Integer, IdBitmap> buckets = new ConcurrentSkipListMap<>();
+
+    public void add(int id, int age) {
+        IdBitmap bucket = buckets.computeIfAbsent(age, k -> new IdBitmap());
+        synchronized (bucket) {
+            bucket.add(id);
+        }
+    }
+
+    public void remove(int id, int age) {
+        IdBitmap bucket = buckets.get(age);
+        if (bucket != null) {
+            synchronized (bucket) {
+                bucket.remove(id);
+            }
+        }
+    }
+
+    // Ids of the students aged minAge to maxAge inclusive
+    public IdBitmap ids(int minAge, int maxAge) {
+        IdBitmap ids = new IdBitmap();
+        if (minAge > maxAge) {
+            return ids;
+        }
+        for (IdBitmap bucket : buckets.subMap(minAge, true, maxAge, true).values()) {
+            synchronized (bucket) {
+                ids = IdBitmap.or(ids, bucket);
+            }
+        }
+        return ids;
+    }
+
+    // Packed entries for ages minAge to maxAge inclusive, ordered by age then id; read them with
+    // ageOf and idOf. Each bucket is copied when the walk reaches it, so a student whose age
+    // changes during the walk may be seen under either age.
+    public Iterator<Long> entries(int minAge, int maxAge, boolean descending) {
+        if (minAge > maxAge) {
+            return Collections.emptyIterator();
+        }
+        NavigableMap<Integer, IdBitmap> range = buckets.subMap(minAge, true, maxAge, true);
+        Iterator<Map.Entry<Integer, IdBitmap>> ages = (descending ? range.descendingMap() : range)
+                .entrySet().iterator();
+        return new Iterator<Long>() {
+            private int age;
+            private PrimitiveIterator.OfInt ids;
+
+            @Override
+            public boolean hasNext() {
+                while (ids == null || !ids.hasNext()) {
+                    if (!ages.hasNext()) {
+                        return false;
+                    }
+                    Map.Entry<Integer, IdBitmap> bucket = ages.next();
+                    age = bucket.getKey();
+                    IdBitmap copy = copyOf(bucket.getValue());
+                    ids = descending ? copy.descendingIterator() : copy.iterator();
+                }
+                return true;
+            }
+
+            @Override
+            public Long next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return pack(age, ids.nextInt());
+            }
+        };
+    }
+
+    public int count(int minAge, int maxAge) {
+        if (minAge > maxAge) {
+            return 0;
+        }
+        int total = 0;
+        for (IdBitmap bucket : buckets.subMap(minAge, true, maxAge, true).values()) {
+            synchronized (bucket) {
+                total += bucket.getCardinality();
+            }
+        }
+        return total;
+    }
+
+    public void clear() {
+        buckets.clear();
+    }
+
+    public static int ageOf(long entry) {
+        return (int) (entry >> 32);
+    }
+
+    public static int idOf(long entry) {
+        return (int) entry ^ Integer.MIN_VALUE;
+    }
+
+    private static IdBitmap copyOf(IdBitmap bucket) {
+        synchronized (bucket) {
+            return bucket.copy();
+        }
+    }
+
+    // Ages sort before ids; flipping the id's sign bit makes its unsigned order match its signed order
+    private static long pack(int age, int id) {
+        return ((long) age << 32) | ((id ^ Integer.MIN_VALUE) & 0xFFFFFFFFL);
+    }
+}
@@ -0,0 +1,49 @@
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+// Outcome of a StudentDAO bulk operation: which students were written and which were rejected
+public class BatchResult {
+    private final List<Student> succeeded = new ArrayList<>();
+    private final List<Failure> failures = new ArrayList<>();
+
+    public static class Failure {
+        private final Student student;
+        private final String message;
+
+        public Failure(Student student, String message) {
+            this.student = student;
+            this.message = message;
+        }
+
+        public Student getStudent() { return student; }
+        public String getMessage() { return message; }
+
+        @Override
+        public String toString() {
+            return message + ": " + student;
+        }
+    }
+
+    public void addSuccess(Student student) {
+        succeeded.add(student);
+    }
+
+    public void addFailure(Student student, String message) {
+        failures.add(new Failure(student, message));
+    }
+
+    // For inserts the students carry the ids generated by the database
+    public List<Student> getSucceeded() { return Collections.unmodifiableList(succeeded); }
+    public List<Failure> getFailures() { return Collections.unmodifiableList(failures); }
+
+    public int getSuccessCount() { return succeeded.size(); }
+    public int getFailureCount() { return failures.size(); }
+
+    public boolean hasFailures() { return !failures.isEmpty(); }
+
+    @Override
+    public String toString() {
+        return "BatchResult: " + succeeded.size() + " succeeded, " + failures.size() + " failed";
+    }
+}
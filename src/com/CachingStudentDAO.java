@@ -0,0 +1,418 @@
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+// StudentDAO with a bounded cache of students by id in front of the database. Concurrent misses
+// for the same id share one query. With a write-behind lag, single adds and updates are
+// buffered and written in batches at most that long after they were made; every read except a
+// lookup by id flushes the buffer first so it never misses a buffered write.
+public class CachingStudentDAO extends StudentDAO {
+    private final LruCache<Integer, Student> cache;
+    // Loads in progress, so a second miss for the same id waits for the first instead of querying
+    private final Map<Integer, CompletableFuture<Student>> loading = new ConcurrentHashMap<>();
+
+    private final long writeBehindMillis;
+    private final ScheduledExecutorService flusher;
+    private final Object bufferLock = new Object();
+    private List<Student> pendingInserts = new ArrayList<>();
+    private Map<Integer, Student> pendingUpdates = new LinkedHashMap<>();
+    // Updates taken out of the buffer by a flush that has not finished writing them
+    private Map<Integer, Student> flushingUpdates = Map.of();
+    // Held for a whole flush so batches reach the database in the order they were buffered
+    private final Object flushLock = new Object();
+
+    // A writeBehindMillis of 0 writes through to the database on every call
+    public CachingStudentDAO(int maxEntries, long ttlMillis, long writeBehindMillis) {
+        if (writeBehindMillis < 0) {
+            throw new IllegalArgumentException("Write-behind lag cannot be negative");
+        }
+        this.cache = new LruCache<>(maxEntries, ttlMillis);
+        this.writeBehindMillis = writeBehindMillis;
+        if (writeBehindMillis > 0) {
+            flusher = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread thread = new Thread(r, "student-dao-write-behind");
+                thread.setDaemon(true);
+                return thread;
+            });
+        } else {
+            flusher = null;
+        }
+    }
+
+    // Reads studentdb.daoCache.size, studentdb.daoCache.ttlMillis and studentdb.daoCache.writeBehindMillis
+    public static CachingStudentDAO fromSystemProperties() {
+        return new CachingStudentDAO(
+                Integer.getInteger("studentdb.daoCache.size", 10_000),
+                Long.getLong("studentdb.daoCache.ttlMillis", 5 * 60 * 1000),
+                Long.getLong("studentdb.daoCache.writeBehindMillis", 0));
+    }
+
+    public boolean isWriteBehind() {
+        return flusher != null;
+    }
+
+    public long getWriteBehindMillis() {
+        return writeBehindMillis;
+    }
+
+    // The cache version is read before anything else, so a write that lands after the cache and
+    // buffer were checked also stops the row this lookup reads from being cached
+    @Override
+    public Student getStudentById(int id) {
+        long version = cache.getVersion();
+        Student cached = cache.get(id);
+        if (cached != null) {
+            getMetrics().increment("cache.hits");
+            return new Student(cached);
+        }
+        getMetrics().increment("cache.misses");
+        Student pending = pendingUpdate(id);
+        if (pending != null) {
+            return new Student(pending);
+        }
+
+        CompletableFuture<Student> mine = new CompletableFuture<>();
+        CompletableFuture<Student> running = loading.putIfAbsent(id, mine);
+        if (running != null) {
+            getMetrics().increment("cache.coalescedMisses");
+            Student loaded = running.join();
+            return loaded == null ? null : new Student(loaded);
+        }
+        try {
+            Student loaded = super.getStudentById(id);
+            if (loaded != null) {
+                cache.putIfVersion(id, new Student(loaded), version);
+            }
+            mine.complete(loaded);
+            return loaded;
+        } catch (RuntimeException e) {
+            mine.completeExceptionally(e);
+            throw e;
+        } finally {
+            loading.remove(id, mine);
+        }
+    }
+
+    // With write-behind the id is only assigned when the buffer is flushed
+    @Override
+    public boolean addStudent(Student student) {
+        if (student == null) {
+            throw new IllegalArgumentException("Student cannot be null");
+        }
+        if (isWriteBehind()) {
+            buffer(() -> pendingInserts.add(new Student(student)));
+            return true;
+        }
+        boolean added = super.addStudent(student);
+        if (added) {
+            cache.put(student.getId(), new Student(student));
+        }
+        return added;
+    }
+
+    // With write-behind the change is visible to getStudentById at once and reaches the
+    // database with the next flush, where an unknown id is reported as a failure
+    @Override
+    public boolean updateStudent(Student student) {
+        if (student == null) {
+            throw new IllegalArgumentException("Student cannot be null");
+        }
+        Student copy = new Student(student);
+        if (isWriteBehind()) {
+            // Buffered before the eviction, so a lookup that started earlier either finds it
+            // in the buffer or cannot cache the row it read
+            buffer(() -> pendingUpdates.put(copy.getId(), copy));
+            evict(copy.getId());
+            cache.put(copy.getId(), copy);
+            return true;
+        }
+        boolean updated = super.updateStudent(student);
+        // Evicting after the write also stops loads that read the old row from caching it
+        evict(copy.getId());
+        if (updated) {
+            cache.put(copy.getId(), copy);
+        }
+        return updated;
+    }
+
+    @Override
+    public boolean deleteStudent(int id) {
+        flush();
+        boolean deleted = super.deleteStudent(id);
+        evict(id);
+        return deleted;
+    }
+
+    @Override
+    public BatchResult addStudents(Collection<Student> students) {
+        flush();
+        BatchResult result = super.addStudents(students);
+        for (Student student : result.getSucceeded()) {
+            cache.put(student.getId(), new Student(student));
+        }
+        return result;
+    }
+
+    @Override
+    public BatchResult updateStudents(Collection<Student> students) {
+        flush();
+        BatchResult result = super.updateStudents(students);
+        for (Student student : students) {
+            if (student != null) {
+                evict(student.getId());
+            }
+        }
+        for (Student student : result.getSucceeded()) {
+            cache.put(student.getId(), new Student(student));
+        }
+        return result;
+    }
+
+    // Cached students come from memory and the rest from one query per batch
+    @Override
+    public List<Student> getStudentsById(int[] ids) {
+        flush();
+        long version = cache.getVersion();
+        List<Student> students = new ArrayList<>(ids.length);
+        int[] misses = new int[ids.length];
+        int missCount = 0;
+        for (int id : ids) {
+            Student cached = cache.get(id);
+            if (cached != null) {
+                students.add(new Student(cached));
+            } else {
+                misses[missCount++] = id;
+            }
+        }
+        getMetrics().add("cache.hits", ids.length - missCount);
+        getMetrics().add("cache.misses", missCount);
+        if (missCount > 0) {
+            for (Student loaded : super.getStudentsById(Arrays.copyOf(misses, missCount))) {
+                // An update buffered since the flush above is newer than the row just read
+                Student pending = pendingUpdate(loaded.getId());
+                if (pending != null) {
+                    students.add(new Student(pending));
+                    continue;
+                }
+                cache.putIfVersion(loaded.getId(), new Student(loaded), version);
+                students.add(loaded);
+            }
+            students.sort(Comparator.comparingInt(Student::getId));
+        }
+        return students;
+    }
+
+    @Override
+    public Student getStudentByEmail(String email) {
+        flush();
+        return super.getStudentByEmail(email);
+    }
+
+    @Override
+    public List<Student> getAllStudents() {
+        flush();
+        return super.getAllStudents();
+    }
+
+    @Override
+    public List<Student> searchStudentsByName(String name) {
+        flush();
+        return super.searchStudentsByName(name);
+    }
+
+    @Override
+    public List<Student> getStudentsByCourse(String course) {
+        flush();
+        return super.getStudentsByCourse(course);
+    }
+
+    @Override
+    public List<Student> getStudentsByExactCourse(String course) {
+        flush();
+        return super.getStudentsByExactCourse(course);
+    }
+
+    @Override
+    public List<Student> findStudents(StudentQuery query) {
+        flush();
+        return super.findStudents(query);
+    }
+
+    @Override
+    public Set<String> getExistingEmails(Collection<String> emails) {
+        flush();
+        return super.getExistingEmails(emails);
+    }
+
+    @Override
+    public int[] getStudentIds() {
+        flush();
+        return super.getStudentIds();
+    }
+
+    @Override
+    public int[] findStudentIds(StudentPredicate predicate) {
+        flush();
+        return super.findStudentIds(predicate);
+    }
+
+    @Override
+    public List<String> getCourseNames() {
+        flush();
+        return super.getCourseNames();
+    }
+
+    @Override
+    public int countStudents() {
+        flush();
+        return super.countStudents();
+    }
+
+    @Override
+    public Map<String, Object> getStatistics() {
+        flush();
+        return super.getStatistics();
+    }
+
+    @Override
+    public List<Student> getStudentsPage(int afterId, int pageSize) {
+        flush();
+        return super.getStudentsPage(afterId, pageSize);
+    }
+
+    @Override
+    public Stream<Student> streamAllStudents() {
+        flush();
+        return super.streamAllStudents();
+    }
+
+    // Writes every buffered add and update; a no-op without write-behind. Also waits for a flush
+    // already running on another thread, whose rows a reader must see too.
+    public void flush() {
+        if (!isWriteBehind()) {
+            return;
+        }
+        synchronized (flushLock) {
+            List<Student> inserts;
+            Map<Integer, Student> updates;
+            synchronized (bufferLock) {
+                if (pendingInserts.isEmpty() && pendingUpdates.isEmpty()) {
+                    return;
+                }
+                inserts = pendingInserts;
+                updates = pendingUpdates;
+                pendingInserts = new ArrayList<>();
+                pendingUpdates = new LinkedHashMap<>();
+                flushingUpdates = updates;
+            }
+            try {
+                if (!inserts.isEmpty()) {
+                    BatchResult result = super.addStudents(inserts);
+                    for (Student student : result.getSucceeded()) {
+                        cache.put(student.getId(), new Student(student));
+                    }
+                    reportFailures("add", result);
+                    getMetrics().add("writeBehind.rowsWritten", result.getSuccessCount());
+                }
+                if (!updates.isEmpty()) {
+                    BatchResult result = super.updateStudents(updates.values());
+                    // The cache already shows these changes, so drop the ones the database refused
+                    for (BatchResult.Failure failure : result.getFailures()) {
+                        if (failure.getStudent() != null) {
+                            evict(failure.getStudent().getId());
+                        }
+                    }
+                    reportFailures("update", result);
+                    getMetrics().add("writeBehind.rowsWritten", result.getSuccessCount());
+                }
+            } finally {
+                synchronized (bufferLock) {
+                    flushingUpdates = Map.of();
+                }
+            }
+            getMetrics().increment("writeBehind.flushes");
+        }
+    }
+
+    // Stops the background flushes and writes whatever is still buffered
+    public void close() {
+        if (flusher != null) {
+            flusher.shutdown();
+        }
+        flush();
+    }
+
+    public int getPendingWriteCount() {
+        synchronized (bufferLock) {
+            return pendingInserts.size() + pendingUpdates.size();
+        }
+    }
+
+    public Map<String, Object> getCacheStatistics() {
+        Map<String, Object> stats = cache.getStatistics();
+        stats.put("pendingWrites", getPendingWriteCount());
+        return stats;
+    }
+
+    public void invalidateAll() {
+        cache.clear();
+    }
+
+    private void buffer(Runnable change) {
+        boolean first;
+        int pending;
+        synchronized (bufferLock) {
+            first = pendingInserts.isEmpty() && pendingUpdates.isEmpty();
+            change.run();
+            pending = pendingInserts.size() + pendingUpdates.size();
+        }
+        try {
+            // A full batch is written straight away rather than waiting for the lag to expire
+            if (pending >= getBatchSize()) {
+                flusher.execute(this::flushQuietly);
+            } else if (first) {
+                // The first write into an empty buffer starts the clock; that flush takes
+                // everything buffered behind it too
+                flusher.schedule(this::flushQuietly, writeBehindMillis, TimeUnit.MILLISECONDS);
+            }
+        } catch (RejectedExecutionException e) {
+            // Closed, so nothing would flush later
+            flush();
+        }
+    }
+
+    // A buffered update may have been evicted from the cache before it was flushed; until the
+    // flush has written it, the database may still return the older row
+    private Student pendingUpdate(int id) {
+        if (!isWriteBehind()) {
+            return null;
+        }
+        synchronized (bufferLock) {
+            Student pending = pendingUpdates.get(id);
+            return pending != null ? pending : flushingUpdates.get(id);
+        }
+    }
+
+    private void evict(int id) {
+        cache.invalidate(id);
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (Exception e) {
+            System.err.println("Error flushing buffered student writes: " + e.getMessage());
+        }
+    }
+
+    private static void reportFailures(String operation, BatchResult result) {
+        for (BatchResult.Failure failure : result.getFailures()) {
+            System.err.println("Buffered " + operation + " failed: " + failure);
+        }
+    }
+}
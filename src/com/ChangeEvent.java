@@ -0,0 +1,40 @@
+// One change to InMemoryDatabase as published on its ChangeStream. Sequence numbers start at 1
+// and increase by one per event in the order changes were applied; changes to the same student
+// are never reordered. The images are copies of the stored students.
+public final class ChangeEvent {
+    public enum Type { INSERT, UPDATE, DELETE, CLEAR }
+
+    private final long sequence;
+    private final Type type;
+    private final Student before;
+    private final Student after;
+
+    public ChangeEvent(long sequence, Type type, Student before, Student after) {
+        this.sequence = sequence;
+        this.type = type;
+        this.before = before;
+        this.after = after;
+    }
+
+    public long getSequence() { return sequence; }
+    public Type getType() { return type; }
+
+    // Null for an insert or a clear
+    public Student getBefore() { return before; }
+
+    // Null for a delete or a clear
+    public Student getAfter() { return after; }
+
+    // Id of the changed student; 0 for a clear
+    public int getStudentId() {
+        if (after != null) {
+            return after.getId();
+        }
+        return before == null ? 0 : before.getId();
+    }
+
+    @Override
+    public String toString() {
+        return "ChangeEvent #" + sequence + " " + type + (type == Type.CLEAR ? "" : " of student " + getStudentId());
+    }
+}
@@ -0,0 +1,296 @@
+import java.util.*;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+// Ordered feed of the changes made to an InMemoryDatabase, so table models, caches or replicas
+// can apply deltas instead of rescanning. Events go into one bounded ring shared by every
+// subscriber: a writer claims its sequence number with a single atomic increment and publishes
+// into its slot without locking, and each subscriber reads at its own pace. A writer that would
+// overwrite an event a subscriber has not read yet waits for it, so a slow subscriber slows
+// writes down instead of losing events; subscriptions that are no longer read must be closed.
+// The database notifies the stream with its stripe locks held, so an event that would have to
+// wait is only numbered then and is published by publishClaimed once the locks are released.
+public class ChangeStream implements StudentChangeListener {
+    // Busy-wait this many times before blocking, since the next event is often moments away
+    private static final int SPINS = 100;
+
+    private final AtomicReferenceArray<ChangeEvent> slots;
+    private final int mask;
+    // Last sequence number handed to a writer
+    private final AtomicLong claimed = new AtomicLong();
+    private final List<Subscription> subscriptions = new CopyOnWriteArrayList<>();
+    private final StoreMetrics metrics;
+    private final AtomicInteger threadCount = new AtomicInteger();
+    // Numbered events this thread still has to publish
+    private final ThreadLocal<List<ChangeEvent>> claimedEvents = ThreadLocal.withInitial(ArrayList::new);
+    // Blocked readers and writers wait here; the other side signals only when someone is waiting,
+    // counting itself in before it checks again, so publishing and reading stay lock-free
+    private final ReentrantLock waitLock = new ReentrantLock();
+    private final Condition published = waitLock.newCondition();
+    private final Condition released = waitLock.newCondition();
+    private final AtomicInteger waitingReaders = new AtomicInteger();
+    private final AtomicInteger waitingWriters = new AtomicInteger();
+
+    // The capacity is rounded up to a power of two
+    public ChangeStream(int capacity, StoreMetrics metrics) {
+        if (capacity < 2) {
+            throw new IllegalArgumentException("Change stream capacity must be at least 2");
+        }
+        int size = Integer.highestOneBit(capacity - 1) << 1;
+        this.slots = new AtomicReferenceArray<>(size);
+        this.mask = size - 1;
+        this.metrics = metrics;
+    }
+
+    // Reads studentdb.changes.capacity, the number of events subscribers may fall behind by
+    public static ChangeStream fromSystemProperties(StoreMetrics metrics) {
+        return new ChangeStream(Integer.getInteger("studentdb.changes.capacity", 4096), metrics);
+    }
+
+    public int getCapacity() {
+        return slots.length();
+    }
+
+    // Sequence number of the latest event, 0 before the first
+    public long getLastSequence() {
+        return claimed.get();
+    }
+
+    @Override
+    public void studentChanged(Student before, Student after) {
+        ChangeEvent.Type type = before == null ? ChangeEvent.Type.INSERT
+                : after == null ? ChangeEvent.Type.DELETE : ChangeEvent.Type.UPDATE;
+        // Subscribers get copies, so nothing they do can reach the stored students
+        claim(type, before == null ? null : new Student(before), after == null ? null : new Student(after));
+    }
+
+    @Override
+    public void allStudentsCleared() {
+        claim(ChangeEvent.Type.CLEAR, null, null);
+    }
+
+    // Publishes the events this thread numbered but could not publish without waiting. Call it
+    // after every change, once no locks are held; subscribers cannot read past those events until
+    // it runs.
+    public void publishClaimed() {
+        List<ChangeEvent> events = claimedEvents.get();
+        if (events.isEmpty()) {
+            return;
+        }
+        for (ChangeEvent event : events) {
+            awaitSubscribers(event.getSequence() - slots.length());
+            publish(event);
+        }
+        events.clear();
+    }
+
+    // Events published after this call; read the subscription from one thread at a time
+    public Subscription subscribe() {
+        Subscription subscription = new Subscription(claimed.get() + 1);
+        subscriptions.add(subscription);
+        // A writer that checked the subscribers just before the add may reuse a slot past the
+        // first start, so begin after every sequence claimed so far
+        subscription.next = claimed.get() + 1;
+        return subscription;
+    }
+
+    // Reads on a daemon thread of its own and hands the handler up to maxBatch events at a time,
+    // in order; closing the returned subscription stops the thread. A handler that blocks
+    // holds back writers once the ring is full, which is how it applies backpressure.
+    public Subscription subscribe(String name, int maxBatch, Consumer<List<ChangeEvent>> handler) {
+        if (maxBatch < 1) {
+            throw new IllegalArgumentException("Batch size must be at least 1");
+        }
+        Subscription subscription = subscribe();
+        Thread thread = new Thread(() -> {
+            List<ChangeEvent> batch = new ArrayList<>(Math.min(maxBatch, slots.length()));
+            while (!subscription.isClosed()) {
+                // Closing wakes the wait
+                ChangeEvent first = subscription.take(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                subscription.drainTo(batch::add, maxBatch - 1);
+                try {
+                    handler.accept(Collections.unmodifiableList(new ArrayList<>(batch)));
+                } catch (Exception e) {
+                    System.err.println("Error handling student changes: " + e.getMessage());
+                }
+                batch.clear();
+            }
+        }, "change-stream-" + name + "-" + threadCount.incrementAndGet());
+        thread.setDaemon(true);
+        thread.start();
+        return subscription;
+    }
+
+    private void claim(ChangeEvent.Type type, Student before, Student after) {
+        long sequence = claimed.incrementAndGet();
+        ChangeEvent event = new ChangeEvent(sequence, type, before, after);
+        // The slot last held this event; every subscriber must be past it before it is reused
+        long previous = sequence - slots.length();
+        if (previous > 0 && lowestUnread() <= previous) {
+            metrics.increment("changes.writerWaits");
+            claimedEvents.get().add(event);
+        } else {
+            publish(event);
+        }
+    }
+
+    private void publish(ChangeEvent event) {
+        long sequence = event.getSequence();
+        int slot = (int) sequence & mask;
+        ChangeEvent current;
+        do {
+            current = slots.get(slot);
+            // A writer stalled for a whole lap while nobody was subscribed must not replace a
+            // newer event; no subscriber can still need the older one
+            if (current != null && current.getSequence() > sequence) {
+                return;
+            }
+        } while (!slots.compareAndSet(slot, current, event));
+        if (waitingReaders.get() > 0) {
+            signal(published);
+        }
+    }
+
+    private void awaitSubscribers(long previous) {
+        if (previous <= 0) {
+            return;
+        }
+        for (int spins = 0; spins < SPINS; spins++) {
+            if (lowestUnread() > previous) {
+                return;
+            }
+            Thread.onSpinWait();
+        }
+        waitingWriters.incrementAndGet();
+        waitLock.lock();
+        try {
+            // The event is already numbered, so giving up would leave a gap that stalls every
+            // subscriber; the wait ends when they read on or close
+            while (lowestUnread() <= previous) {
+                released.awaitUninterruptibly();
+            }
+        } finally {
+            waitLock.unlock();
+            waitingWriters.decrementAndGet();
+        }
+    }
+
+    private long lowestUnread() {
+        long lowest = Long.MAX_VALUE;
+        for (Subscription subscription : subscriptions) {
+            lowest = Math.min(lowest, subscription.next);
+        }
+        return lowest;
+    }
+
+    private void signal(Condition condition) {
+        waitLock.lock();
+        try {
+            condition.signalAll();
+        } finally {
+            waitLock.unlock();
+        }
+    }
+
+    public class Subscription implements AutoCloseable {
+        // Sequence number of the next event to read; only the reading thread moves it
+        private volatile long next;
+        private volatile boolean closed;
+
+        private Subscription(long next) {
+            this.next = next;
+        }
+
+        // The next event, or null if it has not been published yet
+        public ChangeEvent poll() {
+            if (closed) {
+                return null;
+            }
+            long sequence = next;
+            ChangeEvent event = slots.get((int) sequence & mask);
+            if (event == null || event.getSequence() != sequence) {
+                return null;
+            }
+            // Moving on releases the slot to writers
+            next = sequence + 1;
+            if (waitingWriters.get() > 0) {
+                signal(released);
+            }
+            return event;
+        }
+
+        // Waits up to the timeout for the next event; null if none arrived or the subscription closed
+        public ChangeEvent take(long timeout, TimeUnit unit) {
+            ChangeEvent event;
+            for (int spins = 0; spins < SPINS; spins++) {
+                if ((event = poll()) != null || closed) {
+                    return event;
+                }
+                Thread.onSpinWait();
+            }
+            long remaining = unit.toNanos(timeout);
+            waitingReaders.incrementAndGet();
+            waitLock.lock();
+            try {
+                while ((event = poll()) == null) {
+                    if (closed || remaining <= 0) {
+                        return null;
+                    }
+                    remaining = published.awaitNanos(remaining);
+                }
+                return event;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return null;
+            } finally {
+                waitLock.unlock();
+                waitingReaders.decrementAndGet();
+            }
+        }
+
+        // Hands over up to max events that are already published; returns how many
+        public int drainTo(Consumer<ChangeEvent> consumer, int max) {
+            int count = 0;
+            ChangeEvent event;
+            while (count < max && (event = poll()) != null) {
+                consumer.accept(event);
+                count++;
+            }
+            return count;
+        }
+
+        // Events published but not yet read
+        public long getLag() {
+            return Math.max(0, claimed.get() - next + 1);
+        }
+
+        public boolean isClosed() {
+            return closed;
+        }
+
+        // Stops holding back writers; events not read yet are dropped
+        @Override
+        public void close() {
+            closed = true;
+            subscriptions.remove(this);
+            // Wakes this subscription's reader and any writer waiting for it
+            waitLock.lock();
+            try {
+                published.signalAll();
+                released.signalAll();
+            } finally {
+                waitLock.unlock();
+            }
+        }
+    }
+}
@@ -0,0 +1,429 @@
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// Alternative to InMemoryDatabase that keeps students in primitive columns instead of one
+// object per student: ids and ages in int arrays, courses as dictionary spelling ids, names and emails
+// packed as UTF-8 bytes. Rows are kept dense by moving the last row into a deleted one.
+// Student objects are only created for the rows a caller asks for.
+public class ColumnarStudentStore implements StudentRepository {
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private int size;
+    private int[] ids;
+    private int[] ages;
+    // CourseDictionary spelling id per row, so a course reads back exactly as it was written
+    private int[] courseSpellings;
+    // Hash of the normalized email per row, so probes rarely need to decode an email
+    private int[] emailHashes;
+    private final PackedStringColumn names;
+    private final PackedStringColumn emails;
+
+    private final IntIntHashMap rowById = new IntIntHashMap();
+    // Open-addressing table of row + 1 keyed by emailHashes; 0 marks a free slot
+    private int[] emailSlots = new int[16];
+
+    private final CourseDictionary courseDictionary = new CourseDictionary();
+    // Students per course code
+    private int[] courseCounts = new int[8];
+
+    private final StudentStatistics statistics = new StudentStatistics(courseDictionary);
+    private int nextId = 1;
+
+    public ColumnarStudentStore() {
+        this(1024);
+    }
+
+    public ColumnarStudentStore(int initialCapacity) {
+        int capacity = Math.max(initialCapacity, 16);
+        ids = new int[capacity];
+        ages = new int[capacity];
+        courseSpellings = new int[capacity];
+        emailHashes = new int[capacity];
+        names = new PackedStringColumn(capacity);
+        emails = new PackedStringColumn(capacity);
+    }
+
+    public boolean addStudent(Student student) {
+        validate(student);
+        String emailKey = normalizeEmail(student.getEmail());
+        int hash = emailKey.hashCode();
+
+        lock.writeLock().lock();
+        try {
+            if (findEmailRow(emailKey, hash) >= 0) {
+                throw new IllegalArgumentException("Student with this email already exists");
+            }
+            ensureCapacity(size + 1);
+            int row = size;
+            student.setId(nextId++);
+            ids[row] = student.getId();
+            writeRow(row, student, hash);
+            size++;
+            rowById.put(student.getId(), row);
+            insertEmailSlot(row);
+            statistics.add(student);
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public boolean updateStudent(Student student) {
+        if (student == null) {
+            throw new IllegalArgumentException("Student cannot be null");
+        }
+        lock.writeLock().lock();
+        try {
+            int row = rowById.get(student.getId());
+            if (row == IntIntHashMap.MISSING) {
+                throw new IllegalArgumentException("Student not found with ID: " + student.getId());
+            }
+            validate(student);
+            String emailKey = normalizeEmail(student.getEmail());
+            int hash = emailKey.hashCode();
+            int owner = findEmailRow(emailKey, hash);
+            if (owner >= 0 && owner != row) {
+                throw new IllegalArgumentException("Another student with this email already exists");
+            }
+
+            Student before = readRow(row);
+            removeEmailSlot(row);
+            courseCounts[courseCodeAt(row)]--;
+            writeRow(row, student, hash);
+            insertEmailSlot(row);
+            statistics.replace(before, student);
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public boolean deleteStudent(int id) {
+        lock.writeLock().lock();
+        try {
+            int row = rowById.get(id);
+            if (row == IntIntHashMap.MISSING) {
+                throw new IllegalArgumentException("Student not found with ID: " + id);
+            }
+            statistics.remove(readRow(row));
+            removeEmailSlot(row);
+            rowById.remove(id);
+            courseCounts[courseCodeAt(row)]--;
+            names.release(row);
+            emails.release(row);
+
+            int last = size - 1;
+            if (row != last) {
+                // Keep the columns dense: the last row takes the place of the deleted one
+                ids[row] = ids[last];
+                ages[row] = ages[last];
+                courseSpellings[row] = courseSpellings[last];
+                emailHashes[row] = emailHashes[last];
+                names.move(last, row);
+                emails.move(last, row);
+                rowById.put(ids[row], row);
+                replaceEmailSlot(last, row);
+            }
+            size--;
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public Student getStudentById(int id) {
+        lock.readLock().lock();
+        try {
+            int row = rowById.get(id);
+            return row == IntIntHashMap.MISSING ? null : readRow(row);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public Student getStudentByEmail(String email) {
+        if (email == null) {
+            return null;
+        }
+        String emailKey = normalizeEmail(email);
+        lock.readLock().lock();
+        try {
+            int row = findEmailRow(emailKey, emailKey.hashCode());
+            return row < 0 ? null : readRow(row);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public List<Student> getAllStudents() {
+        lock.readLock().lock();
+        try {
+            List<Student> result = new ArrayList<>(size);
+            for (int row = 0; row < size; row++) {
+                result.add(readRow(row));
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int[] getStudentIds() {
+        lock.readLock().lock();
+        try {
+            int[] result = Arrays.copyOf(ids, size);
+            Arrays.sort(result);
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Scans the packed name bytes directly; only matching rows become Student objects
+    public List<Student> searchStudentsByName(String name) {
+        byte[] needle = name.toLowerCase(Locale.ROOT).getBytes(StandardCharsets.UTF_8);
+        lock.readLock().lock();
+        try {
+            List<Student> result = new ArrayList<>();
+            for (int row = 0; row < size; row++) {
+                if (names.containsLowercase(row, needle)) {
+                    result.add(readRow(row));
+                }
+            }
+            result.sort(Comparator.comparingInt(Student::getId));
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public List<Student> getStudentsByCourse(String course) {
+        boolean[] matchingCodes = new boolean[courseDictionary.size()];
+        for (int code : courseDictionary.codesContaining(course)) {
+            matchingCodes[code] = true;
+        }
+        lock.readLock().lock();
+        try {
+            return rowsWhere(matchingCodes);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Compares one int code per row; the course string is normalized once per query
+    public List<Student> getStudentsByExactCourse(String course) {
+        int code = courseDictionary.codeOf(course);
+        if (code < 0) {
+            return new ArrayList<>();
+        }
+        boolean[] matchingCodes = new boolean[code + 1];
+        matchingCodes[code] = true;
+        lock.readLock().lock();
+        try {
+            return rowsWhere(matchingCodes);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int getCourseCount(String course) {
+        int code = courseDictionary.codeOf(course);
+        lock.readLock().lock();
+        try {
+            return code < 0 || code >= courseCounts.length ? 0 : courseCounts[code];
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public List<String> getCourseNames() {
+        lock.readLock().lock();
+        try {
+            List<String> result = new ArrayList<>();
+            for (int code = 0; code < courseCounts.length; code++) {
+                if (courseCounts[code] > 0) {
+                    result.add(courseDictionary.nameOf(code));
+                }
+            }
+            result.sort(String.CASE_INSENSITIVE_ORDER);
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public Map<String, Object> getStatistics() {
+        return statistics.snapshot();
+    }
+
+    public void clearAllData() {
+        lock.writeLock().lock();
+        try {
+            size = 0;
+            nextId = 1;
+            rowById.clear();
+            Arrays.fill(emailSlots, 0);
+            names.clear();
+            emails.clear();
+            Arrays.fill(courseCounts, 0);
+            statistics.clear();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int getSize() {
+        lock.readLock().lock();
+        try {
+            return size;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Approximate bytes held by the columns and lookup tables
+    public long getEstimatedHeapBytes() {
+        lock.readLock().lock();
+        try {
+            long columns = 4L * (ids.length + ages.length + courseSpellings.length + emailHashes.length);
+            long tables = 4L * emailSlots.length + 8L * Math.max(16, rowById.size() * 2);
+            return columns + tables + names.getAllocatedBytes() + emails.getAllocatedBytes();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private List<Student> rowsWhere(boolean[] matchingCodes) {
+        List<Student> result = new ArrayList<>();
+        for (int row = 0; row < size; row++) {
+            int code = courseCodeAt(row);
+            if (code < matchingCodes.length && matchingCodes[code]) {
+                result.add(readRow(row));
+            }
+        }
+        result.sort(Comparator.comparingInt(Student::getId));
+        return result;
+    }
+
+    private void writeRow(int row, Student student, int emailHash) {
+        ages[row] = student.getAge();
+        courseSpellings[row] = courseDictionary.internSpelling(student.getCourse());
+        int code = courseCodeAt(row);
+        if (code >= courseCounts.length) {
+            courseCounts = Arrays.copyOf(courseCounts, Math.max(code + 1, courseCounts.length * 2));
+        }
+        courseCounts[code]++;
+        emailHashes[row] = emailHash;
+        names.set(row, student.getName(), size);
+        emails.set(row, student.getEmail(), size);
+    }
+
+    private Student readRow(int row) {
+        return new Student(ids[row], names.get(row), emails.get(row), ages[row], courseDictionary.spelling(courseSpellings[row]));
+    }
+
+    private int courseCodeAt(int row) {
+        return courseDictionary.codeOfSpelling(courseSpellings[row]);
+    }
+
+    private void ensureCapacity(int rows) {
+        if (rows > ids.length) {
+            int capacity = Math.max(rows, ids.length * 2);
+            ids = Arrays.copyOf(ids, capacity);
+            ages = Arrays.copyOf(ages, capacity);
+            courseSpellings = Arrays.copyOf(courseSpellings, capacity);
+            emailHashes = Arrays.copyOf(emailHashes, capacity);
+        }
+        names.ensureCapacity(rows);
+        emails.ensureCapacity(rows);
+        if (rows * 2 > emailSlots.length) {
+            rehashEmails(emailSlots.length * 2);
+        }
+    }
+
+    private int findEmailRow(String emailKey, int hash) {
+        int mask = emailSlots.length - 1;
+        for (int slot = emailSlot(hash); emailSlots[slot] != 0; slot = (slot + 1) & mask) {
+            int row = emailSlots[slot] - 1;
+            if (emailHashes[row] == hash && emailKey.equals(normalizeEmail(emails.get(row)))) {
+                return row;
+            }
+        }
+        return -1;
+    }
+
+    private void insertEmailSlot(int row) {
+        int mask = emailSlots.length - 1;
+        int slot = emailSlot(emailHashes[row]);
+        while (emailSlots[slot] != 0) {
+            slot = (slot + 1) & mask;
+        }
+        emailSlots[slot] = row + 1;
+    }
+
+    private int slotOfRow(int row) {
+        int mask = emailSlots.length - 1;
+        for (int slot = emailSlot(emailHashes[row]); emailSlots[slot] != 0; slot = (slot + 1) & mask) {
+            if (emailSlots[slot] == row + 1) {
+                return slot;
+            }
+        }
+        throw new IllegalStateException("Email index is missing row " + row);
+    }
+
+    private void removeEmailSlot(int row) {
+        int mask = emailSlots.length - 1;
+        int hole = slotOfRow(row);
+        int next = (hole + 1) & mask;
+        while (emailSlots[next] != 0) {
+            int ideal = emailSlot(emailHashes[emailSlots[next] - 1]);
+            if (((next - ideal) & mask) >= ((next - hole) & mask)) {
+                emailSlots[hole] = emailSlots[next];
+                hole = next;
+            }
+            next = (next + 1) & mask;
+        }
+        emailSlots[hole] = 0;
+    }
+
+    // Called after the row's columns moved from `from` to `to`; both carry the same hash
+    private void replaceEmailSlot(int from, int to) {
+        int mask = emailSlots.length - 1;
+        for (int slot = emailSlot(emailHashes[to]); emailSlots[slot] != 0; slot = (slot + 1) & mask) {
+            if (emailSlots[slot] == from + 1) {
+                emailSlots[slot] = to + 1;
+                return;
+            }
+        }
+        throw new IllegalStateException("Email index is missing row " + from);
+    }
+
+    private void rehashEmails(int capacity) {
+        emailSlots = new int[capacity];
+        for (int row = 0; row < size; row++) {
+            insertEmailSlot(row);
+        }
+    }
+
+    private int emailSlot(int hash) {
+        int h = hash * 0x9E3779B9;
+        return (h ^ (h >>> 16)) & (emailSlots.length - 1);
+    }
+
+    private static void validate(Student student) {
+        if (student == null) {
+            throw new IllegalArgumentException("Student cannot be null");
+        }
+        if (student.getName() == null || student.getName().trim().isEmpty()) {
+            throw new IllegalArgumentException("Student name is required");
+        }
+        if (student.getEmail() == null || student.getEmail().trim().isEmpty()) {
+            throw new IllegalArgumentException("Student email is required");
+        }
+    }
+
+    private static String normalizeEmail(String email) {
+        return email.trim().toLowerCase(Locale.ROOT);
+    }
+}
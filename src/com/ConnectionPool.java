@@ -0,0 +1,300 @@
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Bounded JDBC connection pool. Borrowed connections are proxies whose close() returns the
+// physical connection to the pool instead of closing it.
+public class ConnectionPool {
+    private final PoolConfig config;
+    private final Semaphore permits;
+    private final BlockingDeque<PooledConnection> idle = new LinkedBlockingDeque<>();
+    private final Set<PooledConnection> inUse = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger totalConnections = new AtomicInteger();
+    private final ScheduledExecutorService housekeeper;
+    private volatile boolean closed;
+
+    private final AtomicLong acquisitions = new AtomicLong();
+    private final AtomicLong timeouts = new AtomicLong();
+    private final AtomicLong created = new AtomicLong();
+    private final AtomicLong destroyed = new AtomicLong();
+    private final AtomicLong leaksDetected = new AtomicLong();
+    private final AtomicLong totalWaitNanos = new AtomicLong();
+    private final AtomicLong maxWaitNanos = new AtomicLong();
+
+    private static class PooledConnection {
+        final Connection physical;
+        volatile long lastUsedMillis = System.currentTimeMillis();
+        volatile long borrowedAtMillis;
+        // Null unless the pool records where connections are borrowed
+        volatile StackTraceElement[] borrowedBy;
+        volatile boolean leakReported;
+
+        PooledConnection(Connection physical) {
+            this.physical = physical;
+        }
+    }
+
+    public ConnectionPool(PoolConfig config) {
+        if (config.getMinSize() < 0 || config.getMaxSize() <= 0 || config.getMinSize() > config.getMaxSize()) {
+            throw new IllegalArgumentException("Invalid pool size: min " + config.getMinSize() + ", max " + config.getMaxSize());
+        }
+        if (config.getHousekeepingIntervalMillis() <= 0) {
+            throw new IllegalArgumentException("Housekeeping interval must be positive");
+        }
+        this.config = config;
+        this.permits = new Semaphore(config.getMaxSize(), true);
+        loadDriver(config.getDriverClassName());
+
+        this.housekeeper = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "connection-pool-housekeeper");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long interval = config.getHousekeepingIntervalMillis();
+        housekeeper.scheduleWithFixedDelay(this::houseKeep, interval, interval, TimeUnit.MILLISECONDS);
+        fillToMinimum();
+    }
+
+    public Connection getConnection() throws SQLException {
+        if (closed) {
+            throw new SQLException("Connection pool is closed");
+        }
+        long start = System.nanoTime();
+        try {
+            if (!permits.tryAcquire(config.getAcquireTimeoutMillis(), TimeUnit.MILLISECONDS)) {
+                timeouts.incrementAndGet();
+                throw new SQLTimeoutException("Timed out after " + config.getAcquireTimeoutMillis()
+                        + " ms waiting for a connection (" + inUse.size() + " in use)");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a connection", e);
+        }
+        recordWait(System.nanoTime() - start);
+
+        try {
+            PooledConnection pooled = takeValidIdle();
+            if (pooled == null) {
+                pooled = createPooledConnection();
+            }
+            pooled.borrowedAtMillis = System.currentTimeMillis();
+            pooled.borrowedBy = config.isLeakStackTraces() ? Thread.currentThread().getStackTrace() : null;
+            pooled.leakReported = false;
+            inUse.add(pooled);
+            acquisitions.incrementAndGet();
+            return wrap(pooled);
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new HashMap<>();
+        long count = acquisitions.get();
+        metrics.put("activeConnections", inUse.size());
+        metrics.put("idleConnections", idle.size());
+        metrics.put("totalConnections", totalConnections.get());
+        metrics.put("waitingThreads", permits.getQueueLength());
+        metrics.put("acquisitions", count);
+        metrics.put("acquireTimeouts", timeouts.get());
+        metrics.put("connectionsCreated", created.get());
+        metrics.put("connectionsDestroyed", destroyed.get());
+        metrics.put("leaksDetected", leaksDetected.get());
+        metrics.put("averageWaitMillis", count == 0 ? 0.0 : totalWaitNanos.get() / 1e6 / count);
+        metrics.put("maxWaitMillis", maxWaitNanos.get() / 1e6);
+        return metrics;
+    }
+
+    public void shutdown() {
+        closed = true;
+        housekeeper.shutdownNow();
+        PooledConnection pooled;
+        while ((pooled = idle.pollFirst()) != null) {
+            destroy(pooled);
+        }
+        // Connections still borrowed are destroyed when they are returned
+    }
+
+    // A connection returned moments ago is assumed to still work; validating on every borrow
+    // would add a round trip to each one
+    private PooledConnection takeValidIdle() {
+        PooledConnection pooled;
+        while ((pooled = idle.pollFirst()) != null) {
+            if (System.currentTimeMillis() - pooled.lastUsedMillis < config.getValidateAfterIdleMillis()
+                    || isValid(pooled)) {
+                return pooled;
+            }
+            destroy(pooled);
+        }
+        return null;
+    }
+
+    private PooledConnection createPooledConnection() throws SQLException {
+        Connection physical = DriverManager.getConnection(config.getUrl(), config.getUsername(), config.getPassword());
+        totalConnections.incrementAndGet();
+        created.incrementAndGet();
+        return new PooledConnection(physical);
+    }
+
+    private void release(PooledConnection pooled) {
+        inUse.remove(pooled);
+        try {
+            if (closed || pooled.physical.isClosed()) {
+                destroy(pooled);
+                return;
+            }
+            // Undo what the borrower may have changed so the next borrower gets a clean connection
+            if (!pooled.physical.getAutoCommit()) {
+                pooled.physical.rollback();
+                pooled.physical.setAutoCommit(true);
+            }
+            pooled.lastUsedMillis = System.currentTimeMillis();
+            pooled.borrowedBy = null;
+            idle.offerFirst(pooled);
+        } catch (SQLException e) {
+            System.err.println("Discarding broken pooled connection: " + e.getMessage());
+            destroy(pooled);
+        } finally {
+            permits.release();
+        }
+    }
+
+    private boolean isValid(PooledConnection pooled) {
+        try {
+            return pooled.physical.isValid(config.getValidationTimeoutSeconds());
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    private void destroy(PooledConnection pooled) {
+        totalConnections.decrementAndGet();
+        destroyed.incrementAndGet();
+        try {
+            pooled.physical.close();
+        } catch (SQLException e) {
+            System.err.println("Error closing pooled connection: " + e.getMessage());
+        }
+    }
+
+    private void houseKeep() {
+        try {
+            long now = System.currentTimeMillis();
+            // Evict connections idle for too long, oldest first, but never below the minimum size
+            Iterator<PooledConnection> oldestFirst = idle.descendingIterator();
+            while (oldestFirst.hasNext()) {
+                PooledConnection pooled = oldestFirst.next();
+                if (totalConnections.get() <= config.getMinSize()) {
+                    break;
+                }
+                if (now - pooled.lastUsedMillis > config.getIdleTimeoutMillis() && idle.remove(pooled)) {
+                    destroy(pooled);
+                }
+            }
+
+            for (PooledConnection pooled : inUse) {
+                if (!pooled.leakReported && now - pooled.borrowedAtMillis > config.getLeakThresholdMillis()) {
+                    pooled.leakReported = true;
+                    leaksDetected.incrementAndGet();
+                    StackTraceElement[] borrowedBy = pooled.borrowedBy;
+                    System.err.println("Possible connection leak: connection borrowed "
+                            + (now - pooled.borrowedAtMillis) + " ms ago has not been returned"
+                            + (borrowedBy == null ? " (set studentdb.pool.leakStackTraces=true to see where)"
+                                    : ", borrowed at " + describe(borrowedBy)));
+                }
+            }
+
+            fillToMinimum();
+        } catch (Exception e) {
+            System.err.println("Error during connection pool housekeeping: " + e.getMessage());
+        }
+    }
+
+    // The borrower's frames, skipping getStackTrace and the pool's own
+    private static String describe(StackTraceElement[] stack) {
+        StringBuilder frames = new StringBuilder();
+        for (StackTraceElement frame : stack) {
+            if (frame.getClassName().equals(Thread.class.getName())
+                    || frame.getClassName().equals(ConnectionPool.class.getName())) {
+                continue;
+            }
+            frames.append(System.lineSeparator()).append("    at ").append(frame);
+        }
+        return frames.toString();
+    }
+
+    private void fillToMinimum() {
+        while (!closed && totalConnections.get() < config.getMinSize()) {
+            try {
+                idle.offerLast(createPooledConnection());
+            } catch (SQLException e) {
+                System.err.println("Could not open pooled connection: " + e.getMessage());
+                return;
+            }
+        }
+    }
+
+    private void recordWait(long nanos) {
+        totalWaitNanos.addAndGet(nanos);
+        maxWaitNanos.accumulateAndGet(nanos, Math::max);
+    }
+
+    private Connection wrap(PooledConnection pooled) {
+        InvocationHandler handler = new InvocationHandler() {
+            private boolean returned;
+
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+                switch (method.getName()) {
+                    case "close":
+                        if (!returned) {
+                            returned = true;
+                            release(pooled);
+                        }
+                        return null;
+                    case "isClosed":
+                        return returned || pooled.physical.isClosed();
+                    case "equals":
+                        return proxy == args[0];
+                    case "hashCode":
+                        return System.identityHashCode(proxy);
+                    case "toString":
+                        return "Pooled[" + pooled.physical + "]";
+                    default:
+                        if (returned) {
+                            throw new SQLException("Connection has already been returned to the pool");
+                        }
+                        try {
+                            return method.invoke(pooled.physical, args);
+                        } catch (InvocationTargetException e) {
+                            throw e.getCause();
+                        }
+                }
+            }
+        };
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                new Class<?>[]{Connection.class}, handler);
+    }
+
+    private static void loadDriver(String driverClassName) {
+        if (driverClassName == null || driverClassName.isEmpty()) {
+            return;
+        }
+        try {
+            Class.forName(driverClassName);
+        } catch (ClassNotFoundException e) {
+            // JDBC 4 drivers on the classpath still register themselves through ServiceLoader
+            System.err.println("JDBC Driver not found: " + driverClassName);
+        }
+    }
+}
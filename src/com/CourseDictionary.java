@@ -0,0 +1,109 @@
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Interns course names. Every exact spelling gets one shared String instance and a spelling id;
+// spellings that differ only in case or surrounding whitespace belong to the same course code,
+// which is what filters and counts group by. Ids and codes are never reused.
+public class CourseDictionary {
+    private final Map<String, Integer> spellingIds = new ConcurrentHashMap<>();
+    private final Map<String, Integer> codesByKey = new ConcurrentHashMap<>();
+    private volatile String[] spellings = new String[0];
+    private volatile int[] codesBySpelling = new int[0];
+    // First spelling seen for each code, used when reporting courses back to callers
+    private volatile String[] displayNames = new String[0];
+
+    // Returns the code of the course, adding it if it is new; null is treated as ""
+    public int intern(String course) {
+        return codeOfSpelling(internSpelling(course));
+    }
+
+    public int internSpelling(String course) {
+        String spelling = course == null ? "" : course;
+        Integer id = spellingIds.get(spelling);
+        if (id != null) {
+            return id;
+        }
+        synchronized (this) {
+            id = spellingIds.get(spelling);
+            if (id != null) {
+                return id;
+            }
+            String key = normalize(spelling);
+            Integer code = codesByKey.get(key);
+            if (code == null) {
+                code = displayNames.length;
+                String[] names = Arrays.copyOf(displayNames, code + 1);
+                names[code] = spelling;
+                displayNames = names;
+                codesByKey.put(key, code);
+            }
+            id = spellings.length;
+            int[] codes = Arrays.copyOf(codesBySpelling, id + 1);
+            codes[id] = code;
+            String[] interned = Arrays.copyOf(spellings, id + 1);
+            interned[id] = spelling;
+            // Publish the arrays before the id so readers never see an id out of their range
+            codesBySpelling = codes;
+            spellings = interned;
+            spellingIds.put(spelling, id);
+            return id;
+        }
+    }
+
+    // The shared instance for this exact spelling, so stored students do not each carry a copy
+    public String canonical(String course) {
+        if (course == null) {
+            return null;
+        }
+        int id = internSpelling(course);
+        return spellings[id];
+    }
+
+    // Looks a course up without adding it; returns -1 if it has never been interned
+    public int codeOf(String course) {
+        String spelling = course == null ? "" : course;
+        Integer id = spellingIds.get(spelling);
+        if (id != null) {
+            return codeOfSpelling(id);
+        }
+        Integer code = codesByKey.get(normalize(spelling));
+        return code == null ? -1 : code;
+    }
+
+    public String spelling(int spellingId) {
+        return spellings[spellingId];
+    }
+
+    public int codeOfSpelling(int spellingId) {
+        return codesBySpelling[spellingId];
+    }
+
+    public String nameOf(int code) {
+        return displayNames[code];
+    }
+
+    public int size() {
+        return displayNames.length;
+    }
+
+    public int spellingCount() {
+        return spellings.length;
+    }
+
+    // Compares the term against each distinct course once, not against every student
+    public List<Integer> codesContaining(String term) {
+        String needle = normalize(term == null ? "" : term);
+        String[] names = displayNames;
+        List<Integer> codes = new ArrayList<>();
+        for (int code = 0; code < names.length; code++) {
+            if (normalize(names[code]).contains(needle)) {
+                codes.add(code);
+            }
+        }
+        return codes;
+    }
+
+    private static String normalize(String course) {
+        return course.trim().toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,117 @@
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+// A bitmap of student ids per course code, with its cardinality as the per-course count. Buckets
+// change under their map entry and their own lock, and readers get copies.
+public class CourseIndex {
+    private final CourseDictionary dictionary;
+    private final Map<Integer, IdBitmap> buckets = new ConcurrentHashMap<>();
+
+    public CourseIndex(CourseDictionary dictionary) {
+        this.dictionary = dictionary;
+    }
+
+    public void add(int id, String course) {
+        buckets.compute(dictionary.intern(course), (code, ids) -> {
+            if (ids == null) {
+                ids = new IdBitmap();
+            }
+            synchronized (ids) {
+                ids.add(id);
+            }
+            return ids;
+        });
+    }
+
+    public void remove(int id, String course) {
+        int code = dictionary.codeOf(course);
+        if (code < 0) {
+            return;
+        }
+        buckets.computeIfPresent(code, (k, ids) -> {
+            synchronized (ids) {
+                ids.remove(id);
+                return ids.isEmpty() ? null : ids;
+            }
+        });
+    }
+
+    public List<Integer> exact(String course) {
+        return toList(ids(course));
+    }
+
+    // Matches the term against the distinct courses rather than against every student
+    public List<Integer> containing(String term) {
+        IdBitmap result = new IdBitmap();
+        for (int code : dictionary.codesContaining(term)) {
+            IdBitmap ids = buckets.get(code);
+            if (ids != null) {
+                synchronized (ids) {
+                    result = IdBitmap.or(result, ids);
+                }
+            }
+        }
+        return toList(result);
+    }
+
+    // Copy of the ids in the course's bucket; empty for an unknown course
+    public IdBitmap ids(String course) {
+        int code = dictionary.codeOf(course);
+        IdBitmap ids = code < 0 ? null : buckets.get(code);
+        if (ids == null) {
+            return new IdBitmap();
+        }
+        synchronized (ids) {
+            return ids.copy();
+        }
+    }
+
+    public int count(String course) {
+        int code = dictionary.codeOf(course);
+        IdBitmap ids = code < 0 ? null : buckets.get(code);
+        return ids == null ? 0 : cardinality(ids);
+    }
+
+    public Map<String, Integer> counts() {
+        Map<String, Integer> counts = new HashMap<>();
+        for (Map.Entry<Integer, IdBitmap> entry : buckets.entrySet()) {
+            int count = cardinality(entry.getValue());
+            if (count > 0) {
+                counts.put(dictionary.nameOf(entry.getKey()), count);
+            }
+        }
+        return counts;
+    }
+
+    // Display names of the courses that currently have students, sorted for presentation
+    public List<String> courseNames() {
+        List<String> names = new ArrayList<>();
+        for (Map.Entry<Integer, IdBitmap> entry : buckets.entrySet()) {
+            if (cardinality(entry.getValue()) > 0) {
+                names.add(dictionary.nameOf(entry.getKey()));
+            }
+        }
+        names.sort(String.CASE_INSENSITIVE_ORDER);
+        return names;
+    }
+
+    public void clear() {
+        buckets.clear();
+    }
+
+    private static int cardinality(IdBitmap ids) {
+        synchronized (ids) {
+            return ids.getCardinality();
+        }
+    }
+
+    // Bitmaps iterate in id order, so the list needs no sort
+    private static List<Integer> toList(IdBitmap ids) {
+        List<Integer> result = new ArrayList<>(ids.getCardinality());
+        PrimitiveIterator.OfInt values = ids.iterator();
+        while (values.hasNext()) {
+            result.add(values.nextInt());
+        }
+        return result;
+    }
+}
@@ -0,0 +1,58 @@
+import java.util.ArrayList;
+import java.util.List;
+
+// RFC 4180 style CSV: fields separated by commas, optionally enclosed in double quotes, with a
+// quote inside a quoted field written twice. Quoted fields may contain commas and line breaks.
+public final class CsvFormat {
+    public static final String HEADER = "id,name,email,age,course";
+
+    private CsvFormat() {}
+
+    // Splits one record into its fields; a quote left open runs to the end of the record
+    public static List<String> parseFields(String record) {
+        List<String> fields = new ArrayList<>(5);
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < record.length(); i++) {
+            char c = record.charAt(i);
+            if (quoted) {
+                if (c != '"') {
+                    field.append(c);
+                } else if (i + 1 < record.length() && record.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else {
+                    quoted = false;
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+
+    // Quotes the field only when it would otherwise be read back differently
+    public static String quote(String field) {
+        if (field == null) {
+            return "";
+        }
+        boolean needsQuotes = !field.isEmpty() && (Character.isWhitespace(field.charAt(0))
+                || Character.isWhitespace(field.charAt(field.length() - 1)));
+        for (int i = 0; i < field.length() && !needsQuotes; i++) {
+            char c = field.charAt(i);
+            needsQuotes = c == ',' || c == '"' || c == '\n' || c == '\r';
+        }
+        return needsQuotes ? '"' + field.replace("\"", "\"\"") + '"' : field;
+    }
+
+    public static String format(Student student) {
+        return student.getId() + "," + quote(student.getName()) + "," + quote(student.getEmail()) + ","
+                + student.getAge() + "," + quote(student.getCourse());
+    }
+}
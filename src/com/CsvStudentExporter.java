@@ -0,0 +1,55 @@
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.function.LongConsumer;
+
+// Writes every student of a repository to CSV as it is read, so the table is never held in
+// memory at once. The file is written under a temporary name and renamed when complete, so a
+// failed export leaves any earlier file in place.
+public class CsvStudentExporter {
+    private final int progressInterval;
+
+    // The progress callback gets the running count every progressInterval students and at the end
+    public CsvStudentExporter(int progressInterval) {
+        if (progressInterval <= 0) {
+            throw new IllegalArgumentException("Progress interval must be positive");
+        }
+        this.progressInterval = progressInterval;
+    }
+
+    public long exportFile(Path file, StudentRepository repository, LongConsumer progress) throws IOException {
+        Path target = file.toAbsolutePath();
+        Path partial = Files.createTempFile(target.getParent(), target.getFileName().toString(), ".part");
+        long[] exported = {0};
+        try {
+            try (BufferedWriter writer = Files.newBufferedWriter(partial, StandardCharsets.UTF_8)) {
+                writer.write(CsvFormat.HEADER);
+                writer.newLine();
+                repository.forEachStudent(student -> {
+                    try {
+                        writer.write(CsvFormat.format(student));
+                        writer.newLine();
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                    if (++exported[0] % progressInterval == 0 && progress != null) {
+                        progress.accept(exported[0]);
+                    }
+                });
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+            Files.move(partial, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(partial);
+        }
+        if (progress != null) {
+            progress.accept(exported[0]);
+        }
+        return exported[0];
+    }
+}
@@ -0,0 +1,297 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+// Loads students from CSV files of any size. One thread reads the file through a fixed-size
+// buffer and cuts it into batches of records; the batches are parsed and validated on a
+// fork-join pool and taken back in file order, checked for emails that are repeated or already
+// stored, and added to the repository one batch at a time. Only a few batches are in memory at
+// once. The file may start with a header naming the columns; without one the columns are read
+// in the order CsvStudentExporter writes them. Ids in the file are ignored.
+public class CsvStudentImporter {
+    // Called on the importing thread after each batch has been written
+    public interface ProgressListener {
+        void progress(long recordsRead, long imported, long rejected);
+    }
+
+    private static final String[] COLUMNS = {"name", "email", "age", "course"};
+
+    private final int batchSize;
+    private final int parallelism;
+    private final int bufferBytes;
+    private final int maxRejectedRows;
+
+    public CsvStudentImporter(int batchSize, int parallelism, int bufferBytes, int maxRejectedRows) {
+        if (batchSize <= 0 || parallelism <= 0 || bufferBytes <= 0) {
+            throw new IllegalArgumentException("Batch size, parallelism and buffer size must be positive");
+        }
+        if (maxRejectedRows < 0) {
+            throw new IllegalArgumentException("Rejected row limit cannot be negative");
+        }
+        this.batchSize = batchSize;
+        this.parallelism = parallelism;
+        this.bufferBytes = bufferBytes;
+        this.maxRejectedRows = maxRejectedRows;
+    }
+
+    // Reads studentdb.import.batchSize, studentdb.import.parallelism, studentdb.import.bufferBytes
+    // and studentdb.import.maxRejectedRows
+    public static CsvStudentImporter fromSystemProperties() {
+        return new CsvStudentImporter(
+                Integer.getInteger("studentdb.import.batchSize", 5_000),
+                Integer.getInteger("studentdb.import.parallelism", Runtime.getRuntime().availableProcessors()),
+                Integer.getInteger("studentdb.import.bufferBytes", 64 * 1024),
+                Integer.getInteger("studentdb.import.maxRejectedRows", 10_000));
+    }
+
+    public ImportReport importFile(Path file, StudentRepository repository, ProgressListener listener) throws IOException {
+        ImportReport report = new ImportReport(maxRejectedRows);
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        // Enough parsed batches to keep every worker busy while the previous one is written
+        int maxInFlight = parallelism + 1;
+        Deque<ForkJoinTask<List<ParsedRow>>> inFlight = new ArrayDeque<>();
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            RecordReader reader = new RecordReader(channel, bufferBytes);
+            List<Record> batch = reader.next(batchSize);
+            int[] layout = {1, 2, 3, 4};
+            if (!batch.isEmpty()) {
+                int[] header = headerLayout(batch.get(0));
+                if (header != null) {
+                    layout = header;
+                    batch.remove(0);
+                }
+            }
+            while (!batch.isEmpty() || !inFlight.isEmpty()) {
+                if (!batch.isEmpty()) {
+                    List<Record> records = batch;
+                    int[] columns = layout;
+                    inFlight.add(pool.submit(() -> parse(records, columns)));
+                    batch = reader.next(batchSize);
+                }
+                if (inFlight.size() >= maxInFlight || (batch.isEmpty() && !inFlight.isEmpty())) {
+                    write(inFlight.poll().join(), repository, report);
+                    if (listener != null) {
+                        listener.progress(report.getRecordsRead(), report.getImportedCount(), report.getRejectedCount());
+                    }
+                }
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+        return report;
+    }
+
+    // Column positions of name, email, age and course, or null if the record is not a header
+    private static int[] headerLayout(Record record) {
+        List<String> fields = CsvFormat.parseFields(record.text);
+        List<String> names = new ArrayList<>(fields.size());
+        for (String field : fields) {
+            names.add(field.trim().toLowerCase(Locale.ROOT));
+        }
+        if (!names.contains("email")) {
+            return null;
+        }
+        int[] layout = new int[COLUMNS.length];
+        for (int i = 0; i < COLUMNS.length; i++) {
+            layout[i] = names.indexOf(COLUMNS[i]);
+            if (layout[i] < 0) {
+                throw new IllegalArgumentException("CSV header has no " + COLUMNS[i] + " column");
+            }
+        }
+        return layout;
+    }
+
+    // Same rules as the student form in StudentManagementGUI
+    private static List<ParsedRow> parse(List<Record> records, int[] layout) {
+        int fieldsNeeded = Arrays.stream(layout).max().getAsInt() + 1;
+        List<ParsedRow> rows = new ArrayList<>(records.size());
+        for (Record record : records) {
+            List<String> fields = CsvFormat.parseFields(record.text);
+            if (fields.size() < fieldsNeeded) {
+                rows.add(new ParsedRow(record, null, "Expected " + fieldsNeeded + " fields but found " + fields.size()));
+                continue;
+            }
+            String name = fields.get(layout[0]).trim();
+            String email = fields.get(layout[1]).trim();
+            String ageText = fields.get(layout[2]).trim();
+            String course = fields.get(layout[3]).trim();
+            String error = null;
+            int age = 0;
+            if (name.isEmpty() || email.isEmpty() || ageText.isEmpty() || course.isEmpty()) {
+                error = "All fields are required";
+            } else if (!email.contains("@") || !email.contains(".")) {
+                error = "Invalid email address";
+            } else {
+                try {
+                    age = Integer.parseInt(ageText);
+                    if (age <= 0 || age > 150) {
+                        error = "Age must be between 1 and 150";
+                    }
+                } catch (NumberFormatException e) {
+                    error = "Age is not a number";
+                }
+            }
+            rows.add(error == null
+                    ? new ParsedRow(record, new Student(0, name, email, age, course), null)
+                    : new ParsedRow(record, null, error));
+        }
+        return rows;
+    }
+
+    private static void write(List<ParsedRow> rows, StudentRepository repository, ImportReport report) {
+        Map<String, ParsedRow> byEmail = new LinkedHashMap<>();
+        for (ParsedRow row : rows) {
+            if (row.student == null) {
+                report.reject(row.record.line, row.record.text, row.error);
+            } else if (byEmail.putIfAbsent(normalizeEmail(row.student.getEmail()), row) != null) {
+                report.reject(row.record.line, row.record.text, "Duplicate email in file");
+            }
+        }
+        // Emails from earlier batches are in the store by now, so this also catches repeats
+        // further apart in the file than one batch
+        for (String email : repository.getExistingEmails(byEmail.keySet())) {
+            ParsedRow row = byEmail.remove(email);
+            if (row != null) {
+                report.reject(row.record.line, row.record.text, "Student with this email already exists");
+            }
+        }
+
+        List<Student> students = new ArrayList<>(byEmail.size());
+        Map<Student, ParsedRow> byStudent = new IdentityHashMap<>();
+        for (ParsedRow row : byEmail.values()) {
+            students.add(row.student);
+            byStudent.put(row.student, row);
+        }
+        if (!students.isEmpty()) {
+            // Another writer may still take an email between the check and the insert
+            BatchResult result = repository.addStudents(students);
+            for (BatchResult.Failure failure : result.getFailures()) {
+                ParsedRow row = byStudent.get(failure.getStudent());
+                if (row != null) {
+                    report.reject(row.record.line, row.record.text, failure.getMessage());
+                }
+            }
+            report.addImported(result.getSuccessCount());
+        }
+        report.addRead(rows.size());
+    }
+
+    private static String normalizeEmail(String email) {
+        return email.trim().toLowerCase(Locale.ROOT);
+    }
+
+    private static class Record {
+        final long line;
+        final String text;
+
+        Record(long line, String text) {
+            this.line = line;
+            this.text = text;
+        }
+    }
+
+    private static class ParsedRow {
+        final Record record;
+        final Student student;
+        final String error;
+
+        ParsedRow(Record record, Student student, String error) {
+            this.record = record;
+            this.student = student;
+            this.error = error;
+        }
+    }
+
+    // Decodes UTF-8 through fixed-size buffers and splits records at line breaks outside quotes
+    private static class RecordReader {
+        private final FileChannel channel;
+        private final ByteBuffer bytes;
+        private final CharBuffer chars;
+        private final CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        private final StringBuilder record = new StringBuilder();
+        private boolean quoted;
+        private long line = 1;
+        private long recordLine = 1;
+        private boolean endOfInput;
+        private boolean finished;
+        private boolean atStart = true;
+
+        RecordReader(FileChannel channel, int bufferBytes) {
+            this.channel = channel;
+            this.bytes = ByteBuffer.allocate(bufferBytes);
+            // UTF-8 never decodes to more chars than it has bytes
+            this.chars = CharBuffer.allocate(bufferBytes);
+            this.chars.flip();
+        }
+
+        // Up to max records; an empty list once the file is exhausted. Blank lines are skipped.
+        List<Record> next(int max) throws IOException {
+            List<Record> records = new ArrayList<>();
+            while (records.size() < max && !finished) {
+                if (!chars.hasRemaining() && !fill()) {
+                    emit(records);
+                    finished = true;
+                    break;
+                }
+                char c = chars.get();
+                if (atStart) {
+                    atStart = false;
+                    if (c == '\uFEFF') {
+                        continue;
+                    }
+                }
+                if (c == '"') {
+                    quoted = !quoted;
+                } else if (c == '\n') {
+                    line++;
+                    if (!quoted) {
+                        emit(records);
+                        recordLine = line;
+                        continue;
+                    }
+                }
+                record.append(c);
+            }
+            return records;
+        }
+
+        private void emit(List<Record> records) {
+            int length = record.length();
+            if (length > 0 && record.charAt(length - 1) == '\r') {
+                record.setLength(length - 1);
+            }
+            if (record.length() > 0) {
+                records.add(new Record(recordLine, record.toString()));
+            }
+            record.setLength(0);
+            quoted = false;
+        }
+
+        private boolean fill() throws IOException {
+            chars.clear();
+            while (chars.position() == 0 && !endOfInput) {
+                endOfInput = channel.read(bytes) < 0;
+                bytes.flip();
+                decoder.decode(bytes, chars, endOfInput);
+                bytes.compact();
+                if (endOfInput) {
+                    decoder.flush(chars);
+                }
+            }
+            chars.flip();
+            return chars.hasRemaining();
+        }
+    }
+}
@@ -1,29 +1,39 @@
 import java.sql.Connection;
-import java.sql.DriverManager;
 import java.sql.SQLException;
 
 public class DatabaseConnection {
-    private static final String URL = "jdbc:mysql://localhost:3306/studentdb";
-    private static final String USERNAME = "root";
-    private static final String PASSWORD = "password";
-    
+    private static ConnectionPool pool;
+
+    // Connections come from a shared pool; closing them hands them back instead of disconnecting
     public static Connection getConnection() {
         Connection connection = null;
         try {
-            // Load MySQL JDBC Driver
-            Class.forName("com.mysql.cj.jdbc.Driver");
-            
-            // Establish connection
-            connection = DriverManager.getConnection(URL, USERNAME, PASSWORD);
-            System.out.println("Database connected successfully!");
-            
-        } catch (ClassNotFoundException e) {
-            System.err.println("MySQL JDBC Driver not found!");
-            e.printStackTrace();
+            connection = getPool().getConnection();
+
         } catch (SQLException e) {
             System.err.println("Database connection failed!");
             e.printStackTrace();
         }
         return connection;
     }
-}
\ No newline at end of file
+
+    public static synchronized ConnectionPool getPool() {
+        if (pool == null) {
+            pool = new ConnectionPool(PoolConfig.fromSystemProperties());
+        }
+        return pool;
+    }
+
+    // Replaces the shared pool, e.g. to point the DAO at an embedded H2 or Derby database
+    public static synchronized void configure(PoolConfig config) {
+        shutdown();
+        pool = new ConnectionPool(config);
+    }
+
+    public static synchronized void shutdown() {
+        if (pool != null) {
+            pool.shutdown();
+            pool = null;
+        }
+    }
+}
@@ -0,0 +1,44 @@
+import java.util.NavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+// Normalized emails in sorted order, so every email with a given prefix lies in one contiguous
+// range. The hash-based email index in InMemoryDatabase still serves exact lookups.
+public class EmailPrefixIndex {
+    private final ConcurrentSkipListMap<String, Integer> ids = new ConcurrentSkipListMap<>();
+
+    public void add(String email, int id) {
+        ids.put(StudentQuery.normalize(email), id);
+    }
+
+    public void remove(String email, int id) {
+        ids.remove(StudentQuery.normalize(email), id);
+    }
+
+    // Number of emails with the prefix, but stops counting at cap
+    public int count(String prefix, int cap) {
+        int count = 0;
+        for (String ignored : range(prefix).keySet()) {
+            if (++count >= cap) {
+                break;
+            }
+        }
+        return count;
+    }
+
+    public IdBitmap ids(String prefix) {
+        IdBitmap ids = new IdBitmap();
+        for (Integer id : range(prefix).values()) {
+            ids.add(id);
+        }
+        return ids;
+    }
+
+    public void clear() {
+        ids.clear();
+    }
+
+    private NavigableMap<String, Integer> range(String prefix) {
+        String from = StudentQuery.normalize(prefix);
+        return ids.subMap(from, true, from + Character.MAX_VALUE, false);
+    }
+}
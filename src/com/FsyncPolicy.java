@@ -0,0 +1,9 @@
+// When the write-ahead log forces its writes to disk
+public enum FsyncPolicy {
+    // Writers wait until their entry is on disk; concurrent writers share one fsync (group commit)
+    ALWAYS,
+    // Writers do not wait; the log is forced at most once per configured interval
+    INTERVAL,
+    // The log is only written to the OS, which decides when it reaches disk
+    NEVER
+}
@@ -0,0 +1,637 @@
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+
+// Compressed set of non-negative ids in the style of Roaring bitmaps. Ids are split by their
+// high 16 bits into chunks of 65536; a chunk with at most 4096 ids is a sorted char array and a
+// denser one is a 1024-word bitmap, so sparse and dense sets both stay small and AND, OR and
+// ANDNOT run a container, and within bitmaps a word, at a time. Not thread-safe: the indexes
+// that keep bitmaps lock them for writes and hand readers copies.
+public final class IdBitmap {
+    // Above this many values an array takes more room than a bitmap
+    private static final int ARRAY_MAX = 4096;
+    private static final int BITMAP_WORDS = 1024;
+
+    private char[] keys;
+    private Container[] containers;
+    private int size;
+    private int cardinality;
+
+    public IdBitmap() {
+        keys = new char[4];
+        containers = new Container[4];
+    }
+
+    private IdBitmap(int capacity) {
+        keys = new char[Math.max(capacity, 1)];
+        containers = new Container[Math.max(capacity, 1)];
+    }
+
+    public static IdBitmap of(int... ids) {
+        IdBitmap bitmap = new IdBitmap();
+        for (int id : ids) {
+            bitmap.add(id);
+        }
+        return bitmap;
+    }
+
+    // Returns false if the id was already present
+    public boolean add(int id) {
+        checkId(id);
+        char key = (char) (id >>> 16);
+        int index = indexOf(key);
+        if (index < 0) {
+            index = -index - 1;
+            insertContainerAt(index, key, new ArrayContainer());
+        }
+        Container container = containers[index];
+        int before = container.cardinality();
+        containers[index] = container.add((char) id);
+        if (containers[index].cardinality() == before) {
+            return false;
+        }
+        cardinality++;
+        return true;
+    }
+
+    // Returns false if the id was not present
+    public boolean remove(int id) {
+        if (id < 0) {
+            return false;
+        }
+        int index = indexOf((char) (id >>> 16));
+        if (index < 0) {
+            return false;
+        }
+        Container container = containers[index];
+        int before = container.cardinality();
+        Container updated = container.remove((char) id);
+        if (updated.cardinality() == before) {
+            return false;
+        }
+        cardinality--;
+        if (updated.cardinality() == 0) {
+            removeContainerAt(index);
+        } else {
+            containers[index] = updated;
+        }
+        return true;
+    }
+
+    public boolean contains(int id) {
+        if (id < 0) {
+            return false;
+        }
+        int index = indexOf((char) (id >>> 16));
+        return index >= 0 && containers[index].contains((char) id);
+    }
+
+    public int getCardinality() {
+        return cardinality;
+    }
+
+    public boolean isEmpty() {
+        return cardinality == 0;
+    }
+
+    public IdBitmap copy() {
+        IdBitmap copy = new IdBitmap(size);
+        for (int i = 0; i < size; i++) {
+            copy.keys[i] = keys[i];
+            copy.containers[i] = containers[i].copy();
+        }
+        copy.size = size;
+        copy.cardinality = cardinality;
+        return copy;
+    }
+
+    public static IdBitmap and(IdBitmap a, IdBitmap b) {
+        IdBitmap result = new IdBitmap(Math.min(a.size, b.size));
+        int i = 0;
+        int j = 0;
+        while (i < a.size && j < b.size) {
+            if (a.keys[i] < b.keys[j]) {
+                i++;
+            } else if (a.keys[i] > b.keys[j]) {
+                j++;
+            } else {
+                result.appendIfNotEmpty(a.keys[i], a.containers[i].and(b.containers[j]));
+                i++;
+                j++;
+            }
+        }
+        return result;
+    }
+
+    public static IdBitmap or(IdBitmap a, IdBitmap b) {
+        IdBitmap result = new IdBitmap(a.size + b.size);
+        int i = 0;
+        int j = 0;
+        while (i < a.size || j < b.size) {
+            if (j == b.size || (i < a.size && a.keys[i] < b.keys[j])) {
+                result.appendIfNotEmpty(a.keys[i], a.containers[i].copy());
+                i++;
+            } else if (i == a.size || a.keys[i] > b.keys[j]) {
+                result.appendIfNotEmpty(b.keys[j], b.containers[j].copy());
+                j++;
+            } else {
+                result.appendIfNotEmpty(a.keys[i], a.containers[i].or(b.containers[j]));
+                i++;
+                j++;
+            }
+        }
+        return result;
+    }
+
+    // Ids in a that are not in b
+    public static IdBitmap andNot(IdBitmap a, IdBitmap b) {
+        IdBitmap result = new IdBitmap(a.size);
+        int j = 0;
+        for (int i = 0; i < a.size; i++) {
+            while (j < b.size && b.keys[j] < a.keys[i]) {
+                j++;
+            }
+            if (j < b.size && b.keys[j] == a.keys[i]) {
+                result.appendIfNotEmpty(a.keys[i], a.containers[i].andNot(b.containers[j]));
+            } else {
+                result.appendIfNotEmpty(a.keys[i], a.containers[i].copy());
+            }
+        }
+        return result;
+    }
+
+    // Ids in ascending order
+    public PrimitiveIterator.OfInt iterator() {
+        return new PrimitiveIterator.OfInt() {
+            private int index = -1;
+            private PrimitiveIterator.OfInt values = emptyValues();
+            private int high;
+
+            @Override
+            public boolean hasNext() {
+                while (!values.hasNext()) {
+                    if (++index >= size) {
+                        return false;
+                    }
+                    high = keys[index] << 16;
+                    values = containers[index].values(false);
+                }
+                return true;
+            }
+
+            @Override
+            public int nextInt() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return high | values.nextInt();
+            }
+        };
+    }
+
+    public PrimitiveIterator.OfInt descendingIterator() {
+        return new PrimitiveIterator.OfInt() {
+            private int index = size;
+            private PrimitiveIterator.OfInt values = emptyValues();
+            private int high;
+
+            @Override
+            public boolean hasNext() {
+                while (!values.hasNext()) {
+                    if (--index < 0) {
+                        return false;
+                    }
+                    high = keys[index] << 16;
+                    values = containers[index].values(true);
+                }
+                return true;
+            }
+
+            @Override
+            public int nextInt() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return high | values.nextInt();
+            }
+        };
+    }
+
+    public int[] toArray() {
+        int[] ids = new int[cardinality];
+        int count = 0;
+        PrimitiveIterator.OfInt values = iterator();
+        while (values.hasNext()) {
+            ids[count++] = values.nextInt();
+        }
+        return ids;
+    }
+
+    // Approximate heap footprint of the containers, for statistics
+    public long getSizeInBytes() {
+        long bytes = 16L + size * 10L;
+        for (int i = 0; i < size; i++) {
+            bytes += containers[i].sizeInBytes();
+        }
+        return bytes;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (!(o instanceof IdBitmap)) {
+            return false;
+        }
+        IdBitmap other = (IdBitmap) o;
+        return cardinality == other.cardinality && Arrays.equals(toArray(), other.toArray());
+    }
+
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(toArray());
+    }
+
+    @Override
+    public String toString() {
+        return "IdBitmap: " + cardinality + " ids in " + size + " containers";
+    }
+
+    private int indexOf(char key) {
+        return Arrays.binarySearch(keys, 0, size, key);
+    }
+
+    private void insertContainerAt(int index, char key, Container container) {
+        if (size == keys.length) {
+            keys = Arrays.copyOf(keys, size * 2);
+            containers = Arrays.copyOf(containers, size * 2);
+        }
+        System.arraycopy(keys, index, keys, index + 1, size - index);
+        System.arraycopy(containers, index, containers, index + 1, size - index);
+        keys[index] = key;
+        containers[index] = container;
+        size++;
+    }
+
+    private void removeContainerAt(int index) {
+        System.arraycopy(keys, index + 1, keys, index, size - index - 1);
+        System.arraycopy(containers, index + 1, containers, index, size - index - 1);
+        containers[--size] = null;
+    }
+
+    // Keys arrive in ascending order from the set operations
+    private void appendIfNotEmpty(char key, Container container) {
+        if (container.cardinality() == 0) {
+            return;
+        }
+        if (size == keys.length) {
+            keys = Arrays.copyOf(keys, size * 2);
+            containers = Arrays.copyOf(containers, size * 2);
+        }
+        keys[size] = key;
+        containers[size] = container;
+        size++;
+        cardinality += container.cardinality();
+    }
+
+    private static void checkId(int id) {
+        if (id < 0) {
+            throw new IllegalArgumentException("Ids must not be negative: " + id);
+        }
+    }
+
+    private static PrimitiveIterator.OfInt emptyValues() {
+        return new PrimitiveIterator.OfInt() {
+            @Override
+            public boolean hasNext() {
+                return false;
+            }
+
+            @Override
+            public int nextInt() {
+                throw new NoSuchElementException();
+            }
+        };
+    }
+
+    // The low 16 bits of the ids in one chunk. Operations return a new container, or this one
+    // after changing it in place, converting between the two forms as the size demands.
+    private abstract static class Container {
+        abstract Container add(char value);
+        abstract Container remove(char value);
+        abstract boolean contains(char value);
+        abstract int cardinality();
+        abstract Container copy();
+        abstract PrimitiveIterator.OfInt values(boolean descending);
+        abstract long sizeInBytes();
+
+        Container and(Container other) {
+            if (this instanceof BitmapContainer && other instanceof BitmapContainer) {
+                return ((BitmapContainer) this).and((BitmapContainer) other);
+            }
+            // At least one side is an array, so the result is no larger than it
+            ArrayContainer array = this instanceof ArrayContainer ? (ArrayContainer) this : (ArrayContainer) other;
+            Container probe = array == this ? other : this;
+            char[] values = new char[array.size];
+            int count = 0;
+            for (int i = 0; i < array.size; i++) {
+                if (probe.contains(array.values[i])) {
+                    values[count++] = array.values[i];
+                }
+            }
+            return new ArrayContainer(values, count);
+        }
+
+        Container or(Container other) {
+            if (this instanceof ArrayContainer && other instanceof ArrayContainer) {
+                return ((ArrayContainer) this).or((ArrayContainer) other);
+            }
+            BitmapContainer result = this instanceof BitmapContainer
+                    ? (BitmapContainer) this.copy() : (BitmapContainer) ((ArrayContainer) this).toBitmap();
+            return result.orInPlace(other);
+        }
+
+        Container andNot(Container other) {
+            if (this instanceof BitmapContainer) {
+                return ((BitmapContainer) this.copy()).andNotInPlace(other);
+            }
+            ArrayContainer array = (ArrayContainer) this;
+            char[] values = new char[array.size];
+            int count = 0;
+            for (int i = 0; i < array.size; i++) {
+                if (!other.contains(array.values[i])) {
+                    values[count++] = array.values[i];
+                }
+            }
+            return new ArrayContainer(values, count);
+        }
+    }
+
+    private static final class ArrayContainer extends Container {
+        private char[] values;
+        private int size;
+
+        ArrayContainer() {
+            this(new char[4], 0);
+        }
+
+        ArrayContainer(char[] values, int size) {
+            this.values = values;
+            this.size = size;
+        }
+
+        @Override
+        Container add(char value) {
+            int index = Arrays.binarySearch(values, 0, size, value);
+            if (index >= 0) {
+                return this;
+            }
+            if (size == ARRAY_MAX) {
+                return toBitmap().add(value);
+            }
+            index = -index - 1;
+            if (size == values.length) {
+                values = Arrays.copyOf(values, Math.min(ARRAY_MAX, size * 2));
+            }
+            System.arraycopy(values, index, values, index + 1, size - index);
+            values[index] = value;
+            size++;
+            return this;
+        }
+
+        @Override
+        Container remove(char value) {
+            int index = Arrays.binarySearch(values, 0, size, value);
+            if (index >= 0) {
+                System.arraycopy(values, index + 1, values, index, size - index - 1);
+                size--;
+            }
+            return this;
+        }
+
+        @Override
+        boolean contains(char value) {
+            return Arrays.binarySearch(values, 0, size, value) >= 0;
+        }
+
+        @Override
+        int cardinality() {
+            return size;
+        }
+
+        @Override
+        Container copy() {
+            return new ArrayContainer(Arrays.copyOf(values, Math.max(size, 1)), size);
+        }
+
+        @Override
+        long sizeInBytes() {
+            return 24L + 2L * values.length;
+        }
+
+        Container toBitmap() {
+            BitmapContainer bitmap = new BitmapContainer();
+            for (int i = 0; i < size; i++) {
+                bitmap.words[values[i] >>> 6] |= 1L << values[i];
+            }
+            bitmap.cardinality = size;
+            return bitmap;
+        }
+
+        Container or(ArrayContainer other) {
+            char[] merged = new char[size + other.size];
+            int count = 0;
+            int i = 0;
+            int j = 0;
+            while (i < size || j < other.size) {
+                if (j == other.size || (i < size && values[i] < other.values[j])) {
+                    merged[count++] = values[i++];
+                } else if (i == size || values[i] > other.values[j]) {
+                    merged[count++] = other.values[j++];
+                } else {
+                    merged[count++] = values[i++];
+                    j++;
+                }
+            }
+            ArrayContainer result = new ArrayContainer(merged, count);
+            return count > ARRAY_MAX ? result.toBitmap() : result;
+        }
+
+        @Override
+        PrimitiveIterator.OfInt values(boolean descending) {
+            return new PrimitiveIterator.OfInt() {
+                private int index = descending ? size - 1 : 0;
+
+                @Override
+                public boolean hasNext() {
+                    return descending ? index >= 0 : index < size;
+                }
+
+                @Override
+                public int nextInt() {
+                    if (!hasNext()) {
+                        throw new NoSuchElementException();
+                    }
+                    return descending ? values[index--] : values[index++];
+                }
+            };
+        }
+    }
+
+    private static final class BitmapContainer extends Container {
+        private final long[] words;
+        private int cardinality;
+
+        BitmapContainer() {
+            this.words = new long[BITMAP_WORDS];
+        }
+
+        private BitmapContainer(long[] words, int cardinality) {
+            this.words = words;
+            this.cardinality = cardinality;
+        }
+
+        @Override
+        Container add(char value) {
+            long before = words[value >>> 6];
+            long after = before | (1L << value);
+            if (before != after) {
+                words[value >>> 6] = after;
+                cardinality++;
+            }
+            return this;
+        }
+
+        @Override
+        Container remove(char value) {
+            long before = words[value >>> 6];
+            long after = before & ~(1L << value);
+            if (before != after) {
+                words[value >>> 6] = after;
+                cardinality--;
+                if (cardinality <= ARRAY_MAX) {
+                    return toArray();
+                }
+            }
+            return this;
+        }
+
+        @Override
+        boolean contains(char value) {
+            return (words[value >>> 6] & (1L << value)) != 0;
+        }
+
+        @Override
+        int cardinality() {
+            return cardinality;
+        }
+
+        @Override
+        Container copy() {
+            return new BitmapContainer(words.clone(), cardinality);
+        }
+
+        @Override
+        long sizeInBytes() {
+            return 24L + 8L * BITMAP_WORDS;
+        }
+
+        Container and(BitmapContainer other) {
+            long[] result = new long[BITMAP_WORDS];
+            int count = 0;
+            for (int i = 0; i < BITMAP_WORDS; i++) {
+                result[i] = words[i] & other.words[i];
+                count += Long.bitCount(result[i]);
+            }
+            BitmapContainer bitmap = new BitmapContainer(result, count);
+            return count <= ARRAY_MAX ? bitmap.toArray() : bitmap;
+        }
+
+        Container orInPlace(Container other) {
+            if (other instanceof BitmapContainer) {
+                long[] otherWords = ((BitmapContainer) other).words;
+                int count = 0;
+                for (int i = 0; i < BITMAP_WORDS; i++) {
+                    words[i] |= otherWords[i];
+                    count += Long.bitCount(words[i]);
+                }
+                cardinality = count;
+            } else {
+                ArrayContainer array = (ArrayContainer) other;
+                for (int i = 0; i < array.size; i++) {
+                    add(array.values[i]);
+                }
+            }
+            return this;
+        }
+
+        Container andNotInPlace(Container other) {
+            if (other instanceof BitmapContainer) {
+                long[] otherWords = ((BitmapContainer) other).words;
+                int count = 0;
+                for (int i = 0; i < BITMAP_WORDS; i++) {
+                    words[i] &= ~otherWords[i];
+                    count += Long.bitCount(words[i]);
+                }
+                cardinality = count;
+            } else {
+                ArrayContainer array = (ArrayContainer) other;
+                for (int i = 0; i < array.size; i++) {
+                    char value = array.values[i];
+                    if (contains(value)) {
+                        words[value >>> 6] &= ~(1L << value);
+                        cardinality--;
+                    }
+                }
+            }
+            return cardinality <= ARRAY_MAX ? toArray() : this;
+        }
+
+        ArrayContainer toArray() {
+            char[] values = new char[cardinality];
+            int count = 0;
+            for (int i = 0; i < BITMAP_WORDS; i++) {
+                long word = words[i];
+                while (word != 0) {
+                    values[count++] = (char) ((i << 6) + Long.numberOfTrailingZeros(word));
+                    word &= word - 1;
+                }
+            }
+            return new ArrayContainer(values, count);
+        }
+
+        @Override
+        PrimitiveIterator.OfInt values(boolean descending) {
+            return new PrimitiveIterator.OfInt() {
+                private int wordIndex = descending ? BITMAP_WORDS - 1 : 0;
+                private long word = words[wordIndex];
+
+                @Override
+                public boolean hasNext() {
+                    while (word == 0) {
+                        wordIndex += descending ? -1 : 1;
+                        if (wordIndex < 0 || wordIndex >= BITMAP_WORDS) {
+                            return false;
+                        }
+                        word = words[wordIndex];
+                    }
+                    return true;
+                }
+
+                @Override
+                public int nextInt() {
+                    if (!hasNext()) {
+                        throw new NoSuchElementException();
+                    }
+                    int bit;
+                    if (descending) {
+                        bit = 63 - Long.numberOfLeadingZeros(word);
+                        word &= ~(1L << bit);
+                    } else {
+                        bit = Long.numberOfTrailingZeros(word);
+                        word &= word - 1;
+                    }
+                    return (wordIndex << 6) + bit;
+                }
+            };
+        }
+    }
+}
@@ -0,0 +1,69 @@
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+// Outcome of a CSV import: how many records were read and added, and why the others were not.
+// Only the first rejected rows are kept so a bad file cannot exhaust memory; the count is exact.
+public class ImportReport {
+    private final int maxRejectedRows;
+    private final List<RejectedRow> rejectedRows = new ArrayList<>();
+    private long recordsRead;
+    private long importedCount;
+    private long rejectedCount;
+
+    public static class RejectedRow {
+        private final long line;
+        private final String record;
+        private final String reason;
+
+        public RejectedRow(long line, String record, String reason) {
+            this.line = line;
+            this.record = record;
+            this.reason = reason;
+        }
+
+        // Line of the file the record starts on, counting from 1
+        public long getLine() { return line; }
+        public String getRecord() { return record; }
+        public String getReason() { return reason; }
+
+        @Override
+        public String toString() {
+            return "Line " + line + ": " + reason + ": " + record;
+        }
+    }
+
+    public ImportReport(int maxRejectedRows) {
+        this.maxRejectedRows = maxRejectedRows;
+    }
+
+    void addRead(long records) {
+        recordsRead += records;
+    }
+
+    void addImported(long students) {
+        importedCount += students;
+    }
+
+    void reject(long line, String record, String reason) {
+        rejectedCount++;
+        if (rejectedRows.size() < maxRejectedRows) {
+            rejectedRows.add(new RejectedRow(line, record, reason));
+        }
+    }
+
+    public long getRecordsRead() { return recordsRead; }
+    public long getImportedCount() { return importedCount; }
+    public long getRejectedCount() { return rejectedCount; }
+    public List<RejectedRow> getRejectedRows() { return Collections.unmodifiableList(rejectedRows); }
+
+    public boolean isRejectedRowsTruncated() {
+        return rejectedCount > rejectedRows.size();
+    }
+
+    @Override
+    public String toString() {
+        return "ImportReport: " + recordsRead + " read, " + importedCount + " imported, "
+                + rejectedCount + " rejected";
+    }
+}
@@ -1,24 +1,166 @@
+import java.io.IOException;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
 
-public class InMemoryDatabase {
+public class InMemoryDatabase implements StudentRepository {
     private static InMemoryDatabase instance;
     private Map<Integer, Student> students;
+    // Normalized email -> student id, kept in sync with students on every mutation
+    private Map<String, Integer> emailIndex;
+    private NameIndex nameIndex;
+    // Shared course names and codes; the course index and statistics group by code
+    private final CourseDictionary courseDictionary;
+    private CourseIndex courseIndex;
+    private StudentStatistics statistics;
+    // Orders for findStudents; ids are ordered by sorting the matches
+    private final AgeIndex ageIndex;
+    private final NameOrderIndex nameOrder;
+    // Sorted emails for prefix conditions, and the planner that picks indexes for predicates
+    private final EmailPrefixIndex emailPrefixes;
+    private final StudentQueryPlanner planner;
+    // Checks predicates and aggregates on several threads when no index can answer them
+    private final ParallelScan scan;
     private AtomicInteger idCounter;
+    // Writers lock the stripes of every id and email key they touch; readers never lock
+    private final StripedLock locks;
+    // Write-ahead log and snapshots; null when the data only lives in memory
+    private final StudentPersistence persistence;
+    // Latency per public operation and index hit/scan counts; also published over JMX
+    private final StoreMetrics metrics;
+    // Told about every change after the indexes are updated; the query cache is one of them
+    private final List<StudentChangeListener> listeners = new CopyOnWriteArrayList<>();
+    private final StudentQueryCache queryCache;
+    // Every change in order, for subscribers that apply deltas instead of rescanning
+    private final ChangeStream changes;
     
-    private InMemoryDatabase() {
-        students = new HashMap<>();
+    private InMemoryDatabase(String name, StudentPersistence persistence, boolean sampleData) {
+        students = new ConcurrentHashMap<>();
+        emailIndex = new ConcurrentHashMap<>();
+        metrics = new StoreMetrics(name);
+        scan = ParallelScan.fromSystemProperties();
+        nameIndex = new NameIndex(metrics, scan);
+        courseDictionary = new CourseDictionary();
+        courseIndex = new CourseIndex(courseDictionary);
+        statistics = new StudentStatistics(courseDictionary);
+        ageIndex = new AgeIndex();
+        nameOrder = new NameOrderIndex();
+        emailPrefixes = new EmailPrefixIndex();
+        locks = new StripedLock(64);
         idCounter = new AtomicInteger(1);
-        initializeSampleData();
+        this.persistence = persistence;
+        metrics.register();
+        planner = new StudentQueryPlanner(students, nameIndex, courseIndex, ageIndex, emailPrefixes, scan, metrics);
+        queryCache = StudentQueryCache.fromSystemProperties(metrics);
+        listeners.add(queryCache);
+        changes = ChangeStream.fromSystemProperties(metrics);
+        listeners.add(changes);
+        if (persistence != null) {
+            recover(sampleData);
+        } else if (sampleData) {
+            initializeSampleData();
+        }
     }
     
     public static synchronized InMemoryDatabase getInstance() {
         if (instance == null) {
-            instance = new InMemoryDatabase();
+            instance = new InMemoryDatabase("InMemoryDatabase", StudentPersistence.fromSystemProperties(), true);
         }
         return instance;
     }
     
+    // An empty, memory-only store separate from the shared instance, e.g. as a cache tier;
+    // the name identifies its metrics
+    public static InMemoryDatabase createEmpty(String name) {
+        return new InMemoryDatabase(name, null, false);
+    }
+    
+    private void recover(boolean sampleData) {
+        try {
+            persistence.recover(new WriteAheadLog.ReplayHandler() {
+                @Override
+                public void put(Student student) {
+                    Student existing = students.get(student.getId());
+                    if (existing == null) {
+                        indexInsert(student);
+                    } else {
+                        indexReplace(existing, student);
+                    }
+                }
+                
+                @Override
+                public void delete(int id) {
+                    Student existing = students.get(id);
+                    if (existing != null) {
+                        indexRemove(existing);
+                    }
+                }
+                
+                @Override
+                public void clear() {
+                    clearIndexes();
+                }
+            });
+            
+            int nextId = persistence.getRecoveredNextId();
+            for (Integer id : students.keySet()) {
+                nextId = Math.max(nextId, id + 1);
+            }
+            idCounter.set(nextId);
+            
+            if (sampleData && !persistence.hasHistory()) {
+                initializeSampleData();
+            }
+            persistence.scheduleSnapshots(this::checkpoint);
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                try {
+                    persistence.close();
+                } catch (IOException e) {
+                    System.err.println("Error closing write-ahead log: " + e.getMessage());
+                }
+            }));
+            
+        } catch (IOException e) {
+            System.err.println("Error recovering student data: " + e.getMessage());
+            throw new IllegalStateException("Could not recover student data", e);
+        }
+    }
+    
+    // Writes a snapshot of the whole store and drops the log segments it makes redundant
+    public void checkpoint() {
+        if (persistence == null) {
+            return;
+        }
+        long started = System.nanoTime();
+        try {
+            CompletableFuture<Long> rollover;
+            int nextId;
+            List<Student> records;
+            // Writers are held off only while the log is cut and the references are copied. The
+            // log writes and forces the segment it ended, and the snapshot file is written, after
+            // they have resumed.
+            locks.lockAll();
+            try {
+                rollover = persistence.getLog().startRollover();
+                records = new ArrayList<>(students.values());
+                nextId = idCounter.get();
+            } finally {
+                unlockAll();
+            }
+            long seq = persistence.getLog().finishRollover(rollover);
+            persistence.writeSnapshot(seq, nextId, records);
+            metrics.record("checkpoint", started);
+            
+        } catch (IOException | RuntimeException e) {
+            // Also runs on the snapshot thread, which a thrown exception would stop for good
+            metrics.recordError("checkpoint", started);
+            System.err.println("Error writing snapshot: " + e.getMessage());
+        }
+    }
+    
     private void initializeSampleData() {
         try {
             addStudent(new Student(0, "Aarav Sharma", "aarav.sharma@email.com", 20, "Computer Science"));
@@ -32,11 +174,98 @@ public class InMemoryDatabase {
     }
     
     public boolean addStudent(Student student) {
+        long started = System.nanoTime();
+        try {
+            awaitDurable(insert(student));
+            metrics.record("addStudent", started);
+            return true;
+            
+        } catch (Exception e) {
+            metrics.recordError("addStudent", started);
+            System.err.println("Error adding student: " + e.getMessage());
+            throw e;
+        }
+    }
+    
+    // Rejected students are reported in the result rather than logged one by one, and the whole
+    // batch waits for the log once instead of once per student
+    @Override
+    public BatchResult addStudents(Collection<Student> students) {
+        long started = System.nanoTime();
+        BatchResult result = new BatchResult();
+        List<CompletableFuture<Void>> pending = new ArrayList<>();
+        for (Student student : students) {
+            try {
+                CompletableFuture<Void> durable = insert(student);
+                if (durable != null) {
+                    pending.add(durable);
+                }
+                result.addSuccess(student);
+            } catch (IllegalArgumentException e) {
+                result.addFailure(student, e.getMessage());
+            }
+        }
+        for (CompletableFuture<Void> durable : pending) {
+            awaitDurable(durable);
+        }
+        metrics.record("addStudents", started);
+        metrics.add("addStudents.rejected", result.getFailureCount());
+        return result;
+    }
+    
+    // Validates, assigns the id and indexes the student; returns the pending log write, if any
+    private CompletableFuture<Void> insert(Student student) {
+        if (student == null) {
+            throw new IllegalArgumentException("Student cannot be null");
+        }
+        
+        if (student.getName() == null || student.getName().trim().isEmpty()) {
+            throw new IllegalArgumentException("Student name is required");
+        }
+        
+        if (student.getEmail() == null || student.getEmail().trim().isEmpty()) {
+            throw new IllegalArgumentException("Student email is required");
+        }
+        
+        String emailKey = normalizeEmail(student.getEmail());
+        while (true) {
+            // The id is reserved before locking so its stripe is held too: putStudent may store
+            // a student under that id in the meantime, and then another id is taken
+            int id = idCounter.getAndIncrement();
+            int[] held = locks.lock(id, emailKey);
+            try {
+                if (students.containsKey(id)) {
+                    metrics.increment("locks.retries");
+                    continue;
+                }
+                if (emailIndex.containsKey(emailKey)) {
+                    throw new IllegalArgumentException("Student with this email already exists");
+                }
+                
+                student.setId(id);
+                // Store a private copy so the indexed fields cannot change behind the index
+                Student stored = new Student(student);
+                indexInsert(stored);
+                return logPut(stored);
+            } finally {
+                unlock(held);
+            }
+        }
+    }
+    
+    // Inserts or replaces a student under the id it already has, e.g. one loaded from another
+    // store; addStudent never hands out that id afterwards
+    public boolean putStudent(Student student) {
+        long started = System.nanoTime();
         try {
             if (student == null) {
                 throw new IllegalArgumentException("Student cannot be null");
             }
             
+            if (student.getId() <= 0) {
+                throw new IllegalArgumentException("Student id must be positive");
+            }
+            
             if (student.getName() == null || student.getName().trim().isEmpty()) {
                 throw new IllegalArgumentException("Student name is required");
             }
@@ -45,47 +274,101 @@ public class InMemoryDatabase {
                 throw new IllegalArgumentException("Student email is required");
             }
             
-            for (Student existingStudent : students.values()) {
-                if (existingStudent.getEmail().equalsIgnoreCase(student.getEmail())) {
-                    throw new IllegalArgumentException("Student with this email already exists");
+            int id = student.getId();
+            String emailKey = normalizeEmail(student.getEmail());
+            CompletableFuture<Void> durable = null;
+            boolean stored = false;
+            while (!stored) {
+                Student existing = students.get(id);
+                String oldEmailKey = existing == null ? emailKey : normalizeEmail(existing.getEmail());
+                int[] held = locks.lock(id, oldEmailKey, emailKey);
+                try {
+                    if (students.get(id) != existing) {
+                        metrics.increment("locks.retries");
+                        continue;
+                    }
+                    
+                    Integer ownerId = emailIndex.get(emailKey);
+                    if (ownerId != null && ownerId != id) {
+                        throw new IllegalArgumentException("Another student with this email already exists");
+                    }
+                    
+                    Student copy = new Student(student);
+                    if (existing == null) {
+                        indexInsert(copy);
+                    } else {
+                        indexReplace(existing, copy);
+                    }
+                    idCounter.accumulateAndGet(id + 1, Math::max);
+                    durable = logPut(copy);
+                    stored = true;
+                } finally {
+                    unlock(held);
                 }
             }
-            
-            student.setId(idCounter.getAndIncrement());
-            students.put(student.getId(), student);
+            awaitDurable(durable);
+            metrics.record("putStudent", started);
             return true;
             
         } catch (Exception e) {
-            System.err.println("Error adding student: " + e.getMessage());
+            metrics.recordError("putStudent", started);
+            System.err.println("Error storing student: " + e.getMessage());
             throw e;
         }
     }
     
     public List<Student> getAllStudents() {
+        long started = System.nanoTime();
         try {
-            return new ArrayList<>(students.values());
+            List<Student> result = copies(students.values());
+            metrics.record("getAllStudents", started);
+            return result;
         } catch (Exception e) {
+            metrics.recordError("getAllStudents", started);
             System.err.println("Error retrieving students: " + e.getMessage());
             return new ArrayList<>();
         }
     }
     
+    // Ids of all students in ascending order, for views that read rows lazily
+    public int[] getStudentIds() {
+        long started = System.nanoTime();
+        int[] ids = new int[students.size()];
+        int count = 0;
+        for (Integer id : students.keySet()) {
+            if (count == ids.length) {
+                ids = Arrays.copyOf(ids, count * 2 + 1);
+            }
+            ids[count++] = id;
+        }
+        ids = Arrays.copyOf(ids, count);
+        Arrays.sort(ids);
+        metrics.record("getStudentIds", started);
+        return ids;
+    }
+    
     public Student getStudentById(int id) {
+        long started = System.nanoTime();
         try {
-            return students.get(id);
+            Student student = copyOf(students.get(id));
+            metrics.record("getStudentById", started);
+            return student;
         } catch (Exception e) {
+            metrics.recordError("getStudentById", started);
             System.err.println("Error getting student by ID: " + e.getMessage());
             return null;
         }
     }
     
     public boolean updateStudent(Student student) {
+        long started = System.nanoTime();
         try {
             if (student == null) {
                 throw new IllegalArgumentException("Student cannot be null");
             }
             
-            if (!students.containsKey(student.getId())) {
+            Student existing = students.get(student.getId());
+            if (existing == null) {
                 throw new IllegalArgumentException("Student not found with ID: " + student.getId());
             }
             
@@ -97,95 +380,224 @@ public class InMemoryDatabase {
                 throw new IllegalArgumentException("Student email is required");
             }
             
-            for (Student existingStudent : students.values()) {
-                if (existingStudent.getId() != student.getId() && 
-                    existingStudent.getEmail().equalsIgnoreCase(student.getEmail())) {
-                    throw new IllegalArgumentException("Another student with this email already exists");
+            String emailKey = normalizeEmail(student.getEmail());
+            CompletableFuture<Void> durable = null;
+            boolean updated = false;
+            while (!updated) {
+                String oldEmailKey = normalizeEmail(existing.getEmail());
+                int[] held = locks.lock(student.getId(), oldEmailKey, emailKey);
+                try {
+                    Student current = students.get(student.getId());
+                    if (current == null) {
+                        throw new IllegalArgumentException("Student not found with ID: " + student.getId());
+                    }
+                    if (current != existing) {
+                        // Changed concurrently before we got the locks; retry with the new email
+                        metrics.increment("locks.retries");
+                        existing = current;
+                        continue;
+                    }
+                    
+                    Integer ownerId = emailIndex.get(emailKey);
+                    if (ownerId != null && ownerId != student.getId()) {
+                        throw new IllegalArgumentException("Another student with this email already exists");
+                    }
+                    
+                    Student stored = new Student(student);
+                    indexReplace(existing, stored);
+                    durable = logPut(stored);
+                    updated = true;
+                } finally {
+                    unlock(held);
                 }
             }
-            
-            students.put(student.getId(), student);
+            awaitDurable(durable);
+            metrics.record("updateStudent", started);
             return true;
             
         } catch (Exception e) {
+            metrics.recordError("updateStudent", started);
             System.err.println("Error updating student: " + e.getMessage());
             throw e;
         }
     }
     
     public boolean deleteStudent(int id) {
+        long started = System.nanoTime();
         try {
-            if (!students.containsKey(id)) {
-                throw new IllegalArgumentException("Student not found with ID: " + id);
+            CompletableFuture<Void> durable = null;
+            boolean deleted = false;
+            while (!deleted) {
+                Student existing = students.get(id);
+                if (existing == null) {
+                    throw new IllegalArgumentException("Student not found with ID: " + id);
+                }
+                
+                int[] held = locks.lock(id, normalizeEmail(existing.getEmail()));
+                try {
+                    if (students.get(id) != existing) {
+                        metrics.increment("locks.retries");
+                        continue;
+                    }
+                    indexRemove(existing);
+                    durable = persistence == null ? null : persistence.getLog().logDelete(id);
+                    deleted = true;
+                } finally {
+                    unlock(held);
+                }
             }
-            
-            students.remove(id);
+            awaitDurable(durable);
+            metrics.record("deleteStudent", started);
             return true;
             
         } catch (Exception e) {
+            metrics.recordError("deleteStudent", started);
             System.err.println("Error deleting student: " + e.getMessage());
             throw e;
         }
     }
     
-    public List<Student> searchStudentsByName(String name) {
+    public Student getStudentByEmail(String email) {
+        long started = System.nanoTime();
         try {
-            List<Student> result = new ArrayList<>();
-            String searchTerm = name.toLowerCase();
-            
-            for (Student student : students.values()) {
-                if (student.getName().toLowerCase().contains(searchTerm)) {
-                    result.add(student);
-                }
+            if (email == null) {
+                return null;
             }
+            Integer id = emailIndex.get(normalizeEmail(email));
+            metrics.increment(id == null ? "emailIndex.misses" : "emailIndex.hits");
+            Student student = id == null ? null : copyOf(students.get(id));
+            metrics.record("getStudentByEmail", started);
+            return student;
+        } catch (Exception e) {
+            metrics.recordError("getStudentByEmail", started);
+            System.err.println("Error getting student by email: " + e.getMessage());
+            return null;
+        }
+    }
+    
+    public List<Student> searchStudentsByName(String name) {
+        long started = System.nanoTime();
+        try {
+            List<Student> result = copies(queryCache.searchByName(name, () -> resolve(nameIndex.search(name))));
+            metrics.record("searchStudentsByName", started);
             return result;
             
         } catch (Exception e) {
+            metrics.recordError("searchStudentsByName", started);
             System.err.println("Error searching students: " + e.getMessage());
             return new ArrayList<>();
         }
     }
     
     public List<Student> getStudentsByCourse(String course) {
+        long started = System.nanoTime();
         try {
-            List<Student> result = new ArrayList<>();
-            String searchCourse = course.toLowerCase();
-            
-            for (Student student : students.values()) {
-                if (student.getCourse().toLowerCase().contains(searchCourse)) {
-                    result.add(student);
-                }
-            }
+            List<Student> result = copies(queryCache.filterByCourse(course, () -> resolve(courseIndex.containing(course))));
+            metrics.increment(result.isEmpty() ? "courseIndex.misses" : "courseIndex.hits");
+            metrics.record("getStudentsByCourse", started);
             return result;
             
         } catch (Exception e) {
+            metrics.recordError("getStudentsByCourse", started);
             System.err.println("Error filtering students by course: " + e.getMessage());
             return new ArrayList<>();
         }
     }
     
-    public Map<String, Object> getStatistics() {
+    public List<Student> getStudentsByExactCourse(String course) {
+        long started = System.nanoTime();
         try {
-            Map<String, Object> stats = new HashMap<>();
-            List<Student> allStudents = getAllStudents();
+            List<Student> result = copies(queryCache.filterByExactCourse(course, () -> resolve(courseIndex.exact(course))));
+            metrics.increment(result.isEmpty() ? "courseIndex.misses" : "courseIndex.hits");
+            metrics.record("getStudentsByExactCourse", started);
+            return result;
             
-            stats.put("totalStudents", allStudents.size());
+        } catch (Exception e) {
+            metrics.recordError("getStudentsByExactCourse", started);
+            System.err.println("Error filtering students by course: " + e.getMessage());
+            return new ArrayList<>();
+        }
+    }
+    
+    // Served from the indexes without sorting the store: either the index matching the order is
+    // walked until the page is full, or the smallest filtered set of candidates is passed through
+    // a heap holding offset + limit students. Index counts decide which is cheaper.
+    public List<Student> findStudents(StudentQuery query) {
+        long started = System.nanoTime();
+        try {
+            List<Student> result = copies(runQuery(query));
+            metrics.record("findStudents", started);
+            return result;
             
-            Map<String, Integer> courseCount = new HashMap<>();
-            for (Student student : allStudents) {
-                courseCount.merge(student.getCourse(), 1, Integer::sum);
-            }
-            stats.put("courseDistribution", courseCount);
+        } catch (Exception e) {
+            metrics.recordError("findStudents", started);
+            System.err.println("Error querying students: " + e.getMessage());
+            return new ArrayList<>();
+        }
+    }
+    
+    // Candidates come from the most selective indexes the predicate allows; matching students
+    // are read from the result lazily, in id order
+    public QueryResult query(StudentPredicate predicate) {
+        long started = System.nanoTime();
+        try {
+            QueryResult result = planner.plan(predicate);
+            metrics.record("query", started);
+            return result;
             
-            double averageAge = allStudents.stream()
-                .mapToInt(Student::getAge)
-                .average()
-                .orElse(0.0);
-            stats.put("averageAge", averageAge);
+        } catch (Exception e) {
+            metrics.recordError("query", started);
+            System.err.println("Error querying students: " + e.getMessage());
+            return new QueryResult(() -> IntStream.empty().iterator(), id -> null, null, "failed: " + e.getMessage());
+        }
+    }
+    
+    // Statistics in the shape of getStatistics over the students the filter accepts, found by
+    // checking every student; large stores are split across the scan threads, each adding to
+    // totals of its own, and the totals are merged at the end
+    public Map<String, Object> getStatistics(StudentPredicate filter) {
+        if (filter == null) {
+            throw new IllegalArgumentException("Filter cannot be null");
+        }
+        long started = System.nanoTime();
+        try {
+            StudentStatistics totals = scan.aggregate(students.values(),
+                    () -> new StudentStatistics(courseDictionary),
+                    (partial, student) -> {
+                        if (filter.test(student)) {
+                            partial.add(student);
+                        }
+                    },
+                    StudentStatistics::merge);
+            Map<String, Object> stats = totals.snapshot();
+            metrics.record("getFilteredStatistics", started);
+            return stats;
             
+        } catch (Exception e) {
+            metrics.recordError("getFilteredStatistics", started);
+            System.err.println("Error calculating statistics: " + e.getMessage());
+            return new HashMap<>();
+        }
+    }
+    
+    public int getCourseCount(String course) {
+        return courseIndex.count(course);
+    }
+    
+    // Courses that currently have at least one student, e.g. for populating a filter
+    public List<String> getCourseNames() {
+        return courseIndex.courseNames();
+    }
+    
+    public Map<String, Object> getStatistics() {
+        long started = System.nanoTime();
+        try {
+            Map<String, Object> stats = statistics.snapshot();
+            metrics.record("getStatistics", started);
             return stats;
             
         } catch (Exception e) {
+            metrics.recordError("getStatistics", started);
             System.err.println("Error calculating statistics: " + e.getMessage());
             return new HashMap<>();
         }
@@ -193,8 +605,16 @@ public class InMemoryDatabase {
     
     public void clearAllData() {
         try {
-            students.clear();
-            idCounter.set(1);
+            CompletableFuture<Void> durable;
+            locks.lockAll();
+            try {
+                clearIndexes();
+                idCounter.set(1);
+                durable = persistence == null ? null : persistence.getLog().logClear();
+            } finally {
+                unlockAll();
+            }
+            awaitDurable(durable);
         } catch (Exception e) {
             System.err.println("Error clearing data: " + e.getMessage());
         }
@@ -203,4 +623,315 @@ public class InMemoryDatabase {
     public int getSize() {
         return students.size();
     }
+    
+    public StoreMetrics getMetrics() {
+        return metrics;
+    }
+    
+    // Hit rates and sizes of the name and course query caches
+    public Map<String, Object> getCacheStatistics() {
+        return queryCache.getStatistics();
+    }
+    
+    @Override
+    public ChangeStream getChangeStream() {
+        return changes;
+    }
+    
+    public void addChangeListener(StudentChangeListener listener) {
+        listeners.add(listener);
+    }
+    
+    public void removeChangeListener(StudentChangeListener listener) {
+        listeners.remove(listener);
+    }
+    
+    // The index helpers below are called with the stripes of the affected keys held,
+    // or single-threaded during recovery
+    private void indexInsert(Student stored) {
+        stored.setCourse(courseDictionary.canonical(stored.getCourse()));
+        students.put(stored.getId(), stored);
+        emailIndex.put(normalizeEmail(stored.getEmail()), stored.getId());
+        emailPrefixes.add(stored.getEmail(), stored.getId());
+        nameIndex.add(stored.getId(), stored.getName());
+        courseIndex.add(stored.getId(), stored.getCourse());
+        ageIndex.add(stored.getId(), stored.getAge());
+        nameOrder.add(stored.getId(), stored.getName());
+        statistics.add(stored);
+        fireChanged(null, stored);
+    }
+    
+    private void indexReplace(Student existing, Student stored) {
+        stored.setCourse(courseDictionary.canonical(stored.getCourse()));
+        emailIndex.remove(normalizeEmail(existing.getEmail()), existing.getId());
+        emailPrefixes.remove(existing.getEmail(), existing.getId());
+        students.put(stored.getId(), stored);
+        emailIndex.put(normalizeEmail(stored.getEmail()), stored.getId());
+        emailPrefixes.add(stored.getEmail(), stored.getId());
+        nameIndex.update(stored.getId(), stored.getName());
+        courseIndex.remove(stored.getId(), existing.getCourse());
+        courseIndex.add(stored.getId(), stored.getCourse());
+        if (existing.getAge() != stored.getAge()) {
+            ageIndex.remove(stored.getId(), existing.getAge());
+            ageIndex.add(stored.getId(), stored.getAge());
+        }
+        nameOrder.update(stored.getId(), existing.getName(), stored.getName());
+        statistics.replace(existing, stored);
+        fireChanged(existing, stored);
+    }
+    
+    private void indexRemove(Student existing) {
+        students.remove(existing.getId());
+        emailIndex.remove(normalizeEmail(existing.getEmail()), existing.getId());
+        emailPrefixes.remove(existing.getEmail(), existing.getId());
+        nameIndex.remove(existing.getId());
+        courseIndex.remove(existing.getId(), existing.getCourse());
+        ageIndex.remove(existing.getId(), existing.getAge());
+        nameOrder.remove(existing.getId(), existing.getName());
+        statistics.remove(existing);
+        fireChanged(existing, null);
+    }
+    
+    private void clearIndexes() {
+        students.clear();
+        emailIndex.clear();
+        emailPrefixes.clear();
+        nameIndex.clear();
+        courseIndex.clear();
+        ageIndex.clear();
+        nameOrder.clear();
+        statistics.clear();
+        for (StudentChangeListener listener : listeners) {
+            try {
+                listener.allStudentsCleared();
+            } catch (Exception e) {
+                System.err.println("Error notifying change listener: " + e.getMessage());
+            }
+        }
+    }
+    
+    // A failing listener must not leave the change half applied, so its error is only reported
+    private void fireChanged(Student before, Student after) {
+        for (StudentChangeListener listener : listeners) {
+            try {
+                listener.studentChanged(before, after);
+            } catch (Exception e) {
+                System.err.println("Error notifying change listener: " + e.getMessage());
+            }
+        }
+    }
+    
+    private CompletableFuture<Void> logPut(Student stored) {
+        return persistence == null ? null : persistence.getLog().logPut(stored);
+    }
+    
+    // Events are numbered while the stripes are held, which keeps each student's changes in
+    // order, but any wait for room in the change stream happens only once they are released
+    private void unlock(int[] held) {
+        locks.unlock(held);
+        changes.publishClaimed();
+    }
+    
+    private void unlockAll() {
+        locks.unlockAll();
+        changes.publishClaimed();
+    }
+    
+    // Called after the stripes are released so concurrent writers can share one fsync
+    private void awaitDurable(CompletableFuture<Void> durable) {
+        if (durable != null) {
+            durable.join();
+        }
+    }
+    
+    private List<Student> runQuery(StudentQuery query) {
+        int total = students.size();
+        boolean ageFiltered = query.getMinAge() != null || query.getMaxAge() != null;
+        int ageMatches = ageFiltered ? ageIndex.count(query.getLowestAge(), query.getHighestAge()) : total;
+        boolean courseFiltered = query.getCourse() != null;
+        int courseMatches = courseFiltered ? courseIndex.count(query.getCourse()) : total;
+        if (ageMatches == 0 || courseMatches == 0) {
+            return new ArrayList<>();
+        }
+        
+        // Treats age and course as independent, so a walk expects one match every
+        // total / expectedMatches entries
+        double expectedMatches = Math.max(1.0, (double) ageMatches * courseMatches / Math.max(total, 1));
+        double wanted = (double) query.getOffset() + query.getLimit();
+        double walkCost;
+        switch (query.getOrderBy()) {
+            case AGE:
+                walkCost = Math.min(ageMatches, wanted * ageMatches / expectedMatches);
+                break;
+            case NAME:
+                walkCost = Math.min(total, wanted * total / expectedMatches);
+                break;
+            default:
+                walkCost = Double.POSITIVE_INFINITY;
+        }
+        double candidateCost = Math.min(ageMatches, courseMatches);
+        
+        if (walkCost <= candidateCost) {
+            metrics.increment("query.orderedWalks");
+            return query.getOrderBy() == StudentQuery.OrderBy.AGE ? walkByAge(query) : walkByName(query);
+        }
+        metrics.increment("query.candidateSorts");
+        Iterator<Integer> candidates;
+        if (courseFiltered && ageFiltered) {
+            IdBitmap ids = courseMatches <= ageMatches
+                    ? courseIndex.ids(query.getCourse())
+                    : ageIndex.ids(query.getLowestAge(), query.getHighestAge());
+            // Only intersect with the other side when reading it is not much dearer than checking
+            if (Math.max(ageMatches, courseMatches) <= 4L * Math.min(ageMatches, courseMatches)) {
+                ids = IdBitmap.and(ids, courseMatches <= ageMatches
+                        ? ageIndex.ids(query.getLowestAge(), query.getHighestAge())
+                        : courseIndex.ids(query.getCourse()));
+            }
+            candidates = ids.iterator();
+        } else if (courseFiltered) {
+            candidates = courseIndex.ids(query.getCourse()).iterator();
+        } else if (ageFiltered) {
+            candidates = ageIndex.ids(query.getLowestAge(), query.getHighestAge()).iterator();
+        } else if (scan.isParallel(total)) {
+            return parallelTopMatches(query);
+        } else {
+            candidates = students.keySet().iterator();
+        }
+        return topMatches(query, candidates);
+    }
+    
+    private List<Student> walkByAge(StudentQuery query) {
+        List<Student> page = new ArrayList<>();
+        int skip = query.getOffset();
+        long examined = 0;
+        Iterator<Long> entries = ageIndex.entries(query.getLowestAge(), query.getHighestAge(), query.isDescending());
+        while (entries.hasNext() && page.size() < query.getLimit()) {
+            long entry = entries.next();
+            examined++;
+            Student student = students.get(AgeIndex.idOf(entry));
+            // An entry left behind by a concurrent age change no longer matches the student
+            if (student == null || student.getAge() != AgeIndex.ageOf(entry) || !query.matches(student)) {
+                continue;
+            }
+            if (skip > 0) {
+                skip--;
+            } else {
+                page.add(student);
+            }
+        }
+        metrics.add("query.examined", examined);
+        return page;
+    }
+    
+    private List<Student> walkByName(StudentQuery query) {
+        List<Student> page = new ArrayList<>();
+        int skip = query.getOffset();
+        long examined = 0;
+        Iterator<NameOrderIndex.Entry> entries = nameOrder.entries(query.isDescending());
+        while (entries.hasNext() && page.size() < query.getLimit()) {
+            NameOrderIndex.Entry entry = entries.next();
+            examined++;
+            Student student = students.get(entry.getId());
+            if (student == null || !StudentQuery.normalize(student.getName()).equals(entry.getKey())
+                    || !query.matches(student)) {
+                continue;
+            }
+            if (skip > 0) {
+                skip--;
+            } else {
+                page.add(student);
+            }
+        }
+        metrics.add("query.examined", examined);
+        return page;
+    }
+    
+    // Keeps the best offset + limit matches in a heap whose head is the worst of them
+    private List<Student> topMatches(StudentQuery query, Iterator<Integer> candidates) {
+        Comparator<Student> order = query.comparator();
+        long wanted = (long) query.getOffset() + query.getLimit();
+        PriorityQueue<Student> best = new PriorityQueue<>(order.reversed());
+        long examined = 0;
+        while (candidates.hasNext()) {
+            Student student = students.get(candidates.next());
+            examined++;
+            if (student == null || !query.matches(student)) {
+                continue;
+            }
+            offer(best, student, wanted, order);
+        }
+        metrics.add("query.examined", examined);
+        return page(query, best);
+    }
+    
+    // Each scan segment keeps its own heap of the best offset + limit matches; the heaps are
+    // merged as the segments finish
+    private List<Student> parallelTopMatches(StudentQuery query) {
+        Comparator<Student> order = query.comparator();
+        long wanted = (long) query.getOffset() + query.getLimit();
+        PriorityQueue<Student> best = scan.aggregate(students.values(),
+                () -> new PriorityQueue<>(order.reversed()),
+                (heap, student) -> {
+                    if (query.matches(student)) {
+                        offer(heap, student, wanted, order);
+                    }
+                },
+                (left, right) -> {
+                    for (Student student : right) {
+                        offer(left, student, wanted, order);
+                    }
+                    return left;
+                });
+        metrics.increment("query.parallelScans");
+        metrics.add("query.examined", students.size());
+        return page(query, best);
+    }
+    
+    // The heap's head is the worst student it holds, so it is the one a better student replaces
+    private static void offer(PriorityQueue<Student> best, Student student, long wanted, Comparator<Student> order) {
+        if (best.size() < wanted) {
+            best.add(student);
+        } else if (order.compare(student, best.peek()) < 0) {
+            best.poll();
+            best.add(student);
+        }
+    }
+    
+    private static List<Student> page(StudentQuery query, PriorityQueue<Student> best) {
+        List<Student> sorted = new ArrayList<>(best);
+        sorted.sort(query.comparator());
+        return sorted.size() <= query.getOffset()
+                ? new ArrayList<>()
+                : new ArrayList<>(sorted.subList(query.getOffset(), sorted.size()));
+    }
+    
+    // Ids removed between the index lookup and this call are skipped
+    private List<Student> resolve(List<Integer> ids) {
+        List<Student> result = new ArrayList<>(ids.size());
+        for (Integer id : ids) {
+            Student student = students.get(id);
+            if (student != null) {
+                result.add(student);
+            }
+        }
+        return result;
+    }
+    
+    // Callers get copies of the stored students: the indexes are keyed by the stored fields, so a
+    // caller changing a student it read and then updating it must not change them first
+    private static Student copyOf(Student student) {
+        return student == null ? null : new Student(student);
+    }
+    
+    private static List<Student> copies(Collection<Student> stored) {
+        List<Student> result = new ArrayList<>(stored.size());
+        for (Student student : stored) {
+            result.add(new Student(student));
+        }
+        return result;
+    }
+    
+    private static String normalizeEmail(String email) {
+        return email.trim().toLowerCase(Locale.ROOT);
+    }
 }
\ No newline at end of file
@@ -0,0 +1,146 @@
+import java.util.Arrays;
+
+// Open-addressing int -> int map with linear probing and backward-shift deletion.
+// Keys and values live in two primitive arrays, so nothing is boxed.
+public class IntIntHashMap {
+    public static final int MISSING = -1;
+
+    private static final int FREE = 0;
+
+    private int[] keys;
+    private int[] values;
+    private int mask;
+    private int size;
+    // Key 0 marks a free slot, so a mapping for 0 is kept aside
+    private boolean hasZeroKey;
+    private int zeroValue;
+
+    public IntIntHashMap() {
+        this(16);
+    }
+
+    public IntIntHashMap(int expectedSize) {
+        int capacity = 16;
+        while (capacity < expectedSize * 2) {
+            capacity <<= 1;
+        }
+        keys = new int[capacity];
+        values = new int[capacity];
+        mask = capacity - 1;
+    }
+
+    // Returns MISSING when the key is absent
+    public int get(int key) {
+        if (key == FREE) {
+            return hasZeroKey ? zeroValue : MISSING;
+        }
+        for (int slot = slotFor(key); keys[slot] != FREE; slot = (slot + 1) & mask) {
+            if (keys[slot] == key) {
+                return values[slot];
+            }
+        }
+        return MISSING;
+    }
+
+    public boolean containsKey(int key) {
+        return key == FREE ? hasZeroKey : findSlot(key) >= 0;
+    }
+
+    public void put(int key, int value) {
+        if (key == FREE) {
+            if (!hasZeroKey) {
+                size++;
+            }
+            hasZeroKey = true;
+            zeroValue = value;
+            return;
+        }
+        int slot = slotFor(key);
+        while (keys[slot] != FREE) {
+            if (keys[slot] == key) {
+                values[slot] = value;
+                return;
+            }
+            slot = (slot + 1) & mask;
+        }
+        keys[slot] = key;
+        values[slot] = value;
+        size++;
+        if (size * 2 > keys.length) {
+            rehash(keys.length << 1);
+        }
+    }
+
+    public int remove(int key) {
+        if (key == FREE) {
+            if (!hasZeroKey) {
+                return MISSING;
+            }
+            hasZeroKey = false;
+            size--;
+            return zeroValue;
+        }
+        int slot = findSlot(key);
+        if (slot < 0) {
+            return MISSING;
+        }
+        int removed = values[slot];
+        size--;
+        // Shift later entries of the probe chain back so lookups never need tombstones
+        int hole = slot;
+        int next = (hole + 1) & mask;
+        while (keys[next] != FREE) {
+            int ideal = slotFor(keys[next]);
+            if (((next - ideal) & mask) >= ((next - hole) & mask)) {
+                keys[hole] = keys[next];
+                values[hole] = values[next];
+                hole = next;
+            }
+            next = (next + 1) & mask;
+        }
+        keys[hole] = FREE;
+        return removed;
+    }
+
+    public void clear() {
+        Arrays.fill(keys, FREE);
+        hasZeroKey = false;
+        size = 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    private int findSlot(int key) {
+        for (int slot = slotFor(key); keys[slot] != FREE; slot = (slot + 1) & mask) {
+            if (keys[slot] == key) {
+                return slot;
+            }
+        }
+        return -1;
+    }
+
+    private int slotFor(int key) {
+        int h = key * 0x9E3779B9;
+        return (h ^ (h >>> 16)) & mask;
+    }
+
+    private void rehash(int capacity) {
+        int[] oldKeys = keys;
+        int[] oldValues = values;
+        keys = new int[capacity];
+        values = new int[capacity];
+        mask = capacity - 1;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != FREE) {
+                int slot = slotFor(oldKeys[i]);
+                while (keys[slot] != FREE) {
+                    slot = (slot + 1) & mask;
+                }
+                keys[slot] = oldKeys[i];
+                values[slot] = oldValues[i];
+            }
+        }
+    }
+}
@@ -0,0 +1,166 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+// StudentRepository over StudentDAO. The DAO reports problems as false or null after logging
+// them; this adapter turns those into the exceptions InMemoryDatabase throws, checking the
+// database again to tell an unknown id apart from a failed statement.
+public class JdbcStudentRepository implements StudentRepository {
+    private final StudentDAO dao;
+
+    public JdbcStudentRepository(StudentDAO dao) {
+        this.dao = dao;
+    }
+
+    public StudentDAO getDao() {
+        return dao;
+    }
+
+    // Written through even when the DAO buffers writes, so the student comes back with its id
+    public boolean addStudent(Student student) {
+        validate(student);
+        if (dao.getStudentByEmail(student.getEmail()) != null) {
+            throw new IllegalArgumentException("Student with this email already exists");
+        }
+        BatchResult result = dao.addStudents(List.of(student));
+        if (result.hasFailures()) {
+            throw new IllegalStateException("Could not add student " + student.getEmail() + ": "
+                    + result.getFailures().get(0).getMessage());
+        }
+        return true;
+    }
+
+    public boolean updateStudent(Student student) {
+        validate(student);
+        Student owner = dao.getStudentByEmail(student.getEmail());
+        if (owner != null && owner.getId() != student.getId()) {
+            throw new IllegalArgumentException("Another student with this email already exists");
+        }
+        if (!dao.updateStudent(student)) {
+            if (dao.getStudentById(student.getId()) == null) {
+                throw new IllegalArgumentException("Student not found with ID: " + student.getId());
+            }
+            throw new IllegalStateException("Could not update student with ID: " + student.getId());
+        }
+        return true;
+    }
+
+    public boolean deleteStudent(int id) {
+        if (!dao.deleteStudent(id)) {
+            if (dao.getStudentById(id) == null) {
+                throw new IllegalArgumentException("Student not found with ID: " + id);
+            }
+            throw new IllegalStateException("Could not delete student with ID: " + id);
+        }
+        return true;
+    }
+
+    public Student getStudentById(int id) {
+        return dao.getStudentById(id);
+    }
+
+    public Student getStudentByEmail(String email) {
+        return email == null ? null : dao.getStudentByEmail(email);
+    }
+
+    public List<Student> getAllStudents() {
+        return dao.getAllStudents();
+    }
+
+    public int[] getStudentIds() {
+        return dao.getStudentIds();
+    }
+
+    // One IN query per DAO batch instead of a query per id
+    @Override
+    public List<Student> getStudentsById(int[] ids) {
+        return dao.getStudentsById(ids);
+    }
+
+    public List<Student> searchStudentsByName(String name) {
+        return dao.searchStudentsByName(name);
+    }
+
+    public List<Student> getStudentsByCourse(String course) {
+        return dao.getStudentsByCourse(course);
+    }
+
+    public List<Student> getStudentsByExactCourse(String course) {
+        return dao.getStudentsByExactCourse(course);
+    }
+
+    @Override
+    public List<Student> findStudents(StudentQuery query) {
+        return dao.findStudents(query);
+    }
+
+    // The database evaluates the whole predicate; rows are fetched a batch at a time as the
+    // result is read
+    @Override
+    public QueryResult query(StudentPredicate predicate) {
+        int[] ids = dao.findStudentIds(predicate);
+        return new QueryResult(() -> Arrays.stream(ids).iterator(), dao::getStudentsById, dao.getBatchSize(),
+                null, "database query for " + predicate);
+    }
+
+    public List<String> getCourseNames() {
+        return dao.getCourseNames();
+    }
+
+    public Map<String, Object> getStatistics() {
+        return dao.getStatistics();
+    }
+
+    public int getSize() {
+        return dao.countStudents();
+    }
+
+    // Sent to the database in batches; duplicate emails are rejected there by the unique key
+    @Override
+    public BatchResult addStudents(Collection<Student> students) {
+        BatchResult invalid = new BatchResult();
+        List<Student> valid = new ArrayList<>(students.size());
+        for (Student student : students) {
+            try {
+                validate(student);
+                valid.add(student);
+            } catch (IllegalArgumentException e) {
+                invalid.addFailure(student, e.getMessage());
+            }
+        }
+        BatchResult result = dao.addStudents(valid);
+        for (BatchResult.Failure failure : invalid.getFailures()) {
+            result.addFailure(failure.getStudent(), failure.getMessage());
+        }
+        return result;
+    }
+
+    @Override
+    public Set<String> getExistingEmails(Collection<String> emails) {
+        return dao.getExistingEmails(emails);
+    }
+
+    @Override
+    public void forEachStudent(Consumer<Student> action) {
+        try (Stream<Student> students = dao.streamAllStudents()) {
+            students.forEach(action);
+        }
+    }
+
+    private static void validate(Student student) {
+        if (student == null) {
+            throw new IllegalArgumentException("Student cannot be null");
+        }
+        if (student.getName() == null || student.getName().trim().isEmpty()) {
+            throw new IllegalArgumentException("Student name is required");
+        }
+        if (student.getEmail() == null || student.getEmail().trim().isEmpty()) {
+            throw new IllegalArgumentException("Student email is required");
+        }
+    }
+}
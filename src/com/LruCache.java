@@ -0,0 +1,129 @@
+import java.util.*;
+import java.util.function.Predicate;
+
+// Bounded least-recently-used cache whose entries also expire after a fixed time to live.
+// Every invalidation bumps a version number; putIfVersion only stores a value computed before
+// an invalidation if none happened since, so a slow reader cannot re-insert a stale result.
+public class LruCache<K, V> {
+    private final int maxEntries;
+    private final long ttlNanos;
+    private final LinkedHashMap<K, Entry<V>> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long version;
+    private long hits;
+    private long misses;
+    private long evictions;
+    private long expirations;
+    private long invalidations;
+
+    private static class Entry<V> {
+        final V value;
+        final long expiresAt;
+
+        Entry(V value, long expiresAt) {
+            this.value = value;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    public LruCache(int maxEntries, long ttlMillis) {
+        if (maxEntries < 0) {
+            throw new IllegalArgumentException("Cache size cannot be negative");
+        }
+        if (ttlMillis <= 0) {
+            throw new IllegalArgumentException("Time to live must be positive");
+        }
+        this.maxEntries = maxEntries;
+        this.ttlNanos = ttlMillis * 1_000_000L;
+    }
+
+    // Returns null when the key is absent or its entry has expired
+    public synchronized V get(K key) {
+        Entry<V> entry = entries.get(key);
+        if (entry == null) {
+            misses++;
+            return null;
+        }
+        if (System.nanoTime() - entry.expiresAt >= 0) {
+            entries.remove(key);
+            expirations++;
+            misses++;
+            return null;
+        }
+        hits++;
+        return entry.value;
+    }
+
+    public synchronized long getVersion() {
+        return version;
+    }
+
+    public synchronized void put(K key, V value) {
+        putIfVersion(key, value, version);
+    }
+
+    // Stores the value only if nothing was invalidated since expectedVersion was read
+    public synchronized boolean putIfVersion(K key, V value, long expectedVersion) {
+        if (expectedVersion != version || maxEntries == 0) {
+            return false;
+        }
+        entries.put(key, new Entry<>(value, System.nanoTime() + ttlNanos));
+        if (entries.size() > maxEntries) {
+            Iterator<K> eldest = entries.keySet().iterator();
+            eldest.next();
+            eldest.remove();
+            evictions++;
+        }
+        return true;
+    }
+
+    public synchronized boolean invalidate(K key) {
+        version++;
+        boolean removed = entries.remove(key) != null;
+        if (removed) {
+            invalidations++;
+        }
+        return removed;
+    }
+
+    // Removes the entries whose key matches; returns how many were removed
+    public synchronized int invalidateIf(Predicate<K> predicate) {
+        version++;
+        int removed = 0;
+        for (Iterator<K> keys = entries.keySet().iterator(); keys.hasNext(); ) {
+            if (predicate.test(keys.next())) {
+                keys.remove();
+                removed++;
+            }
+        }
+        invalidations += removed;
+        return removed;
+    }
+
+    public synchronized void clear() {
+        version++;
+        invalidations += entries.size();
+        entries.clear();
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public synchronized double getHitRate() {
+        long lookups = hits + misses;
+        return lookups == 0 ? 0.0 : (double) hits / lookups;
+    }
+
+    public synchronized Map<String, Object> getStatistics() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("size", entries.size());
+        stats.put("maxEntries", maxEntries);
+        stats.put("hits", hits);
+        stats.put("misses", misses);
+        stats.put("hitRate", getHitRate());
+        stats.put("evictions", evictions);
+        stats.put("expirations", expirations);
+        stats.put("invalidations", invalidations);
+        return stats;
+    }
+}
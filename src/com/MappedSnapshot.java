@@ -0,0 +1,178 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Collection;
+import java.util.zip.CRC32;
+
+// Snapshot file read through a memory mapping. Records stay as bytes in the mapping and are
+// decoded one at a time on request, so opening even a large snapshot allocates almost nothing.
+// Files are written through the channel rather than a writable mapping: a mapping is only
+// released when its buffer is garbage collected, and until then Windows refuses to rename or
+// delete the file underneath it.
+//
+// File layout (big-endian):
+//   header   int magic, int version, long seq, int nextId, int count,
+//            long indexOffset, int recordsCrc32, int reserved
+//   records  count records in StudentRecordCodec format
+//   index    count ints: file offset of each record
+public class MappedSnapshot {
+    public static final int MAGIC = 0x53545544; // "STUD"
+    public static final int VERSION = 3;
+    public static final int HEADER_SIZE = 40;
+    private static final int WRITE_BUFFER_SIZE = 64 * 1024;
+
+    private final ByteBuffer buffer;
+    private final long seq;
+    private final int nextId;
+    private final int count;
+    private final int indexOffset;
+    private final int recordsCrc;
+
+    private MappedSnapshot(ByteBuffer buffer) throws IOException {
+        this.buffer = buffer;
+        if (buffer.capacity() < HEADER_SIZE || buffer.getInt(0) != MAGIC) {
+            throw new IOException("Not a student snapshot");
+        }
+        int version = buffer.getInt(4);
+        if (version != VERSION) {
+            throw new IOException("Unsupported snapshot version " + version);
+        }
+        seq = buffer.getLong(8);
+        nextId = buffer.getInt(16);
+        count = buffer.getInt(20);
+        long index = buffer.getLong(24);
+        recordsCrc = buffer.getInt(32);
+        if (count < 0 || index < HEADER_SIZE || index + 4L * count != buffer.capacity()) {
+            throw new IOException("Snapshot is truncated or corrupt");
+        }
+        indexOffset = (int) index;
+    }
+
+    public static MappedSnapshot open(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("Snapshot larger than 2 GB: " + size + " bytes");
+            }
+            // The mapping stays valid after the channel is closed
+            return new MappedSnapshot(channel.map(FileChannel.MapMode.READ_ONLY, 0, size));
+        }
+    }
+
+    // Reads the whole file onto the heap instead of mapping it, for callers that decode every
+    // record anyway and must not keep the file mapped afterwards
+    public static MappedSnapshot read(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("Snapshot larger than 2 GB: " + size + " bytes");
+            }
+            ByteBuffer buffer = ByteBuffer.allocate((int) size);
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer) < 0) {
+                    throw new IOException("Snapshot is truncated or corrupt");
+                }
+            }
+            return new MappedSnapshot(buffer.flip());
+        }
+    }
+
+    public static void write(Path path, long seq, int nextId, Collection<Student> students) throws IOException {
+        long recordsSize = 0;
+        for (Student student : students) {
+            recordsSize += StudentRecordCodec.encodedSize(student);
+        }
+        int count = students.size();
+        long index = HEADER_SIZE + recordsSize;
+        long total = index + 4L * count;
+        if (total > Integer.MAX_VALUE) {
+            throw new IOException("Snapshot would exceed 2 GB: " + total + " bytes");
+        }
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            // Records are staged in a small buffer and written behind the header, which goes in
+            // last once the checksum is known
+            ByteBuffer buffer = ByteBuffer.allocateDirect(WRITE_BUFFER_SIZE);
+            CRC32 crc = new CRC32();
+            int[] offsets = new int[count];
+            int offset = HEADER_SIZE;
+            int i = 0;
+            channel.position(HEADER_SIZE);
+            for (Student student : students) {
+                int size = StudentRecordCodec.encodedSize(student);
+                if (size > buffer.remaining()) {
+                    drain(channel, buffer, crc);
+                }
+                offsets[i++] = offset;
+                offset += size;
+                if (size > buffer.capacity()) {
+                    ByteBuffer record = ByteBuffer.allocate(size);
+                    StudentRecordCodec.encode(record, student);
+                    drain(channel, record, crc);
+                } else {
+                    StudentRecordCodec.encode(buffer, student);
+                }
+            }
+            drain(channel, buffer, crc);
+            for (int recordOffset : offsets) {
+                if (buffer.remaining() < 4) {
+                    drain(channel, buffer, null);
+                }
+                buffer.putInt(recordOffset);
+            }
+            drain(channel, buffer, null);
+
+            buffer.putInt(MAGIC);
+            buffer.putInt(VERSION);
+            buffer.putLong(seq);
+            buffer.putInt(nextId);
+            buffer.putInt(count);
+            buffer.putLong(index);
+            buffer.putInt((int) crc.getValue());
+            buffer.putInt(0);
+            buffer.flip();
+            for (long position = 0; buffer.hasRemaining(); ) {
+                position += channel.write(buffer, position);
+            }
+            channel.force(true);
+        }
+    }
+
+    // Writes what has been put into the buffer at the channel's position and clears it
+    private static void drain(FileChannel channel, ByteBuffer buffer, CRC32 crc) throws IOException {
+        buffer.flip();
+        if (crc != null) {
+            crc.update(buffer.duplicate());
+        }
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    public long getSeq() { return seq; }
+    public int getNextId() { return nextId; }
+    public int size() { return count; }
+
+    public Student get(int index) {
+        return StudentRecordCodec.decode(buffer, offsetOf(index));
+    }
+
+    public void verify() throws IOException {
+        CRC32 crc = new CRC32();
+        crc.update(buffer.slice(HEADER_SIZE, indexOffset - HEADER_SIZE));
+        if ((int) crc.getValue() != recordsCrc) {
+            throw new IOException("Snapshot checksum mismatch");
+        }
+    }
+
+    private int offsetOf(int index) {
+        if (index < 0 || index >= count) {
+            throw new IndexOutOfBoundsException("Record " + index + " of " + count);
+        }
+        return buffer.getInt(indexOffset + 4 * index);
+    }
+}
@@ -0,0 +1,163 @@
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Trigram inverted index over lowercased student names for substring search. Each gram's
+// posting is a bitmap of ids, so a term's candidates are the AND of its grams' postings.
+public class NameIndex {
+    private static final int GRAM_LENGTH = 3;
+
+    private final Map<String, IdBitmap> postings = new ConcurrentHashMap<>();
+    private final Map<Integer, String> normalizedNames = new ConcurrentHashMap<>();
+    // Counts which search path ran and how many candidates it had to verify
+    private final StoreMetrics metrics;
+    // Terms too short for the grams are checked against every name with this
+    private final ParallelScan scan;
+
+    public NameIndex(StoreMetrics metrics, ParallelScan scan) {
+        this.metrics = metrics;
+        this.scan = scan;
+    }
+
+    public void add(int id, String name) {
+        String normalized = normalize(name);
+        normalizedNames.put(id, normalized);
+        for (String gram : grams(normalized)) {
+            postings.compute(gram, (key, ids) -> {
+                if (ids == null) {
+                    ids = new IdBitmap();
+                }
+                synchronized (ids) {
+                    ids.add(id);
+                }
+                return ids;
+            });
+        }
+    }
+
+    public void remove(int id) {
+        String normalized = normalizedNames.remove(id);
+        if (normalized == null) {
+            return;
+        }
+        for (String gram : grams(normalized)) {
+            postings.computeIfPresent(gram, (key, ids) -> {
+                synchronized (ids) {
+                    ids.remove(id);
+                    return ids.isEmpty() ? null : ids;
+                }
+            });
+        }
+    }
+
+    public void update(int id, String name) {
+        String current = normalizedNames.get(id);
+        if (current != null && current.equals(normalize(name))) {
+            return;
+        }
+        remove(id);
+        add(id, name);
+    }
+
+    // Returns the ids, in ascending order, whose name contains the given term
+    public List<Integer> search(String term) {
+        String needle = normalize(term);
+        List<Integer> result = new ArrayList<>();
+
+        if (needle.length() < GRAM_LENGTH) {
+            // Too short to use the grams; the cached lowercase names still avoid per-call allocation
+            metrics.increment("nameIndex.scans");
+            metrics.add("nameIndex.candidates", normalizedNames.size());
+            IdBitmap matches = scan.ids(normalizedNames.entrySet(), entry -> entry.getValue().contains(needle),
+                    Map.Entry::getKey);
+            PrimitiveIterator.OfInt ids = matches.iterator();
+            while (ids.hasNext()) {
+                result.add(ids.nextInt());
+            }
+        } else {
+            IdBitmap candidates = candidates(needle);
+            // Grams only narrow the candidates; the contains check confirms gram order and adjacency
+            PrimitiveIterator.OfInt ids = candidates.iterator();
+            while (ids.hasNext()) {
+                int id = ids.nextInt();
+                String candidate = normalizedNames.get(id);
+                if (candidate != null && candidate.contains(needle)) {
+                    result.add(id);
+                }
+            }
+        }
+        return result;
+    }
+
+    // Size of the smallest gram posting for the term, which bounds its matches; -1 when the term
+    // is too short to use the grams
+    public int estimate(String term) {
+        String needle = normalize(term);
+        if (needle.length() < GRAM_LENGTH) {
+            return -1;
+        }
+        int smallest = Integer.MAX_VALUE;
+        for (String gram : grams(needle)) {
+            IdBitmap ids = postings.get(gram);
+            smallest = Math.min(smallest, ids == null ? 0 : cardinality(ids));
+        }
+        return smallest;
+    }
+
+    // Ids that have every gram of the term, intersected smallest posting first; callers still
+    // check the name contains it. The term must be long enough for estimate to return a count.
+    public IdBitmap candidates(String term) {
+        List<IdBitmap> bitmaps = new ArrayList<>();
+        for (String gram : grams(normalize(term))) {
+            IdBitmap ids = postings.get(gram);
+            if (ids == null) {
+                metrics.increment("nameIndex.misses");
+                return new IdBitmap();
+            }
+            bitmaps.add(ids);
+        }
+        bitmaps.sort(Comparator.comparingInt(NameIndex::cardinality));
+        IdBitmap result = copyOf(bitmaps.get(0));
+        for (int i = 1; i < bitmaps.size() && !result.isEmpty(); i++) {
+            IdBitmap ids = bitmaps.get(i);
+            synchronized (ids) {
+                result = IdBitmap.and(result, ids);
+            }
+        }
+        metrics.increment("nameIndex.lookups");
+        metrics.add("nameIndex.candidates", result.getCardinality());
+        return result;
+    }
+
+    public void clear() {
+        postings.clear();
+        normalizedNames.clear();
+    }
+
+    public int getGramCount() {
+        return postings.size();
+    }
+
+    private static int cardinality(IdBitmap ids) {
+        synchronized (ids) {
+            return ids.getCardinality();
+        }
+    }
+
+    private static IdBitmap copyOf(IdBitmap ids) {
+        synchronized (ids) {
+            return ids.copy();
+        }
+    }
+
+    private static Set<String> grams(String normalized) {
+        Set<String> grams = new HashSet<>();
+        for (int i = 0; i + GRAM_LENGTH <= normalized.length(); i++) {
+            grams.add(normalized.substring(i, i + GRAM_LENGTH));
+        }
+        return grams;
+    }
+
+    private static String normalize(String name) {
+        return name.toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,64 @@
+import java.util.*;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+// Students ordered by normalized name, then id, for name-ordered pages. NameIndex answers
+// substring searches; this index only keeps the order.
+public class NameOrderIndex {
+    private final ConcurrentSkipListSet<Entry> entries = new ConcurrentSkipListSet<>();
+
+    // One student's place in the order; the key is StudentQuery.normalize of the name
+    public static final class Entry implements Comparable<Entry> {
+        private final String key;
+        private final int id;
+
+        Entry(String key, int id) {
+            this.key = key;
+            this.id = id;
+        }
+
+        public String getKey() { return key; }
+        public int getId() { return id; }
+
+        @Override
+        public int compareTo(Entry other) {
+            int byKey = key.compareTo(other.key);
+            return byKey != 0 ? byKey : Integer.compare(id, other.id);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Entry && ((Entry) o).id == id && ((Entry) o).key.equals(key);
+        }
+
+        @Override
+        public int hashCode() {
+            return key.hashCode() * 31 + id;
+        }
+    }
+
+    public void add(int id, String name) {
+        entries.add(new Entry(StudentQuery.normalize(name), id));
+    }
+
+    public void remove(int id, String name) {
+        entries.remove(new Entry(StudentQuery.normalize(name), id));
+    }
+
+    public void update(int id, String before, String after) {
+        String oldKey = StudentQuery.normalize(before);
+        String newKey = StudentQuery.normalize(after);
+        if (!oldKey.equals(newKey)) {
+            entries.add(new Entry(newKey, id));
+            entries.remove(new Entry(oldKey, id));
+        }
+    }
+
+    // Weakly consistent: a student renamed during the walk may be seen under either name
+    public Iterator<Entry> entries(boolean descending) {
+        return descending ? entries.descendingIterator() : entries.iterator();
+    }
+
+    public void clear() {
+        entries.clear();
+    }
+}
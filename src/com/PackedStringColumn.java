@@ -0,0 +1,147 @@
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Locale;
+
+// One string per row stored as UTF-8 in a single shared byte array. Overwritten values leave
+// garbage behind, which is reclaimed once it outweighs the live bytes.
+public class PackedStringColumn {
+    private static final int NULL_LENGTH = -1;
+
+    private byte[] bytes = new byte[1024];
+    private int used;
+    private int garbage;
+    private int[] offsets;
+    private int[] lengths;
+
+    public PackedStringColumn(int capacity) {
+        offsets = new int[capacity];
+        lengths = new int[capacity];
+    }
+
+    public void ensureCapacity(int rows) {
+        if (rows > offsets.length) {
+            int capacity = Math.max(rows, offsets.length * 2);
+            offsets = Arrays.copyOf(offsets, capacity);
+            lengths = Arrays.copyOf(lengths, capacity);
+        }
+    }
+
+    // Stores the value for a row; the caller tracks how many rows are live
+    public void set(int row, String value, int liveRows) {
+        release(row);
+        if (value == null) {
+            offsets[row] = 0;
+            lengths[row] = NULL_LENGTH;
+            return;
+        }
+        byte[] encoded = value.getBytes(StandardCharsets.UTF_8);
+        if (used + encoded.length > bytes.length) {
+            if (garbage > used / 2) {
+                compact(liveRows);
+            }
+            if (used + encoded.length > bytes.length) {
+                bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, used + encoded.length));
+            }
+        }
+        System.arraycopy(encoded, 0, bytes, used, encoded.length);
+        offsets[row] = used;
+        lengths[row] = encoded.length;
+        used += encoded.length;
+    }
+
+    public String get(int row) {
+        int length = lengths[row];
+        return length == NULL_LENGTH ? null : new String(bytes, offsets[row], length, StandardCharsets.UTF_8);
+    }
+
+    // Moves the value of one row to another without copying bytes, e.g. when rows are swap-removed
+    public void move(int from, int to) {
+        if (lengths[to] > 0) {
+            garbage += lengths[to];
+        }
+        offsets[to] = offsets[from];
+        lengths[to] = lengths[from];
+        lengths[from] = 0;
+    }
+
+    public void release(int row) {
+        if (lengths[row] > 0) {
+            garbage += lengths[row];
+        }
+        lengths[row] = 0;
+    }
+
+    // Case-insensitive like String.toLowerCase(Locale.ROOT), as the other stores search names;
+    // the needle must already be lowercased that way and encoded as UTF-8. ASCII letters are
+    // folded in place. Other letters change their bytes, and sometimes their length, when
+    // lowercased, so a row holding any that did not match is decoded and compared as a string.
+    public boolean containsLowercase(int row, byte[] needle) {
+        int length = lengths[row];
+        if (length == NULL_LENGTH) {
+            return false;
+        }
+        int start = offsets[row];
+        if (length >= needle.length && containsAsciiFolded(start, length, needle)) {
+            return true;
+        }
+        return !isAscii(start, length)
+                && get(row).toLowerCase(Locale.ROOT).contains(new String(needle, StandardCharsets.UTF_8));
+    }
+
+    private boolean containsAsciiFolded(int start, int length, byte[] needle) {
+        int last = start + length - needle.length;
+        outer:
+        for (int i = start; i <= last; i++) {
+            for (int j = 0; j < needle.length; j++) {
+                if (toLowerAscii(bytes[i + j]) != needle[j]) {
+                    continue outer;
+                }
+            }
+            return true;
+        }
+        return false;
+    }
+
+    private boolean isAscii(int start, int length) {
+        for (int i = start; i < start + length; i++) {
+            if (bytes[i] < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public void clear() {
+        used = 0;
+        garbage = 0;
+        Arrays.fill(lengths, 0);
+    }
+
+    // Bytes held by this column, including garbage not yet reclaimed
+    public long getAllocatedBytes() {
+        return bytes.length + 4L * offsets.length + 4L * lengths.length;
+    }
+
+    private void compact(int liveRows) {
+        byte[] compacted = new byte[Math.max(1024, used - garbage)];
+        int position = 0;
+        for (int row = 0; row < liveRows; row++) {
+            int length = lengths[row];
+            if (length > 0) {
+                if (position + length > compacted.length) {
+                    compacted = Arrays.copyOf(compacted, Math.max(compacted.length * 2, position + length));
+                }
+                System.arraycopy(bytes, offsets[row], compacted, position, length);
+                offsets[row] = position;
+                position += length;
+            }
+        }
+        bytes = compacted;
+        used = position;
+        garbage = 0;
+    }
+
+    private static byte toLowerAscii(byte b) {
+        return b >= 'A' && b <= 'Z' ? (byte) (b + ('a' - 'A')) : b;
+    }
+}
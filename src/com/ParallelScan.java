@@ -0,0 +1,114 @@
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.*;
+
+// Scans a collection on a ForkJoinPool for checks no index can answer. The collection's
+// spliterator is split into segments; each segment folds its elements into an accumulator of
+// its own and accumulators are combined as the tasks join, so scanning threads share no
+// mutable state. Collections below the threshold are scanned on the calling thread.
+public class ParallelScan {
+    // Segments per thread, so a thread that finishes early can steal from a slower one
+    private static final int SEGMENTS_PER_THREAD = 4;
+    private static final int MIN_SEGMENT_SIZE = 1024;
+
+    private final int parallelism;
+    private final int threshold;
+    private final ForkJoinPool pool;
+
+    public ParallelScan(int parallelism, int threshold) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("Scan parallelism must be at least 1");
+        }
+        if (threshold < 0) {
+            throw new IllegalArgumentException("Scan threshold cannot be negative");
+        }
+        this.parallelism = parallelism;
+        this.threshold = threshold;
+        // Threads start on the first parallel scan and stop again once the pool is idle
+        this.pool = parallelism == 1 ? null : new ForkJoinPool(parallelism);
+    }
+
+    // Reads studentdb.scan.parallelism (default the number of processors) and
+    // studentdb.scan.threshold, the smallest collection scanned in parallel (default 50000)
+    public static ParallelScan fromSystemProperties() {
+        return new ParallelScan(
+                Integer.getInteger("studentdb.scan.parallelism", Runtime.getRuntime().availableProcessors()),
+                Integer.getInteger("studentdb.scan.threshold", 50_000));
+    }
+
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    public int getThreshold() {
+        return threshold;
+    }
+
+    public boolean isParallel(int size) {
+        return pool != null && size >= threshold;
+    }
+
+    // Folds every element into an accumulator. The combiner gets the accumulators of adjacent
+    // segments in spliterator order and may return either of them after merging into it.
+    public <T, A> A aggregate(Collection<T> items, Supplier<A> supplier, BiConsumer<A, ? super T> accumulator,
+                              BinaryOperator<A> combiner) {
+        if (!isParallel(items.size())) {
+            A result = supplier.get();
+            for (T item : items) {
+                accumulator.accept(result, item);
+            }
+            return result;
+        }
+        long segmentSize = Math.max(MIN_SEGMENT_SIZE, items.size() / ((long) parallelism * SEGMENTS_PER_THREAD));
+        return pool.invoke(new Segment<T, A>(items.spliterator(), segmentSize, supplier, accumulator, combiner));
+    }
+
+    // Ids of the elements the filter accepts; each segment collects its own bitmap
+    public <T> IdBitmap ids(Collection<T> items, Predicate<? super T> filter, ToIntFunction<? super T> id) {
+        return aggregate(items, IdBitmap::new, (ids, item) -> {
+            if (filter.test(item)) {
+                ids.add(id.applyAsInt(item));
+            }
+        }, IdBitmap::or);
+    }
+
+    // ForkJoinTask is Serializable, but segments never leave the pool that runs them
+    private static final class Segment<T, A> extends RecursiveTask<A> {
+        private static final long serialVersionUID = 1L;
+
+        private final transient Spliterator<T> items;
+        private final long segmentSize;
+        private final transient Supplier<A> supplier;
+        private final transient BiConsumer<A, ? super T> accumulator;
+        private final transient BinaryOperator<A> combiner;
+
+        Segment(Spliterator<T> items, long segmentSize, Supplier<A> supplier, BiConsumer<A, ? super T> accumulator,
+                BinaryOperator<A> combiner) {
+            this.items = items;
+            this.segmentSize = segmentSize;
+            this.supplier = supplier;
+            this.accumulator = accumulator;
+            this.combiner = combiner;
+        }
+
+        @Override
+        protected A compute() {
+            // Each split takes the front of what is left, so forked segments precede this one
+            List<Segment<T, A>> forked = new ArrayList<>();
+            Spliterator<T> front;
+            while (items.estimateSize() > segmentSize && (front = items.trySplit()) != null) {
+                Segment<T, A> segment = new Segment<>(front, segmentSize, supplier, accumulator, combiner);
+                segment.fork();
+                forked.add(segment);
+            }
+            A result = supplier.get();
+            items.forEachRemaining(item -> accumulator.accept(result, item));
+            A combined = result;
+            for (int i = forked.size() - 1; i >= 0; i--) {
+                combined = combiner.apply(forked.get(i).join(), combined);
+            }
+            return combined;
+        }
+    }
+}
@@ -0,0 +1,82 @@
+public class PoolConfig {
+    // Connector/J ignores a statement's fetch size and buffers the whole result unless
+    // useCursorFetch is on, so streaming reads need it
+    private String url = "jdbc:mysql://localhost:3306/studentdb?useCursorFetch=true";
+    private String username = "root";
+    private String password = "password";
+    private String driverClassName = "com.mysql.cj.jdbc.Driver";
+    private int minSize = 2;
+    private int maxSize = 10;
+    private long acquireTimeoutMillis = 5000;
+    private long idleTimeoutMillis = 10 * 60 * 1000;
+    private long leakThresholdMillis = 60 * 1000;
+    private long housekeepingIntervalMillis = 30 * 1000;
+    private int validationTimeoutSeconds = 2;
+    // Only connections idle for at least this long are checked with isValid before being handed
+    // out; 0 checks every one
+    private long validateAfterIdleMillis = 5 * 1000;
+    // Recording where each connection was borrowed costs a stack walk per borrow, so leak
+    // reports only include it when asked to
+    private boolean leakStackTraces = false;
+
+    public PoolConfig() {}
+
+    // Every setting can be overridden with a studentdb.* system property, e.g. -Dstudentdb.url=jdbc:h2:mem:test
+    public static PoolConfig fromSystemProperties() {
+        PoolConfig config = new PoolConfig();
+        config.url = System.getProperty("studentdb.url", config.url);
+        config.username = System.getProperty("studentdb.username", config.username);
+        config.password = System.getProperty("studentdb.password", config.password);
+        config.driverClassName = System.getProperty("studentdb.driver", config.driverClassName);
+        config.minSize = Integer.getInteger("studentdb.pool.minSize", config.minSize);
+        config.maxSize = Integer.getInteger("studentdb.pool.maxSize", config.maxSize);
+        config.acquireTimeoutMillis = Long.getLong("studentdb.pool.acquireTimeoutMillis", config.acquireTimeoutMillis);
+        config.idleTimeoutMillis = Long.getLong("studentdb.pool.idleTimeoutMillis", config.idleTimeoutMillis);
+        config.leakThresholdMillis = Long.getLong("studentdb.pool.leakThresholdMillis", config.leakThresholdMillis);
+        config.housekeepingIntervalMillis = Long.getLong("studentdb.pool.housekeepingIntervalMillis", config.housekeepingIntervalMillis);
+        config.validationTimeoutSeconds = Integer.getInteger("studentdb.pool.validationTimeoutSeconds", config.validationTimeoutSeconds);
+        config.validateAfterIdleMillis = Long.getLong("studentdb.pool.validateAfterIdleMillis", config.validateAfterIdleMillis);
+        config.leakStackTraces = Boolean.parseBoolean(System.getProperty("studentdb.pool.leakStackTraces", String.valueOf(config.leakStackTraces)));
+        return config;
+    }
+
+    // Getters and Setters
+    public String getUrl() { return url; }
+    public void setUrl(String url) { this.url = url; }
+
+    public String getUsername() { return username; }
+    public void setUsername(String username) { this.username = username; }
+
+    public String getPassword() { return password; }
+    public void setPassword(String password) { this.password = password; }
+
+    public String getDriverClassName() { return driverClassName; }
+    public void setDriverClassName(String driverClassName) { this.driverClassName = driverClassName; }
+
+    public int getMinSize() { return minSize; }
+    public void setMinSize(int minSize) { this.minSize = minSize; }
+
+    public int getMaxSize() { return maxSize; }
+    public void setMaxSize(int maxSize) { this.maxSize = maxSize; }
+
+    public long getAcquireTimeoutMillis() { return acquireTimeoutMillis; }
+    public void setAcquireTimeoutMillis(long acquireTimeoutMillis) { this.acquireTimeoutMillis = acquireTimeoutMillis; }
+
+    public long getIdleTimeoutMillis() { return idleTimeoutMillis; }
+    public void setIdleTimeoutMillis(long idleTimeoutMillis) { this.idleTimeoutMillis = idleTimeoutMillis; }
+
+    public long getLeakThresholdMillis() { return leakThresholdMillis; }
+    public void setLeakThresholdMillis(long leakThresholdMillis) { this.leakThresholdMillis = leakThresholdMillis; }
+
+    public long getHousekeepingIntervalMillis() { return housekeepingIntervalMillis; }
+    public void setHousekeepingIntervalMillis(long housekeepingIntervalMillis) { this.housekeepingIntervalMillis = housekeepingIntervalMillis; }
+
+    public int getValidationTimeoutSeconds() { return validationTimeoutSeconds; }
+    public void setValidationTimeoutSeconds(int validationTimeoutSeconds) { this.validationTimeoutSeconds = validationTimeoutSeconds; }
+
+    public long getValidateAfterIdleMillis() { return validateAfterIdleMillis; }
+    public void setValidateAfterIdleMillis(long validateAfterIdleMillis) { this.validateAfterIdleMillis = validateAfterIdleMillis; }
+
+    public boolean isLeakStackTraces() { return leakStackTraces; }
+    public void setLeakStackTraces(boolean leakStackTraces) { this.leakStackTraces = leakStackTraces; }
+}
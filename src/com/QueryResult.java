@@ -0,0 +1,161 @@
+import java.util.*;
+import java.util.function.Function;
+import java.util.function.IntFunction;
+import java.util.function.Supplier;
+
+// Students matching a query, in ascending id order, read only as they are consumed: candidate
+// ids are resolved to students and checked one at a time, or a batch at a time for stores where
+// each lookup is a round-trip, so a page near the front costs no more than the rows it holds.
+// Each call starts again from the first candidate.
+public class QueryResult implements Iterable<Student> {
+    private final Supplier<PrimitiveIterator.OfInt> candidates;
+    private final IntFunction<Student> resolver;
+    private final Function<int[], List<Student>> batchResolver;
+    private final int batchSize;
+    private final StudentPredicate filter;
+    private final String plan;
+
+    // The filter is null when every candidate is known to match
+    public QueryResult(Supplier<PrimitiveIterator.OfInt> candidates, IntFunction<Student> resolver,
+                       StudentPredicate filter, String plan) {
+        this.candidates = candidates;
+        this.resolver = resolver;
+        this.batchResolver = null;
+        this.batchSize = 1;
+        this.filter = filter;
+        this.plan = plan;
+    }
+
+    // Resolves up to batchSize candidates per call; the resolver returns the students in
+    // ascending id order and leaves out ids that no longer exist
+    public QueryResult(Supplier<PrimitiveIterator.OfInt> candidates, Function<int[], List<Student>> batchResolver,
+                       int batchSize, StudentPredicate filter, String plan) {
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("Batch size must be positive");
+        }
+        this.candidates = candidates;
+        this.resolver = null;
+        this.batchResolver = batchResolver;
+        this.batchSize = batchSize;
+        this.filter = filter;
+        this.plan = plan;
+    }
+
+    // How the query was answered, e.g. which indexes supplied the candidates
+    public String getPlan() {
+        return plan;
+    }
+
+    @Override
+    public Iterator<Student> iterator() {
+        PrimitiveIterator.OfInt ids = candidates.get();
+        return new Iterator<Student>() {
+            private Iterator<Student> batch = Collections.emptyIterator();
+            private Student next;
+
+            @Override
+            public boolean hasNext() {
+                while (next == null) {
+                    Student student;
+                    if (batch.hasNext()) {
+                        student = batch.next();
+                    } else if (!ids.hasNext()) {
+                        break;
+                    } else if (batchResolver == null) {
+                        student = resolver.apply(ids.nextInt());
+                    } else {
+                        batch = batchResolver.apply(take(ids, batchSize)).iterator();
+                        continue;
+                    }
+                    // Candidates deleted since planning resolve to null
+                    if (student != null && (filter == null || filter.test(student))) {
+                        next = student;
+                    }
+                }
+                return next != null;
+            }
+
+            @Override
+            public Student next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                Student student = next;
+                next = null;
+                return student;
+            }
+        };
+    }
+
+    public List<Student> page(int offset, int limit) {
+        if (offset < 0 || limit <= 0) {
+            throw new IllegalArgumentException("Offset cannot be negative and limit must be positive");
+        }
+        List<Student> page = new ArrayList<>(Math.min(limit, 1024));
+        if (batchResolver != null && filter == null) {
+            // Every candidate matches, so the skipped ones need not be read, and the page is read
+            // a batch at a time without asking for rows past its end
+            PrimitiveIterator.OfInt ids = candidates.get();
+            for (int skipped = 0; skipped < offset && ids.hasNext(); skipped++) {
+                ids.nextInt();
+            }
+            while (page.size() < limit && ids.hasNext()) {
+                page.addAll(batchResolver.apply(take(ids, Math.min(batchSize, limit - page.size()))));
+            }
+            return page;
+        }
+        Iterator<Student> students = iterator();
+        for (int skipped = 0; skipped < offset && students.hasNext(); skipped++) {
+            students.next();
+        }
+        while (page.size() < limit && students.hasNext()) {
+            page.add(students.next());
+        }
+        return page;
+    }
+
+    // Ids of every match, ascending; without a filter the candidates are not resolved at all
+    public int[] ids() {
+        int[] ids = new int[64];
+        int count = 0;
+        if (filter == null) {
+            PrimitiveIterator.OfInt candidateIds = candidates.get();
+            while (candidateIds.hasNext()) {
+                if (count == ids.length) {
+                    ids = Arrays.copyOf(ids, count * 2);
+                }
+                ids[count++] = candidateIds.nextInt();
+            }
+        } else {
+            for (Student student : this) {
+                if (count == ids.length) {
+                    ids = Arrays.copyOf(ids, count * 2);
+                }
+                ids[count++] = student.getId();
+            }
+        }
+        return Arrays.copyOf(ids, count);
+    }
+
+    public List<Student> toList() {
+        List<Student> students = new ArrayList<>();
+        for (Student student : this) {
+            students.add(student);
+        }
+        return students;
+    }
+
+    private static int[] take(PrimitiveIterator.OfInt ids, int max) {
+        int[] batch = new int[max];
+        int count = 0;
+        while (count < max && ids.hasNext()) {
+            batch[count++] = ids.nextInt();
+        }
+        return count == max ? batch : Arrays.copyOf(batch, count);
+    }
+
+    @Override
+    public String toString() {
+        return "QueryResult: " + plan;
+    }
+}
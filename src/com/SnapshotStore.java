@@ -0,0 +1,92 @@
+import java.io.IOException;
+import java.nio.file.*;
+import java.util.*;
+
+// Full copies of the store named after the last log sequence number they include. A snapshot
+// is written to a temporary file and renamed into place, so a crash never leaves a partial one.
+// Snapshots are in the MappedSnapshot format. Neither writing nor loading leaves a file mapped,
+// so the rename and the deletion of older snapshots also work on Windows.
+public class SnapshotStore {
+    private static final String PREFIX = "snapshot-";
+    private static final String SUFFIX = ".dat";
+
+    private final Path directory;
+
+    public static class Header {
+        private final long seq;
+        private final int nextId;
+        private final int count;
+
+        public Header(long seq, int nextId, int count) {
+            this.seq = seq;
+            this.nextId = nextId;
+            this.count = count;
+        }
+
+        public long getSeq() { return seq; }
+        public int getNextId() { return nextId; }
+        public int getCount() { return count; }
+    }
+
+    public SnapshotStore(Path directory) {
+        this.directory = directory;
+    }
+
+    public void write(long seq, int nextId, Collection<Student> students) throws IOException {
+        Files.createDirectories(directory);
+        Path target = directory.resolve(fileName(seq));
+        Path temp = directory.resolve(fileName(seq) + ".tmp");
+
+        MappedSnapshot.write(temp, seq, nextId, students);
+        Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+
+        for (Path older : listSnapshots()) {
+            if (!older.equals(target)) {
+                Files.deleteIfExists(older);
+            }
+        }
+    }
+
+    // Loads the newest readable snapshot into the handler; returns null if there is none
+    public Header load(WriteAheadLog.ReplayHandler handler) throws IOException {
+        List<Path> snapshots = listSnapshots();
+        for (int i = snapshots.size() - 1; i >= 0; i--) {
+            Path path = snapshots.get(i);
+            try {
+                return read(path, handler);
+            } catch (IOException e) {
+                System.err.println("Skipping unreadable snapshot " + path.getFileName() + ": " + e.getMessage());
+                handler.clear();
+            }
+        }
+        return null;
+    }
+
+    // Recovery decodes every record, so the file is read rather than mapped
+    private Header read(Path path, WriteAheadLog.ReplayHandler handler) throws IOException {
+        MappedSnapshot snapshot = MappedSnapshot.read(path);
+        snapshot.verify();
+        for (int i = 0; i < snapshot.size(); i++) {
+            handler.put(snapshot.get(i));
+        }
+        return new Header(snapshot.getSeq(), snapshot.getNextId(), snapshot.size());
+    }
+
+    private List<Path> listSnapshots() throws IOException {
+        List<Path> snapshots = new ArrayList<>();
+        if (!Files.isDirectory(directory)) {
+            return snapshots;
+        }
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, PREFIX + "*" + SUFFIX)) {
+            for (Path path : stream) {
+                snapshots.add(path);
+            }
+        }
+        Collections.sort(snapshots);
+        return snapshots;
+    }
+
+    private static String fileName(long seq) {
+        return String.format("%s%020d%s", PREFIX, seq, SUFFIX);
+    }
+}
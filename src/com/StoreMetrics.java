@@ -0,0 +1,174 @@
+import java.lang.management.ManagementFactory;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+// Per-operation call counts, error counts and latency histograms plus named event counters.
+// Recording costs a map lookup and a few uncontended atomic adds. Operations and counters are
+// created on first use, so callers only name what they record.
+public class StoreMetrics implements StoreMetricsMBean {
+    private static final double[] REPORTED_PERCENTILES = {50.0, 90.0, 99.0, 99.9};
+
+    private final String name;
+    private final Map<String, OperationStats> operations = new ConcurrentHashMap<>();
+    private final Map<String, LongAdder> counters = new ConcurrentHashMap<>();
+
+    private static class OperationStats {
+        final LatencyHistogram latency = new LatencyHistogram();
+        final LongAdder errors = new LongAdder();
+    }
+
+    public StoreMetrics(String name) {
+        this.name = name;
+    }
+
+    // Registers as studentdb:type=StoreMetrics,name=<name>, replacing an earlier registration
+    public void register() {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName objectName = new ObjectName("studentdb:type=StoreMetrics,name=" + ObjectName.quote(name));
+            if (server.isRegistered(objectName)) {
+                server.unregisterMBean(objectName);
+            }
+            server.registerMBean(this, objectName);
+        } catch (Exception e) {
+            System.err.println("Error registering metrics " + name + ": " + e.getMessage());
+        }
+    }
+
+    // Records one completed call that started at startNanos (from System.nanoTime)
+    public void record(String operation, long startNanos) {
+        stats(operation).latency.record(System.nanoTime() - startNanos);
+    }
+
+    // Failed calls count towards the latency too, since callers waited for them as well
+    public void recordError(String operation, long startNanos) {
+        OperationStats stats = stats(operation);
+        stats.latency.record(System.nanoTime() - startNanos);
+        stats.errors.increment();
+    }
+
+    public void increment(String counter) {
+        add(counter, 1);
+    }
+
+    public void add(String counter, long amount) {
+        LongAdder adder = counters.get(counter);
+        if (adder == null) {
+            adder = counters.computeIfAbsent(counter, k -> new LongAdder());
+        }
+        adder.add(amount);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public String[] getOperationNames() {
+        String[] names = operations.keySet().toArray(new String[0]);
+        Arrays.sort(names);
+        return names;
+    }
+
+    @Override
+    public String[] getCounterNames() {
+        String[] names = counters.keySet().toArray(new String[0]);
+        Arrays.sort(names);
+        return names;
+    }
+
+    @Override
+    public long getCallCount(String operation) {
+        OperationStats stats = operations.get(operation);
+        return stats == null ? 0 : stats.latency.getCount();
+    }
+
+    @Override
+    public long getErrorCount(String operation) {
+        OperationStats stats = operations.get(operation);
+        return stats == null ? 0 : stats.errors.sum();
+    }
+
+    @Override
+    public double getLatencyMicros(String operation, double percentile) {
+        OperationStats stats = operations.get(operation);
+        return stats == null ? 0.0 : stats.latency.getPercentileNanos(percentile) / 1000.0;
+    }
+
+    @Override
+    public long getCounter(String name) {
+        LongAdder counter = counters.get(name);
+        return counter == null ? 0 : counter.sum();
+    }
+
+    // Nested maps keyed by operation and counter name, e.g. for logging or a status screen
+    public Map<String, Object> snapshot() {
+        Map<String, Object> result = new TreeMap<>();
+        for (String operation : getOperationNames()) {
+            OperationStats stats = operations.get(operation);
+            Map<String, Object> values = new LinkedHashMap<>();
+            values.put("calls", stats.latency.getCount());
+            values.put("errors", stats.errors.sum());
+            values.put("meanMicros", stats.latency.getMeanNanos() / 1000.0);
+            for (double percentile : REPORTED_PERCENTILES) {
+                values.put("p" + formatPercentile(percentile) + "Micros",
+                        stats.latency.getPercentileNanos(percentile) / 1000.0);
+            }
+            values.put("maxMicros", stats.latency.getMaxNanos() / 1000.0);
+            result.put(operation, values);
+        }
+        Map<String, Long> counterValues = new TreeMap<>();
+        for (Map.Entry<String, LongAdder> entry : counters.entrySet()) {
+            counterValues.put(entry.getKey(), entry.getValue().sum());
+        }
+        result.put("counters", counterValues);
+        return result;
+    }
+
+    @Override
+    public String dump() {
+        StringBuilder out = new StringBuilder();
+        out.append(name).append(" metrics (latencies in microseconds)\n");
+        out.append(String.format("%-28s %10s %8s %10s", "operation", "calls", "errors", "mean"));
+        for (double percentile : REPORTED_PERCENTILES) {
+            out.append(String.format(" %10s", "p" + formatPercentile(percentile)));
+        }
+        out.append(String.format(" %10s%n", "max"));
+        for (String operation : getOperationNames()) {
+            OperationStats stats = operations.get(operation);
+            out.append(String.format("%-28s %10d %8d %10.1f", operation, stats.latency.getCount(),
+                    stats.errors.sum(), stats.latency.getMeanNanos() / 1000.0));
+            for (double percentile : REPORTED_PERCENTILES) {
+                out.append(String.format(" %10.1f", stats.latency.getPercentileNanos(percentile) / 1000.0));
+            }
+            out.append(String.format(" %10.1f%n", stats.latency.getMaxNanos() / 1000.0));
+        }
+        for (String counter : getCounterNames()) {
+            out.append(String.format("%-28s %10d%n", counter, getCounter(counter)));
+        }
+        return out.toString();
+    }
+
+    @Override
+    public void reset() {
+        for (OperationStats stats : operations.values()) {
+            stats.latency.reset();
+            stats.errors.reset();
+        }
+        for (LongAdder counter : counters.values()) {
+            counter.reset();
+        }
+    }
+
+    private OperationStats stats(String operation) {
+        OperationStats stats = operations.get(operation);
+        return stats != null ? stats : operations.computeIfAbsent(operation, k -> new OperationStats());
+    }
+
+    private static String formatPercentile(double percentile) {
+        return percentile == Math.floor(percentile) ? String.valueOf((int) percentile) : String.valueOf(percentile);
+    }
+}
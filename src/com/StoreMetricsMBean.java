@@ -0,0 +1,19 @@
+// Management interface of StoreMetrics, so the numbers can be read from JConsole or any JMX
+// client. Latencies are in microseconds.
+public interface StoreMetricsMBean {
+    String[] getOperationNames();
+
+    String[] getCounterNames();
+
+    long getCallCount(String operation);
+
+    long getErrorCount(String operation);
+
+    double getLatencyMicros(String operation, double percentile);
+
+    long getCounter(String name);
+
+    String dump();
+
+    void reset();
+}
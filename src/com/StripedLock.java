@@ -0,0 +1,71 @@
+import java.util.Arrays;
+import java.util.concurrent.locks.ReentrantLock;
+
+public class StripedLock {
+    private final ReentrantLock[] locks;
+    private final int mask;
+
+    public StripedLock(int stripes) {
+        if (stripes <= 0) {
+            throw new IllegalArgumentException("Stripe count must be positive");
+        }
+        int size = 1;
+        while (size < stripes) {
+            size <<= 1;
+        }
+        locks = new ReentrantLock[size];
+        for (int i = 0; i < size; i++) {
+            locks[i] = new ReentrantLock();
+        }
+        mask = size - 1;
+    }
+
+    public int stripeFor(Object key) {
+        int h = key.hashCode();
+        h ^= (h >>> 16);
+        return h & mask;
+    }
+
+    // Locks the stripes of all given keys in ascending stripe order so that
+    // callers locking overlapping key sets can never deadlock each other
+    public int[] lock(Object... keys) {
+        int[] stripes = new int[keys.length];
+        for (int i = 0; i < keys.length; i++) {
+            stripes[i] = stripeFor(keys[i]);
+        }
+        Arrays.sort(stripes);
+        int count = 0;
+        for (int i = 0; i < stripes.length; i++) {
+            if (i == 0 || stripes[i] != stripes[i - 1]) {
+                stripes[count++] = stripes[i];
+            }
+        }
+        stripes = Arrays.copyOf(stripes, count);
+        for (int stripe : stripes) {
+            locks[stripe].lock();
+        }
+        return stripes;
+    }
+
+    public void unlock(int[] stripes) {
+        for (int i = stripes.length - 1; i >= 0; i--) {
+            locks[stripes[i]].unlock();
+        }
+    }
+
+    public void lockAll() {
+        for (ReentrantLock lock : locks) {
+            lock.lock();
+        }
+    }
+
+    public void unlockAll() {
+        for (int i = locks.length - 1; i >= 0; i--) {
+            locks[i].unlock();
+        }
+    }
+
+    public int getStripeCount() {
+        return locks.length;
+    }
+}
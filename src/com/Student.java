@@ -15,6 +15,10 @@ public class Student {
         this.course = course;
     }
     
+    public Student(Student other) {
+        this(other.id, other.name, other.email, other.age, other.course);
+    }
+    
     // Getters and Setters
     public int getId() { return id; }
     public void setId(int id) { this.id = id; }
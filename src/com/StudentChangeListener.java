@@ -0,0 +1,9 @@
+// Notified by InMemoryDatabase after each change has been applied to its indexes, while the
+// locks of the changed student are still held, so implementations must be quick and must not
+// call back into the database's write methods.
+public interface StudentChangeListener {
+    // before is null for an added student and after is null for a deleted one
+    void studentChanged(Student before, Student after);
+
+    void allStudentsCleared();
+}
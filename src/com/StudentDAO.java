@@ -1,8 +1,61 @@
 import java.sql.*;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.TreeMap;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 public class StudentDAO {
+    private static final String INSERT_SQL = "INSERT INTO students (name, email, age, course) VALUES (?, ?, ?, ?)";
+    private static final String UPDATE_SQL = "UPDATE students SET name = ?, email = ?, age = ?, course = ? WHERE id = ?";
+    private static final String SELECT_COLUMNS = "SELECT id, name, email, age, course FROM students";
+    
+    // Shared by all DAO instances: latency per operation, pool wait time and batch fallbacks
+    private static final StoreMetrics METRICS = new StoreMetrics("StudentDAO");
+    
+    static {
+        METRICS.register();
+    }
+    
+    // Rows sent per executeBatch call and committed per transaction by the bulk methods
+    private int batchSize = 500;
+    // Rows the driver fetches per round-trip when streaming; MySQL Connector/J honours it only
+    // with useCursorFetch=true in the URL, which the default PoolConfig URL sets
+    private int fetchSize = 1000;
+    
+    public int getBatchSize() { return batchSize; }
+    
+    public void setBatchSize(int batchSize) {
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("Batch size must be positive");
+        }
+        this.batchSize = batchSize;
+    }
+    
+    public int getFetchSize() { return fetchSize; }
+    
+    public static StoreMetrics getMetrics() { return METRICS; }
+    
+    public void setFetchSize(int fetchSize) {
+        if (fetchSize <= 0) {
+            throw new IllegalArgumentException("Fetch size must be positive");
+        }
+        this.fetchSize = fetchSize;
+    }
     
     // Create students table if not exists
     public void createTable() {
@@ -13,7 +66,7 @@ public class StudentDAO {
                     "age INT, " +
                     "course VARCHAR(50))";
         
-        try (Connection conn = DatabaseConnection.getConnection();
+        try (Connection conn = connect();
              Statement stmt = conn.createStatement()) {
             
             stmt.execute(sql);
@@ -24,12 +77,11 @@ public class StudentDAO {
         }
     }
     
-    // Add student
+    // Add student; the generated id is set on the student
     public boolean addStudent(Student student) {
-        String sql = "INSERT INTO students (name, email, age, course) VALUES (?, ?, ?, ?)";
-        
-        try (Connection conn = DatabaseConnection.getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+        long started = System.nanoTime();
+        try (Connection conn = connect();
+             PreparedStatement pstmt = conn.prepareStatement(INSERT_SQL, Statement.RETURN_GENERATED_KEYS)) {
             
             pstmt.setString(1, student.getName());
             pstmt.setString(2, student.getEmail());
@@ -37,9 +89,14 @@ public class StudentDAO {
             pstmt.setString(4, student.getCourse());
             
             int rowsAffected = pstmt.executeUpdate();
+            if (rowsAffected > 0) {
+                assignGeneratedKeys(pstmt, List.of(student));
+            }
+            METRICS.record("addStudent", started);
             return rowsAffected > 0;
             
         } catch (SQLException e) {
+            METRICS.recordError("addStudent", started);
             System.err.println("Error adding student: " + e.getMessage());
             return false;
         }
@@ -49,8 +106,9 @@ public class StudentDAO {
     public List<Student> getAllStudents() {
         List<Student> students = new ArrayList<>();
         String sql = "SELECT * FROM students";
+        long started = System.nanoTime();
         
-        try (Connection conn = DatabaseConnection.getConnection();
+        try (Connection conn = connect();
              Statement stmt = conn.createStatement();
              ResultSet rs = stmt.executeQuery(sql)) {
             
@@ -63,20 +121,174 @@ public class StudentDAO {
                 student.setCourse(rs.getString("course"));
                 students.add(student);
             }
+            METRICS.record("getAllStudents", started);
             
         } catch (SQLException e) {
+            METRICS.recordError("getAllStudents", started);
             System.err.println("Error retrieving students: " + e.getMessage());
         }
         return students;
     }
     
-    // Update student
-    public boolean updateStudent(Student student) {
-        String sql = "UPDATE students SET name = ?, email = ?, age = ?, course = ? WHERE id = ?";
+    // Get one page of students ordered by id, starting after afterId (0 for the first page).
+    // Pass the id of the last student returned to get the next page.
+    public List<Student> getStudentsPage(int afterId, int pageSize) {
+        List<Student> students = new ArrayList<>(pageSize);
+        String sql = SELECT_COLUMNS + " WHERE id > ? ORDER BY id LIMIT ?";
+        long started = System.nanoTime();
         
-        try (Connection conn = DatabaseConnection.getConnection();
+        try (Connection conn = connect();
              PreparedStatement pstmt = conn.prepareStatement(sql)) {
             
+            pstmt.setInt(1, afterId);
+            pstmt.setInt(2, pageSize);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                int[] columns = resolveColumns(rs);
+                while (rs.next()) {
+                    students.add(mapRow(rs, columns));
+                }
+            }
+            METRICS.record("getStudentsPage", started);
+            
+        } catch (SQLException e) {
+            METRICS.recordError("getStudentsPage", started);
+            System.err.println("Error retrieving student page: " + e.getMessage());
+        }
+        return students;
+    }
+    
+    // Students with the given ids in ascending id order, one IN query per batchSize ids; ids
+    // with no student are left out
+    public List<Student> getStudentsById(int[] ids) {
+        List<Student> students = new ArrayList<>(ids.length);
+        long started = System.nanoTime();
+    
+        try (Connection conn = connect()) {
+            for (int from = 0; from < ids.length; from += batchSize) {
+                int count = Math.min(batchSize, ids.length - from);
+                String sql = SELECT_COLUMNS + " WHERE id IN ("
+                        + String.join(", ", Collections.nCopies(count, "?")) + ") ORDER BY id";
+                try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                    for (int i = 0; i < count; i++) {
+                        pstmt.setInt(i + 1, ids[from + i]);
+                    }
+                    try (ResultSet rs = pstmt.executeQuery()) {
+                        int[] columns = resolveColumns(rs);
+                        while (rs.next()) {
+                            students.add(mapRow(rs, columns));
+                        }
+                    }
+                }
+            }
+            METRICS.record("getStudentsById", started);
+    
+        } catch (SQLException e) {
+            METRICS.recordError("getStudentsById", started);
+            System.err.println("Error retrieving students: " + e.getMessage());
+        }
+        // Batches of unsorted ids come back sorted only within themselves
+        students.sort(Comparator.comparingInt(Student::getId));
+        return students;
+    }
+    
+    // Stream all students ordered by id without holding them in memory. The stream keeps a
+    // connection open until it is closed, so use it in a try-with-resources block.
+    public Stream<Student> streamAllStudents() {
+        long started = System.nanoTime();
+        Connection conn = connect();
+        PreparedStatement pstmt = null;
+        ResultSet rs = null;
+        try {
+            if (conn == null) {
+                throw new SQLException("No database connection");
+            }
+            pstmt = conn.prepareStatement(SELECT_COLUMNS + " ORDER BY id",
+                    ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            pstmt.setFetchSize(fetchSize);
+            rs = pstmt.executeQuery();
+            
+            ResultSet cursor = rs;
+            int[] columns = resolveColumns(rs);
+            Spliterator<Student> rows = new Spliterators.AbstractSpliterator<Student>(Long.MAX_VALUE,
+                    Spliterator.ORDERED | Spliterator.NONNULL) {
+                @Override
+                public boolean tryAdvance(Consumer<? super Student> action) {
+                    try {
+                        if (!cursor.next()) {
+                            return false;
+                        }
+                        action.accept(mapRow(cursor, columns));
+                        return true;
+                    } catch (SQLException e) {
+                        throw new IllegalStateException("Error streaming students: " + e.getMessage(), e);
+                    }
+                }
+            };
+            
+            // Only the time to the first fetch is recorded; reading the rows is up to the caller
+            METRICS.record("streamAllStudents", started);
+            AutoCloseable[] resources = {rs, pstmt, conn};
+            return StreamSupport.stream(rows, false).onClose(() -> closeQuietly(resources));
+            
+        } catch (SQLException e) {
+            METRICS.recordError("streamAllStudents", started);
+            System.err.println("Error streaming students: " + e.getMessage());
+            closeQuietly(new AutoCloseable[]{rs, pstmt, conn});
+            return Stream.empty();
+        }
+    }
+    
+    // Pool wait is timed separately so a slow query can be told apart from a starved pool
+    private static Connection connect() {
+        long started = System.nanoTime();
+        Connection conn = DatabaseConnection.getConnection();
+        if (conn == null) {
+            METRICS.recordError("pool.acquire", started);
+        } else {
+            METRICS.record("pool.acquire", started);
+        }
+        return conn;
+    }
+    
+    // Column positions are looked up once per result set instead of by name on every row
+    private int[] resolveColumns(ResultSet rs) throws SQLException {
+        return new int[]{
+            rs.findColumn("id"),
+            rs.findColumn("name"),
+            rs.findColumn("email"),
+            rs.findColumn("age"),
+            rs.findColumn("course")
+        };
+    }
+    
+    private Student mapRow(ResultSet rs, int[] columns) throws SQLException {
+        return new Student(
+            rs.getInt(columns[0]),
+            rs.getString(columns[1]),
+            rs.getString(columns[2]),
+            rs.getInt(columns[3]),
+            rs.getString(columns[4]));
+    }
+    
+    private void closeQuietly(AutoCloseable[] resources) {
+        for (AutoCloseable resource : resources) {
+            if (resource == null) {
+                continue;
+            }
+            try {
+                resource.close();
+            } catch (Exception e) {
+                System.err.println("Error closing database resource: " + e.getMessage());
+            }
+        }
+    }
+    
+    // Update student
+    public boolean updateStudent(Student student) {
+        long started = System.nanoTime();
+        try (Connection conn = connect();
+             PreparedStatement pstmt = conn.prepareStatement(UPDATE_SQL)) {
+            
             pstmt.setString(1, student.getName());
             pstmt.setString(2, student.getEmail());
             pstmt.setInt(3, student.getAge());
@@ -84,26 +296,191 @@ public class StudentDAO {
             pstmt.setInt(5, student.getId());
             
             int rowsAffected = pstmt.executeUpdate();
+            METRICS.record("updateStudent", started);
             return rowsAffected > 0;
             
         } catch (SQLException e) {
+            METRICS.recordError("updateStudent", started);
             System.err.println("Error updating student: " + e.getMessage());
             return false;
         }
     }
     
+    // Add students in batches, one transaction per batch; generated ids are set on the students
+    public BatchResult addStudents(Collection<Student> students) {
+        return writeInBatches(students, true);
+    }
+    
+    // Update students in batches, one transaction per batch
+    public BatchResult updateStudents(Collection<Student> students) {
+        return writeInBatches(students, false);
+    }
+    
+    private BatchResult writeInBatches(Collection<Student> students, boolean insert) {
+        BatchResult result = new BatchResult();
+        List<Student> chunk = new ArrayList<>(Math.min(batchSize, students.size()));
+        Iterator<Student> remaining = students.iterator();
+        String operation = insert ? "addStudents" : "updateStudents";
+        long started = System.nanoTime();
+        
+        try (Connection conn = connect()) {
+            if (conn == null) {
+                throw new SQLException("No database connection");
+            }
+            
+            while (remaining.hasNext()) {
+                Student student = remaining.next();
+                if (student == null) {
+                    result.addFailure(null, "Student cannot be null");
+                    continue;
+                }
+                chunk.add(student);
+                if (chunk.size() == batchSize) {
+                    writeChunk(conn, chunk, insert, result);
+                    chunk.clear();
+                }
+            }
+            if (!chunk.isEmpty()) {
+                writeChunk(conn, chunk, insert, result);
+            }
+            METRICS.record(operation, started);
+            
+        } catch (SQLException e) {
+            METRICS.recordError(operation, started);
+            System.err.println("Error writing student batch: " + e.getMessage());
+            for (Student student : chunk) {
+                result.addFailure(student, e.getMessage());
+            }
+            while (remaining.hasNext()) {
+                result.addFailure(remaining.next(), "Not attempted: " + e.getMessage());
+            }
+        }
+        return result;
+    }
+    
+    private void writeChunk(Connection conn, List<Student> chunk, boolean insert, BatchResult result) throws SQLException {
+        conn.setAutoCommit(false);
+        try (PreparedStatement pstmt = insert
+                ? conn.prepareStatement(INSERT_SQL, Statement.RETURN_GENERATED_KEYS)
+                : conn.prepareStatement(UPDATE_SQL)) {
+            
+            for (Student student : chunk) {
+                bindStudent(pstmt, student, insert);
+                pstmt.addBatch();
+            }
+            int[] counts = pstmt.executeBatch();
+            
+            List<Student> written = new ArrayList<>(chunk.size());
+            List<BatchResult.Failure> rejected = new ArrayList<>();
+            for (int i = 0; i < chunk.size(); i++) {
+                if (counts[i] == 0) {
+                    rejected.add(new BatchResult.Failure(chunk.get(i), "Student not found with ID: " + chunk.get(i).getId()));
+                } else {
+                    written.add(chunk.get(i));
+                }
+            }
+            if (insert) {
+                assignGeneratedKeys(pstmt, written);
+            }
+            conn.commit();
+            recordChunk(result, written, rejected);
+            
+        } catch (BatchUpdateException e) {
+            // Drivers differ in how far they get after a bad row, so redo the chunk row by row
+            METRICS.increment("batch.rowByRowFallbacks");
+            conn.rollback();
+            try {
+                writeRowByRow(conn, chunk, insert, result);
+            } catch (SQLException | RuntimeException retryFailure) {
+                // Turning auto-commit back on would commit the rows written so far
+                conn.rollback();
+                throw retryFailure;
+            }
+        } catch (SQLException e) {
+            conn.rollback();
+            throw e;
+        } finally {
+            conn.setAutoCommit(true);
+        }
+    }
+    
+    // Still one transaction for the chunk; a savepoint per row lets a failed row be undone on its own
+    private void writeRowByRow(Connection conn, List<Student> chunk, boolean insert, BatchResult result) throws SQLException {
+        List<Student> written = new ArrayList<>(chunk.size());
+        List<BatchResult.Failure> rejected = new ArrayList<>();
+        try (PreparedStatement pstmt = insert
+                ? conn.prepareStatement(INSERT_SQL, Statement.RETURN_GENERATED_KEYS)
+                : conn.prepareStatement(UPDATE_SQL)) {
+            
+            for (Student student : chunk) {
+                Savepoint savepoint = conn.setSavepoint();
+                try {
+                    bindStudent(pstmt, student, insert);
+                    if (pstmt.executeUpdate() == 0) {
+                        rejected.add(new BatchResult.Failure(student, "Student not found with ID: " + student.getId()));
+                        continue;
+                    }
+                    if (insert) {
+                        assignGeneratedKeys(pstmt, List.of(student));
+                    }
+                    written.add(student);
+                } catch (SQLException e) {
+                    conn.rollback(savepoint);
+                    rejected.add(new BatchResult.Failure(student, e.getMessage()));
+                }
+            }
+            conn.commit();
+            recordChunk(result, written, rejected);
+        }
+    }
+    
+    // A chunk's rows are recorded only once it has committed. If it fails as a whole instead,
+    // writeInBatches records every row of it as failed, so no row is reported twice.
+    private static void recordChunk(BatchResult result, List<Student> written, List<BatchResult.Failure> rejected) {
+        for (BatchResult.Failure failure : rejected) {
+            result.addFailure(failure.getStudent(), failure.getMessage());
+        }
+        for (Student student : written) {
+            result.addSuccess(student);
+        }
+    }
+    
+    private void bindStudent(PreparedStatement pstmt, Student student, boolean insert) throws SQLException {
+        pstmt.setString(1, student.getName());
+        pstmt.setString(2, student.getEmail());
+        pstmt.setInt(3, student.getAge());
+        pstmt.setString(4, student.getCourse());
+        if (!insert) {
+            pstmt.setInt(5, student.getId());
+        }
+    }
+    
+    private void assignGeneratedKeys(PreparedStatement pstmt, List<Student> written) throws SQLException {
+        try (ResultSet keys = pstmt.getGeneratedKeys()) {
+            for (Student student : written) {
+                if (!keys.next()) {
+                    break;
+                }
+                student.setId(keys.getInt(1));
+            }
+        }
+    }
+    
     // Delete student
     public boolean deleteStudent(int id) {
         String sql = "DELETE FROM students WHERE id = ?";
+        long started = System.nanoTime();
         
-        try (Connection conn = DatabaseConnection.getConnection();
+        try (Connection conn = connect();
              PreparedStatement pstmt = conn.prepareStatement(sql)) {
             
             pstmt.setInt(1, id);
             int rowsAffected = pstmt.executeUpdate();
+            METRICS.record("deleteStudent", started);
             return rowsAffected > 0;
             
         } catch (SQLException e) {
+            METRICS.recordError("deleteStudent", started);
             System.err.println("Error deleting student: " + e.getMessage());
             return false;
         }
@@ -113,25 +490,353 @@ public class StudentDAO {
     public Student getStudentById(int id) {
         String sql = "SELECT * FROM students WHERE id = ?";
         Student student = null;
+        long started = System.nanoTime();
         
-        try (Connection conn = DatabaseConnection.getConnection();
+        try (Connection conn = connect();
              PreparedStatement pstmt = conn.prepareStatement(sql)) {
             
             pstmt.setInt(1, id);
-            ResultSet rs = pstmt.executeQuery();
-            
-            if (rs.next()) {
-                student = new Student();
-                student.setId(rs.getInt("id"));
-                student.setName(rs.getString("name"));
-                student.setEmail(rs.getString("email"));
-                student.setAge(rs.getInt("age"));
-                student.setCourse(rs.getString("course"));
+            try (ResultSet rs = pstmt.executeQuery()) {
+                if (rs.next()) {
+                    student = new Student();
+                    student.setId(rs.getInt("id"));
+                    student.setName(rs.getString("name"));
+                    student.setEmail(rs.getString("email"));
+                    student.setAge(rs.getInt("age"));
+                    student.setCourse(rs.getString("course"));
+                }
             }
+            METRICS.record("getStudentById", started);
             
         } catch (SQLException e) {
+            METRICS.recordError("getStudentById", started);
             System.err.println("Error searching student: " + e.getMessage());
         }
         return student;
     }
+    
+    // Case-insensitive email lookup, matching how InMemoryDatabase treats emails. The column's
+    // collation is case-insensitive, so the comparison can use the unique index on email.
+    public Student getStudentByEmail(String email) {
+        List<Student> students = queryStudents("getStudentByEmail",
+                SELECT_COLUMNS + " WHERE email = ?", email.trim().toLowerCase(Locale.ROOT));
+        return students.isEmpty() ? null : students.get(0);
+    }
+    
+    // Case-insensitive substring search on the name, ordered by id
+    public List<Student> searchStudentsByName(String name) {
+        return queryStudents("searchStudentsByName",
+                SELECT_COLUMNS + " WHERE LOWER(name) LIKE ? ESCAPE '!' ORDER BY id", likePattern(name));
+    }
+    
+    // Case-insensitive substring match on the course, ordered by id
+    public List<Student> getStudentsByCourse(String course) {
+        return queryStudents("getStudentsByCourse",
+                SELECT_COLUMNS + " WHERE LOWER(course) LIKE ? ESCAPE '!' ORDER BY id", likePattern(course));
+    }
+    
+    // Course equal ignoring case and surrounding whitespace, ordered by id
+    public List<Student> getStudentsByExactCourse(String course) {
+        String normalized = course == null ? "" : course.trim().toLowerCase(Locale.ROOT);
+        return queryStudents("getStudentsByExactCourse",
+                SELECT_COLUMNS + " WHERE LOWER(TRIM(course)) = ? ORDER BY id", normalized);
+    }
+    
+    // Filtering, ordering and paging all run in the database; name order is by LOWER(TRIM(name))
+    public List<Student> findStudents(StudentQuery query) {
+        StringBuilder sql = new StringBuilder(SELECT_COLUMNS).append(" WHERE 1 = 1");
+        List<Object> parameters = new ArrayList<>();
+        if (query.getMinAge() != null) {
+            sql.append(" AND age >= ?");
+            parameters.add(query.getMinAge());
+        }
+        if (query.getMaxAge() != null) {
+            sql.append(" AND age <= ?");
+            parameters.add(query.getMaxAge());
+        }
+        if (query.getCourse() != null) {
+            sql.append(" AND LOWER(TRIM(course)) = ?");
+            parameters.add(StudentQuery.normalize(query.getCourse()));
+        }
+        String direction = query.isDescending() ? " DESC" : "";
+        switch (query.getOrderBy()) {
+            case NAME:
+                sql.append(" ORDER BY LOWER(TRIM(name))").append(direction).append(", id").append(direction);
+                break;
+            case AGE:
+                sql.append(" ORDER BY age").append(direction).append(", id").append(direction);
+                break;
+            default:
+                sql.append(" ORDER BY id").append(direction);
+        }
+        sql.append(" LIMIT ? OFFSET ?");
+        parameters.add(query.getLimit());
+        parameters.add(query.getOffset());
+        
+        List<Student> students = new ArrayList<>();
+        long started = System.nanoTime();
+        try (Connection conn = connect();
+             PreparedStatement pstmt = conn.prepareStatement(sql.toString())) {
+            
+            for (int i = 0; i < parameters.size(); i++) {
+                pstmt.setObject(i + 1, parameters.get(i));
+            }
+            try (ResultSet rs = pstmt.executeQuery()) {
+                int[] columns = resolveColumns(rs);
+                while (rs.next()) {
+                    students.add(mapRow(rs, columns));
+                }
+            }
+            METRICS.record("findStudents", started);
+            
+        } catch (SQLException e) {
+            METRICS.recordError("findStudents", started);
+            System.err.println("Error querying students: " + e.getMessage());
+        }
+        return students;
+    }
+    
+    // Which of the given emails are already taken, compared ignoring case; one query per batch
+    public Set<String> getExistingEmails(Collection<String> emails) {
+        Set<String> existing = new HashSet<>();
+        List<String> keys = new ArrayList<>(emails.size());
+        for (String email : emails) {
+            if (email != null) {
+                keys.add(email.trim().toLowerCase(Locale.ROOT));
+            }
+        }
+        long started = System.nanoTime();
+        
+        try (Connection conn = connect()) {
+            for (int from = 0; from < keys.size(); from += batchSize) {
+                List<String> chunk = keys.subList(from, Math.min(from + batchSize, keys.size()));
+                String sql = "SELECT LOWER(email) FROM students WHERE email IN ("
+                        + String.join(", ", Collections.nCopies(chunk.size(), "?")) + ")";
+                try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                    for (int i = 0; i < chunk.size(); i++) {
+                        pstmt.setString(i + 1, chunk.get(i));
+                    }
+                    try (ResultSet rs = pstmt.executeQuery()) {
+                        while (rs.next()) {
+                            existing.add(rs.getString(1));
+                        }
+                    }
+                }
+            }
+            METRICS.record("getExistingEmails", started);
+            
+        } catch (SQLException e) {
+            METRICS.recordError("getExistingEmails", started);
+            System.err.println("Error checking emails: " + e.getMessage());
+        }
+        return existing;
+    }
+    
+    public int[] getStudentIds() {
+        return queryIds("getStudentIds", "SELECT id FROM students ORDER BY id", new ArrayList<>());
+    }
+    
+    // Ids of the students matching the predicate, ascending; the whole predicate runs in SQL
+    public int[] findStudentIds(StudentPredicate predicate) {
+        StringBuilder sql = new StringBuilder("SELECT id FROM students WHERE ");
+        List<Object> parameters = new ArrayList<>();
+        appendCondition(predicate, sql, parameters);
+        sql.append(" ORDER BY id");
+        return queryIds("findStudentIds", sql.toString(), parameters);
+    }
+    
+    private static void appendCondition(StudentPredicate predicate, StringBuilder sql, List<Object> parameters) {
+        if (predicate instanceof StudentPredicate.NameContains) {
+            sql.append("LOWER(name) LIKE ? ESCAPE '!'");
+            parameters.add(likePattern(((StudentPredicate.NameContains) predicate).getTerm()));
+        } else if (predicate instanceof StudentPredicate.CourseEquals) {
+            sql.append("LOWER(TRIM(course)) = ?");
+            parameters.add(((StudentPredicate.CourseEquals) predicate).getCourse());
+        } else if (predicate instanceof StudentPredicate.AgeBetween) {
+            sql.append("age BETWEEN ? AND ?");
+            parameters.add(((StudentPredicate.AgeBetween) predicate).getMinAge());
+            parameters.add(((StudentPredicate.AgeBetween) predicate).getMaxAge());
+        } else if (predicate instanceof StudentPredicate.EmailStartsWith) {
+            sql.append("email LIKE ? ESCAPE '!'");
+            parameters.add(escapeLike(((StudentPredicate.EmailStartsWith) predicate).getPrefix()) + "%");
+        } else if (predicate instanceof StudentPredicate.And || predicate instanceof StudentPredicate.Or) {
+            boolean and = predicate instanceof StudentPredicate.And;
+            List<StudentPredicate> parts = and
+                    ? ((StudentPredicate.And) predicate).getParts()
+                    : ((StudentPredicate.Or) predicate).getParts();
+            sql.append('(');
+            for (int i = 0; i < parts.size(); i++) {
+                if (i > 0) {
+                    sql.append(and ? " AND " : " OR ");
+                }
+                appendCondition(parts.get(i), sql, parameters);
+            }
+            sql.append(')');
+        } else if (predicate instanceof StudentPredicate.Not) {
+            sql.append("NOT (");
+            appendCondition(((StudentPredicate.Not) predicate).getPart(), sql, parameters);
+            sql.append(')');
+        } else {
+            throw new IllegalArgumentException("Unsupported condition: " + predicate);
+        }
+    }
+    
+    private int[] queryIds(String operation, String sql, List<Object> parameters) {
+        long started = System.nanoTime();
+        int[] ids = new int[1024];
+        int count = 0;
+        
+        try (Connection conn = connect();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            
+            for (int i = 0; i < parameters.size(); i++) {
+                pstmt.setObject(i + 1, parameters.get(i));
+            }
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    if (count == ids.length) {
+                        ids = Arrays.copyOf(ids, count * 2);
+                    }
+                    ids[count++] = rs.getInt(1);
+                }
+            }
+            METRICS.record(operation, started);
+            
+        } catch (SQLException e) {
+            METRICS.recordError(operation, started);
+            System.err.println("Error retrieving student ids: " + e.getMessage());
+        }
+        return Arrays.copyOf(ids, count);
+    }
+    
+    // Distinct courses, with spellings that differ only in case or whitespace reported once
+    public List<String> getCourseNames() {
+        Map<String, String> names = new TreeMap<>();
+        long started = System.nanoTime();
+        
+        try (Connection conn = connect();
+             PreparedStatement pstmt = conn.prepareStatement("SELECT DISTINCT course FROM students");
+             ResultSet rs = pstmt.executeQuery()) {
+            
+            while (rs.next()) {
+                String course = rs.getString(1) == null ? "" : rs.getString(1);
+                names.putIfAbsent(course.trim().toLowerCase(Locale.ROOT), course);
+            }
+            METRICS.record("getCourseNames", started);
+            
+        } catch (SQLException e) {
+            METRICS.recordError("getCourseNames", started);
+            System.err.println("Error retrieving courses: " + e.getMessage());
+        }
+        return new ArrayList<>(names.values());
+    }
+    
+    public int countStudents() {
+        long started = System.nanoTime();
+        
+        try (Connection conn = connect();
+             PreparedStatement pstmt = conn.prepareStatement("SELECT COUNT(*) FROM students");
+             ResultSet rs = pstmt.executeQuery()) {
+            
+            int count = rs.next() ? rs.getInt(1) : 0;
+            METRICS.record("countStudents", started);
+            return count;
+            
+        } catch (SQLException e) {
+            METRICS.recordError("countStudents", started);
+            System.err.println("Error counting students: " + e.getMessage());
+            return 0;
+        }
+    }
+    
+    // Same keys and value types as InMemoryDatabase.getStatistics, aggregated by the database
+    public Map<String, Object> getStatistics() {
+        Map<String, Object> stats = new HashMap<>();
+        long started = System.nanoTime();
+        
+        try (Connection conn = connect();
+             Statement stmt = conn.createStatement()) {
+            
+            long count = 0;
+            long ageSum = 0;
+            long ageSumOfSquares = 0;
+            TreeMap<Integer, Integer> ageHistogram = new TreeMap<>();
+            try (ResultSet rs = stmt.executeQuery("SELECT age, COUNT(*) FROM students GROUP BY age")) {
+                while (rs.next()) {
+                    int age = rs.getInt(1);
+                    int students = rs.getInt(2);
+                    ageHistogram.put(age, students);
+                    count += students;
+                    ageSum += (long) age * students;
+                    ageSumOfSquares += (long) age * age * students;
+                }
+            }
+            
+            // Spellings of one course are merged under the first one returned
+            Map<String, String> displayNames = new HashMap<>();
+            Map<String, Integer> courseCount = new HashMap<>();
+            Map<String, Long> courseAgeSum = new HashMap<>();
+            try (ResultSet rs = stmt.executeQuery("SELECT course, COUNT(*), SUM(age) FROM students GROUP BY course")) {
+                while (rs.next()) {
+                    String course = rs.getString(1) == null ? "" : rs.getString(1);
+                    String name = displayNames.computeIfAbsent(course.trim().toLowerCase(Locale.ROOT), k -> course);
+                    courseCount.merge(name, rs.getInt(2), Integer::sum);
+                    courseAgeSum.merge(name, rs.getLong(3), Long::sum);
+                }
+            }
+            
+            double averageAge = count == 0 ? 0.0 : (double) ageSum / count;
+            double variance = count == 0 ? 0.0 : (double) ageSumOfSquares / count - averageAge * averageAge;
+            Map<String, Double> courseAverageAge = new HashMap<>();
+            for (Map.Entry<String, Integer> entry : courseCount.entrySet()) {
+                courseAverageAge.put(entry.getKey(), (double) courseAgeSum.get(entry.getKey()) / entry.getValue());
+            }
+            stats.put("totalStudents", (int) count);
+            stats.put("averageAge", averageAge);
+            stats.put("ageStdDev", Math.sqrt(Math.max(variance, 0.0)));
+            stats.put("minAge", ageHistogram.isEmpty() ? 0 : ageHistogram.firstKey());
+            stats.put("maxAge", ageHistogram.isEmpty() ? 0 : ageHistogram.lastKey());
+            stats.put("ageHistogram", ageHistogram);
+            stats.put("courseDistribution", courseCount);
+            stats.put("courseAverageAge", courseAverageAge);
+            METRICS.record("getStatistics", started);
+            
+        } catch (SQLException e) {
+            METRICS.recordError("getStatistics", started);
+            System.err.println("Error calculating statistics: " + e.getMessage());
+        }
+        return stats;
+    }
+    
+    private List<Student> queryStudents(String operation, String sql, String parameter) {
+        List<Student> students = new ArrayList<>();
+        long started = System.nanoTime();
+        
+        try (Connection conn = connect();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            
+            pstmt.setString(1, parameter);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                int[] columns = resolveColumns(rs);
+                while (rs.next()) {
+                    students.add(mapRow(rs, columns));
+                }
+            }
+            METRICS.record(operation, started);
+            
+        } catch (SQLException e) {
+            METRICS.recordError(operation, started);
+            System.err.println("Error querying students: " + e.getMessage());
+        }
+        return students;
+    }
+    
+    // Lowercased %term% with the LIKE wildcards in the term escaped by '!'
+    private static String likePattern(String term) {
+        return "%" + escapeLike(term == null ? "" : term.toLowerCase(Locale.ROOT)) + "%";
+    }
+    
+    private static String escapeLike(String value) {
+        return value.replace("!", "!!").replace("%", "!%").replace("_", "!_");
+    }
 }
\ No newline at end of file
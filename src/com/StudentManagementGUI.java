@@ -1,24 +1,93 @@
 import javax.swing.*;
-import javax.swing.table.DefaultTableModel;
 import java.awt.*;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
+import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
-public class StudentManagementGUI extends JFrame {
-    private InMemoryDatabase database;
+// Final so the constructor can wire up listeners on itself before a subclass could be initialized
+public final class StudentManagementGUI extends JFrame {
+    private static final long serialVersionUID = 1L;
+    private static final String ALL_COURSES = "All Courses";
+    // Past this many queued change events the table is reloaded instead, so a burst of changes,
+    // e.g. a large import, cannot pile up in memory while the event dispatch thread is busy
+    private static final int MAX_PENDING_CHANGES = 10_000;
+    
+    // JFrame is Serializable; the window is not, so the store and its services are transient
+    private transient StudentRepository database;
+    private transient StudentService service;
+    // The load, search or filter whose result the table is waiting for; a newer one cancels it
+    private transient CompletableFuture<?> pendingView;
+    // Change events waiting for the event dispatch thread, oldest first
+    private final transient List<ChangeEvent> pendingChanges = new ArrayList<>();
+    // Set when pendingChanges overflowed; its events were dropped and a reload shows them instead.
+    // Guarded by pendingChanges.
+    private boolean reloadPending;
     private JTable studentTable;
-    private DefaultTableModel tableModel;
+    private StudentTableModel tableModel;
     private JTextField idField, nameField, emailField, ageField, courseField, searchField;
     private JButton addButton, updateButton, deleteButton, clearButton, refreshButton, searchButton;
+    private JButton importButton, exportButton;
     private JComboBox<String> filterComboBox;
+    // Set while the course list is being replaced so the change is not taken as a user selection
+    private boolean updatingCourseFilter;
     private JLabel statusLabel;
     
     public StudentManagementGUI() {
-        database = InMemoryDatabase.getInstance();
+        database = StudentRepository.fromSystemProperties();
+        service = new StudentService(database);
         initializeGUI();
         loadStudentData();
+        followChanges();
+    }
+    
+    // Keeps the table in step with changes made anywhere, e.g. by an import or another thread,
+    // when the backend publishes them; otherwise the table is refreshed after this window's edits
+    private void followChanges() {
+        ChangeStream changes = database.getChangeStream();
+        if (changes == null) {
+            return;
+        }
+        // The subscriber only queues the events, so a busy event dispatch thread never holds
+        // writers back; one task at a time drains whatever has queued up
+        changes.subscribe("table", 1024, events -> {
+            boolean drainScheduled;
+            synchronized (pendingChanges) {
+                drainScheduled = reloadPending || !pendingChanges.isEmpty();
+                // While a reload is pending, new events are dropped too: they happened before
+                // the reload starts, so it shows them
+                if (!reloadPending && pendingChanges.size() + events.size() > MAX_PENDING_CHANGES) {
+                    pendingChanges.clear();
+                    reloadPending = true;
+                } else if (!reloadPending) {
+                    pendingChanges.addAll(events);
+                }
+            }
+            if (!drainScheduled) {
+                SwingUtilities.invokeLater(this::applyPendingChanges);
+            }
+        });
+    }
+    
+    private void applyPendingChanges() {
+        List<ChangeEvent> events;
+        boolean reload;
+        synchronized (pendingChanges) {
+            events = new ArrayList<>(pendingChanges);
+            pendingChanges.clear();
+            reload = reloadPending;
+            reloadPending = false;
+        }
+        if (reload) {
+            loadStudentData();
+        } else {
+            tableModel.applyChanges(events);
+        }
     }
     
     private void initializeGUI() {
@@ -64,9 +133,8 @@ public class StudentManagementGUI extends JFrame {
         searchField = new JTextField(20);
         searchButton = new JButton("Search by Name");
         
-        String[] filters = {"All Courses", "Computer Science", "Electrical Engineering", 
-                           "Mechanical Engineering", "Civil Engineering", "Business Administration"};
-        filterComboBox = new JComboBox<>(filters);
+        // Filled from the courses in the database once they have loaded
+        filterComboBox = new JComboBox<>(new String[] {ALL_COURSES});
         
         JButton statsButton = new JButton("Show Statistics");
         
@@ -83,8 +151,12 @@ public class StudentManagementGUI extends JFrame {
         panel.add(searchPanel, BorderLayout.CENTER);
         panel.add(statusLabel, BorderLayout.SOUTH);
         
-        searchButton.addActionListener(e -> searchStudents());
-        filterComboBox.addActionListener(e -> filterByCourse());
+        searchButton.addActionListener(e -> applyFilters());
+        filterComboBox.addActionListener(e -> {
+            if (!updatingCourseFilter) {
+                applyFilters();
+            }
+        });
         statsButton.addActionListener(e -> showStatistics());
         
         return panel;
@@ -121,18 +193,7 @@ public class StudentManagementGUI extends JFrame {
         JPanel panel = new JPanel(new BorderLayout());
         panel.setBorder(BorderFactory.createTitledBorder("Students List"));
         
-        String[] columns = {"ID", "Name", "Email", "Age", "Course"};
-        tableModel = new DefaultTableModel(columns, 0) {
-            @Override
-            public boolean isCellEditable(int row, int column) {
-                return false;
-            }
-            
-            @Override
-            public Class<?> getColumnClass(int columnIndex) {
-                return columnIndex == 0 || columnIndex == 3 ? Integer.class : String.class;
-            }
-        };
+        tableModel = new StudentTableModel(service);
         
         studentTable = new JTable(tableModel);
         studentTable.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
@@ -159,18 +220,24 @@ public class StudentManagementGUI extends JFrame {
         deleteButton = createStyledButton("Delete Student", new Color(200, 0, 0));
         clearButton = createStyledButton("Clear Form", new Color(150, 150, 0));
         refreshButton = createStyledButton("Refresh List", new Color(100, 100, 100));
+        importButton = createStyledButton("Import CSV", new Color(120, 60, 160));
+        exportButton = createStyledButton("Export CSV", new Color(120, 60, 160));
         
         addButton.addActionListener(e -> addStudent());
         updateButton.addActionListener(e -> updateStudent());
         deleteButton.addActionListener(e -> deleteStudent());
         clearButton.addActionListener(e -> clearForm());
         refreshButton.addActionListener(e -> loadStudentData());
+        importButton.addActionListener(e -> importStudents());
+        exportButton.addActionListener(e -> exportStudents());
         
         panel.add(addButton);
         panel.add(updateButton);
         panel.add(deleteButton);
         panel.add(clearButton);
         panel.add(refreshButton);
+        panel.add(importButton);
+        panel.add(exportButton);
         
         return panel;
     }
@@ -209,12 +276,22 @@ public class StudentManagementGUI extends JFrame {
             }
             
             Student student = new Student(0, name, email, age, course);
-            database.addStudent(student);
-            
-            showSuccess("Student added successfully!");
-            clearForm();
-            loadStudentData();
-            updateStatus("Student added: " + name);
+            updateStatus("Adding student: " + name + "...");
+            service.addStudent(student).whenCompleteAsync((added, error) -> {
+                if (error != null) {
+                    handleFailure("Unexpected error: ", error);
+                    return;
+                }
+                showSuccess("Student added successfully!");
+                clearForm();
+                if (tableModel.isShowingAll()) {
+                    tableModel.studentAdded(added);
+                } else {
+                    loadStudentData();
+                }
+                refreshCourseFilter();
+                updateStatus("Student added: " + name);
+            }, StudentService.EDT);
             
         } catch (NumberFormatException e) {
             showError("Please enter a valid number for age!");
@@ -256,12 +333,18 @@ public class StudentManagementGUI extends JFrame {
             }
             
             Student student = new Student(id, name, email, age, course);
-            database.updateStudent(student);
-            
-            showSuccess("Student updated successfully!");
-            clearForm();
-            loadStudentData();
-            updateStatus("Student updated: " + name);
+            updateStatus("Updating student: " + name + "...");
+            service.updateStudent(student).whenCompleteAsync((updated, error) -> {
+                if (error != null) {
+                    handleFailure("Unexpected error: ", error);
+                    return;
+                }
+                showSuccess("Student updated successfully!");
+                clearForm();
+                tableModel.studentUpdated(updated);
+                refreshCourseFilter();
+                updateStatus("Student updated: " + name);
+            }, StudentService.EDT);
             
         } catch (NumberFormatException e) {
             showError("Please enter a valid number for age!");
@@ -288,11 +371,18 @@ public class StudentManagementGUI extends JFrame {
                 "Confirm Delete", JOptionPane.YES_NO_OPTION, JOptionPane.WARNING_MESSAGE);
             
             if (confirm == JOptionPane.YES_OPTION) {
-                database.deleteStudent(id);
-                showSuccess("Student deleted successfully!");
-                clearForm();
-                loadStudentData();
-                updateStatus("Student deleted: " + name);
+                updateStatus("Deleting student: " + name + "...");
+                service.deleteStudent(id).whenCompleteAsync((deleted, error) -> {
+                    if (error != null) {
+                        handleFailure("Unexpected error: ", error);
+                        return;
+                    }
+                    showSuccess("Student deleted successfully!");
+                    clearForm();
+                    tableModel.studentRemoved(id);
+                    refreshCourseFilter();
+                    updateStatus("Student deleted: " + name);
+                }, StudentService.EDT);
             }
             
         } catch (IllegalArgumentException e) {
@@ -302,56 +392,140 @@ public class StudentManagementGUI extends JFrame {
         }
     }
     
-    private void searchStudents() {
-        try {
-            String searchTerm = searchField.getText().trim();
-            if (searchTerm.isEmpty()) {
-                loadStudentData();
-                updateStatus("Showing all students");
-                return;
+    private void importStudents() {
+        JFileChooser chooser = new JFileChooser();
+        if (chooser.showOpenDialog(this) != JFileChooser.APPROVE_OPTION) {
+            return;
+        }
+        Path file = chooser.getSelectedFile().toPath();
+        importButton.setEnabled(false);
+        updateStatus("Importing " + file.getFileName() + "...");
+        service.importCsv(file, (read, imported, rejected) -> SwingUtilities.invokeLater(() ->
+                updateStatus("Importing " + file.getFileName() + ": " + read + " read, "
+                        + imported + " imported, " + rejected + " rejected")))
+                .whenCompleteAsync((report, error) -> {
+                    importButton.setEnabled(true);
+                    if (error != null) {
+                        handleFailure("Import failed: ", error);
+                        return;
+                    }
+                    loadStudentData();
+                    showImportReport(report);
+                }, StudentService.EDT);
+    }
+    
+    private void showImportReport(ImportReport report) {
+        StringBuilder message = new StringBuilder();
+        message.append("Imported ").append(report.getImportedCount()).append(" of ")
+               .append(report.getRecordsRead()).append(" records.");
+        if (report.getRejectedCount() > 0) {
+            message.append("\n").append(report.getRejectedCount()).append(" rejected:");
+            List<ImportReport.RejectedRow> rows = report.getRejectedRows();
+            for (int i = 0; i < Math.min(rows.size(), 10); i++) {
+                message.append("\n").append(rows.get(i));
+            }
+            if (report.getRejectedCount() > 10) {
+                message.append("\n...");
             }
-            
-            List<Student> students = database.searchStudentsByName(searchTerm);
-            displayStudents(students);
-            updateStatus("Found " + students.size() + " students matching: " + searchTerm);
-            
-        } catch (Exception e) {
-            showError("Error during search: " + e.getMessage());
         }
+        JOptionPane.showMessageDialog(this, message.toString(), "Import Complete",
+                report.getRejectedCount() > 0 ? JOptionPane.WARNING_MESSAGE : JOptionPane.INFORMATION_MESSAGE);
+        updateStatus(report.toString());
     }
     
-    private void filterByCourse() {
+    private void exportStudents() {
+        JFileChooser chooser = new JFileChooser();
+        if (chooser.showSaveDialog(this) != JFileChooser.APPROVE_OPTION) {
+            return;
+        }
+        Path file = chooser.getSelectedFile().toPath();
+        exportButton.setEnabled(false);
+        updateStatus("Exporting to " + file.getFileName() + "...");
+        service.exportCsv(file, exported -> SwingUtilities.invokeLater(() ->
+                updateStatus("Exporting to " + file.getFileName() + ": " + exported + " students")))
+                .whenCompleteAsync((exported, error) -> {
+                    exportButton.setEnabled(true);
+                    if (error != null) {
+                        handleFailure("Export failed: ", error);
+                        return;
+                    }
+                    updateStatus("Exported " + exported + " students to " + file.getFileName());
+                }, StudentService.EDT);
+    }
+    
+    // The search term and the selected course narrow the table together
+    private void applyFilters() {
         try {
+            String searchTerm = searchField.getText().trim();
             String selectedCourse = (String) filterComboBox.getSelectedItem();
-            if ("All Courses".equals(selectedCourse)) {
+            boolean byCourse = selectedCourse != null && !ALL_COURSES.equals(selectedCourse);
+            if (searchTerm.isEmpty() && !byCourse) {
                 loadStudentData();
-                updateStatus("Showing all students");
                 return;
             }
             
-            List<Student> students = database.getStudentsByCourse(selectedCourse);
-            displayStudents(students);
-            updateStatus("Showing " + students.size() + " students in: " + selectedCourse);
+            StudentPredicate predicate;
+            String description;
+            if (searchTerm.isEmpty()) {
+                predicate = StudentPredicate.courseEquals(selectedCourse);
+                description = "in: " + selectedCourse;
+            } else if (!byCourse) {
+                predicate = StudentPredicate.nameContains(searchTerm);
+                description = "matching: " + searchTerm;
+            } else {
+                predicate = StudentPredicate.and(StudentPredicate.nameContains(searchTerm),
+                        StudentPredicate.courseEquals(selectedCourse));
+                description = "matching: " + searchTerm + " in: " + selectedCourse;
+            }
+            
+            updateStatus("Searching for students " + description + "...");
+            CompletableFuture<int[]> query = startViewQuery(service.findStudentIds(predicate));
+            query.whenCompleteAsync((ids, error) -> {
+                if (query != pendingView) {
+                    return;
+                }
+                if (error != null) {
+                    handleFailure("Error during search: ", error);
+                    return;
+                }
+                tableModel.showMatches(ids);
+                updateStatus("Found " + ids.length + " students " + description);
+            }, StudentService.EDT);
             
         } catch (Exception e) {
-            showError("Error during filtering: " + e.getMessage());
+            showError("Error during search: " + e.getMessage());
         }
     }
     
     private void showStatistics() {
+        updateStatus("Calculating statistics...");
+        service.getStatistics().whenCompleteAsync((stats, error) -> {
+            if (error != null) {
+                handleFailure("Error generating statistics: ", error);
+                return;
+            }
+            displayStatistics(stats);
+        }, StudentService.EDT);
+    }
+    
+    private void displayStatistics(Map<String, Object> stats) {
         try {
-            Map<String, Object> stats = database.getStatistics();
             StringBuilder statsText = new StringBuilder();
             statsText.append("=== STUDENT STATISTICS ===\n\n");
             statsText.append("Total Students: ").append(stats.get("totalStudents")).append("\n\n");
             
-            statsText.append("Average Age: ").append(String.format("%.1f", stats.get("averageAge"))).append("\n\n");
+            statsText.append("Average Age: ").append(String.format("%.1f", stats.get("averageAge")));
+            statsText.append(" (min ").append(stats.get("minAge")).append(", max ").append(stats.get("maxAge"));
+            statsText.append(", std dev ").append(String.format("%.1f", stats.get("ageStdDev"))).append(")\n\n");
             
             @SuppressWarnings("unchecked")
             Map<String, Integer> courseDist = (Map<String, Integer>) stats.get("courseDistribution");
+            @SuppressWarnings("unchecked")
+            Map<String, Double> courseAges = (Map<String, Double>) stats.get("courseAverageAge");
             statsText.append("Course Distribution:\n");
             for (Map.Entry<String, Integer> entry : courseDist.entrySet()) {
-                statsText.append("  - ").append(entry.getKey()).append(": ").append(entry.getValue()).append(" students\n");
+                statsText.append("  - ").append(entry.getKey()).append(": ").append(entry.getValue()).append(" students");
+                statsText.append(String.format(" (avg age %.1f)", courseAges.get(entry.getKey()))).append("\n");
             }
             
             JOptionPane.showMessageDialog(this, statsText.toString(), 
@@ -367,19 +541,19 @@ public class StudentManagementGUI extends JFrame {
         try {
             int selectedRow = studentTable.getSelectedRow();
             if (selectedRow != -1) {
-                int id = (int) tableModel.getValueAt(selectedRow, 0);
-                String name = (String) tableModel.getValueAt(selectedRow, 1);
-                String email = (String) tableModel.getValueAt(selectedRow, 2);
-                int age = (int) tableModel.getValueAt(selectedRow, 3);
-                String course = (String) tableModel.getValueAt(selectedRow, 4);
+                Student student = tableModel.getStudentAt(selectedRow);
+                if (student == null) {
+                    // The row's page is still loading
+                    return;
+                }
                 
-                idField.setText(String.valueOf(id));
-                nameField.setText(name);
-                emailField.setText(email);
-                ageField.setText(String.valueOf(age));
-                courseField.setText(course);
+                idField.setText(String.valueOf(student.getId()));
+                nameField.setText(student.getName());
+                emailField.setText(student.getEmail());
+                ageField.setText(String.valueOf(student.getAge()));
+                courseField.setText(student.getCourse());
                 
-                updateStatus("Selected student: " + name);
+                updateStatus("Selected student: " + student.getName());
             }
         } catch (Exception e) {
             System.err.println("Error displaying student: " + e.getMessage());
@@ -388,25 +562,69 @@ public class StudentManagementGUI extends JFrame {
     
     private void loadStudentData() {
         try {
-            List<Student> students = database.getAllStudents();
-            displayStudents(students);
-            updateStatus("Loaded " + students.size() + " students");
+            updateStatus("Loading students...");
+            CompletableFuture<int[]> query = startViewQuery(service.getStudentIds());
+            query.whenCompleteAsync((ids, error) -> {
+                if (query != pendingView) {
+                    return;
+                }
+                if (error != null) {
+                    handleFailure("Error loading student data: ", error);
+                    return;
+                }
+                tableModel.showAll(ids);
+                refreshCourseFilter();
+                updateStatus("Loaded " + ids.length + " students");
+            }, StudentService.EDT);
             
         } catch (Exception e) {
             showError("Error loading student data: " + e.getMessage());
         }
     }
     
-    private void displayStudents(List<Student> students) {
-        tableModel.setRowCount(0);
-        for (Student student : students) {
-            tableModel.addRow(new Object[]{
-                student.getId(),
-                student.getName(),
-                student.getEmail(),
-                student.getAge(),
-                student.getCourse()
-            });
+    // Rebuilds the course filter from the courses that currently have students,
+    // keeping the selected course if it is still present
+    private void refreshCourseFilter() {
+        service.getCourseNames().whenCompleteAsync((courses, error) -> {
+            if (error != null) {
+                handleFailure("Error loading courses: ", error);
+                return;
+            }
+            Object selected = filterComboBox.getSelectedItem();
+            DefaultComboBoxModel<String> model = new DefaultComboBoxModel<>();
+            model.addElement(ALL_COURSES);
+            for (String course : courses) {
+                model.addElement(course);
+            }
+            if (courses.contains(selected)) {
+                model.setSelectedItem(selected);
+            }
+            updatingCourseFilter = true;
+            try {
+                filterComboBox.setModel(model);
+            } finally {
+                updatingCourseFilter = false;
+            }
+        }, StudentService.EDT);
+    }
+    
+    private <T> CompletableFuture<T> startViewQuery(CompletableFuture<T> query) {
+        if (pendingView != null) {
+            pendingView.cancel(true);
+        }
+        pendingView = query;
+        return query;
+    }
+    
+    private void handleFailure(String prefix, Throwable error) {
+        Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+        if (cause instanceof CancellationException) {
+            return;
+        }
+        if (cause instanceof IllegalArgumentException) {
+            showError(cause.getMessage());
+        } else {
+            showError(prefix + cause.getMessage());
         }
     }
     
@@ -0,0 +1,89 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Collection;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+// Durable storage for InMemoryDatabase: a write-ahead log of every mutation plus periodic snapshots
+public class StudentPersistence implements Closeable {
+    private final WriteAheadLog log;
+    private final SnapshotStore snapshots;
+    private final long snapshotIntervalMillis;
+    private ScheduledExecutorService scheduler;
+    private boolean hasHistory;
+    private int recoveredNextId = 1;
+
+    public StudentPersistence(Path directory, FsyncPolicy fsyncPolicy, long fsyncIntervalMillis, long snapshotIntervalMillis) {
+        this.log = new WriteAheadLog(directory, fsyncPolicy, fsyncIntervalMillis);
+        this.snapshots = new SnapshotStore(directory);
+        this.snapshotIntervalMillis = snapshotIntervalMillis;
+    }
+
+    // Persistence is enabled by -Dstudentdb.dataDir=<dir>; returns null when it is not set
+    public static StudentPersistence fromSystemProperties() {
+        String dataDir = System.getProperty("studentdb.dataDir");
+        if (dataDir == null || dataDir.trim().isEmpty()) {
+            return null;
+        }
+        FsyncPolicy policy = FsyncPolicy.valueOf(System.getProperty("studentdb.wal.fsync", "ALWAYS").toUpperCase());
+        long fsyncInterval = Long.getLong("studentdb.wal.fsyncIntervalMillis", 100);
+        long snapshotInterval = Long.getLong("studentdb.snapshot.intervalMillis", 5 * 60 * 1000);
+        return new StudentPersistence(Paths.get(dataDir), policy, fsyncInterval, snapshotInterval);
+    }
+
+    // Loads the latest snapshot, replays the log written after it and opens the log for appends
+    public void recover(WriteAheadLog.ReplayHandler handler) throws IOException {
+        hasHistory = log.hasSegments();
+        long snapshotSeq = 0;
+        SnapshotStore.Header header = snapshots.load(handler);
+        if (header != null) {
+            hasHistory = true;
+            snapshotSeq = header.getSeq();
+            recoveredNextId = header.getNextId();
+        }
+        long lastSeq = log.replay(snapshotSeq, handler);
+        log.open(lastSeq);
+    }
+
+    // True when recovery found a snapshot or log, even if it left the store empty
+    public boolean hasHistory() {
+        return hasHistory;
+    }
+
+    public int getRecoveredNextId() {
+        return recoveredNextId;
+    }
+
+    public WriteAheadLog getLog() {
+        return log;
+    }
+
+    public void writeSnapshot(long seq, int nextId, Collection<Student> students) throws IOException {
+        snapshots.write(seq, nextId, students);
+        log.deleteSegmentsUpTo(seq);
+    }
+
+    public synchronized void scheduleSnapshots(Runnable checkpoint) {
+        if (scheduler != null || snapshotIntervalMillis <= 0) {
+            return;
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "snapshot-writer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(checkpoint, snapshotIntervalMillis, snapshotIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (scheduler != null) {
+            scheduler.shutdown();
+            scheduler = null;
+        }
+        log.close();
+    }
+}
@@ -0,0 +1,226 @@
+import java.util.*;
+
+// A condition on students built from name, course, age and email tests combined with and, or
+// and not.
+// InMemoryDatabase plans it against its indexes and StudentDAO turns it into a WHERE clause;
+// test checks a single student and is what every plan is verified against.
+public abstract class StudentPredicate {
+    public abstract boolean test(Student student);
+
+    // Case-insensitive substring of the name, like searchStudentsByName
+    public static StudentPredicate nameContains(String term) {
+        return new NameContains(term);
+    }
+
+    // Course equal ignoring case and surrounding whitespace, like getStudentsByExactCourse
+    public static StudentPredicate courseEquals(String course) {
+        return new CourseEquals(course);
+    }
+
+    // Inclusive at both ends
+    public static StudentPredicate ageBetween(int minAge, int maxAge) {
+        return new AgeBetween(minAge, maxAge);
+    }
+
+    // Case-insensitive prefix of the email
+    public static StudentPredicate emailStartsWith(String prefix) {
+        return new EmailStartsWith(prefix);
+    }
+
+    public static StudentPredicate and(StudentPredicate... parts) {
+        return new And(Arrays.asList(parts));
+    }
+
+    public static StudentPredicate or(StudentPredicate... parts) {
+        return new Or(Arrays.asList(parts));
+    }
+
+    public static StudentPredicate not(StudentPredicate part) {
+        return new Not(part);
+    }
+
+    public static final class NameContains extends StudentPredicate {
+        private final String term;
+
+        NameContains(String term) {
+            if (term == null) {
+                throw new IllegalArgumentException("Search term cannot be null");
+            }
+            this.term = term.toLowerCase(Locale.ROOT);
+        }
+
+        // Lowercased
+        public String getTerm() { return term; }
+
+        @Override
+        public boolean test(Student student) {
+            return student.getName() != null && student.getName().toLowerCase(Locale.ROOT).contains(term);
+        }
+
+        @Override
+        public String toString() {
+            return "name contains '" + term + "'";
+        }
+    }
+
+    public static final class CourseEquals extends StudentPredicate {
+        private final String course;
+
+        CourseEquals(String course) {
+            this.course = StudentQuery.normalize(course);
+        }
+
+        // Trimmed and lowercased
+        public String getCourse() { return course; }
+
+        @Override
+        public boolean test(Student student) {
+            return course.equals(StudentQuery.normalize(student.getCourse()));
+        }
+
+        @Override
+        public String toString() {
+            return "course = '" + course + "'";
+        }
+    }
+
+    public static final class AgeBetween extends StudentPredicate {
+        private final int minAge;
+        private final int maxAge;
+
+        AgeBetween(int minAge, int maxAge) {
+            if (minAge > maxAge) {
+                throw new IllegalArgumentException("Minimum age cannot be greater than maximum age");
+            }
+            this.minAge = minAge;
+            this.maxAge = maxAge;
+        }
+
+        public int getMinAge() { return minAge; }
+        public int getMaxAge() { return maxAge; }
+
+        @Override
+        public boolean test(Student student) {
+            return student.getAge() >= minAge && student.getAge() <= maxAge;
+        }
+
+        @Override
+        public String toString() {
+            return "age " + minAge + "-" + maxAge;
+        }
+    }
+
+    public static final class EmailStartsWith extends StudentPredicate {
+        private final String prefix;
+
+        EmailStartsWith(String prefix) {
+            this.prefix = StudentQuery.normalize(prefix);
+        }
+
+        // Trimmed and lowercased
+        public String getPrefix() { return prefix; }
+
+        @Override
+        public boolean test(Student student) {
+            return student.getEmail() != null && StudentQuery.normalize(student.getEmail()).startsWith(prefix);
+        }
+
+        @Override
+        public String toString() {
+            return "email starts with '" + prefix + "'";
+        }
+    }
+
+    public static final class And extends StudentPredicate {
+        private final List<StudentPredicate> parts;
+
+        And(List<StudentPredicate> parts) {
+            this.parts = checkParts(parts);
+        }
+
+        public List<StudentPredicate> getParts() { return parts; }
+
+        @Override
+        public boolean test(Student student) {
+            for (StudentPredicate part : parts) {
+                if (!part.test(student)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public String toString() {
+            return join(parts, " AND ");
+        }
+    }
+
+    public static final class Or extends StudentPredicate {
+        private final List<StudentPredicate> parts;
+
+        Or(List<StudentPredicate> parts) {
+            this.parts = checkParts(parts);
+        }
+
+        public List<StudentPredicate> getParts() { return parts; }
+
+        @Override
+        public boolean test(Student student) {
+            for (StudentPredicate part : parts) {
+                if (part.test(student)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        @Override
+        public String toString() {
+            return join(parts, " OR ");
+        }
+    }
+
+    public static final class Not extends StudentPredicate {
+        private final StudentPredicate part;
+
+        Not(StudentPredicate part) {
+            if (part == null) {
+                throw new IllegalArgumentException("Condition cannot be null");
+            }
+            this.part = part;
+        }
+
+        public StudentPredicate getPart() { return part; }
+
+        @Override
+        public boolean test(Student student) {
+            return !part.test(student);
+        }
+
+        @Override
+        public String toString() {
+            return "NOT " + part;
+        }
+    }
+
+    private static List<StudentPredicate> checkParts(List<StudentPredicate> parts) {
+        if (parts.isEmpty()) {
+            throw new IllegalArgumentException("At least one condition is required");
+        }
+        for (StudentPredicate part : parts) {
+            if (part == null) {
+                throw new IllegalArgumentException("Condition cannot be null");
+            }
+        }
+        return Collections.unmodifiableList(new ArrayList<>(parts));
+    }
+
+    private static String join(List<StudentPredicate> parts, String operator) {
+        StringJoiner joined = new StringJoiner(operator, "(", ")");
+        for (StudentPredicate part : parts) {
+            joined.add(part.toString());
+        }
+        return joined.toString();
+    }
+}
@@ -0,0 +1,112 @@
+import java.util.Comparator;
+import java.util.Locale;
+
+// Filter, order and page for StudentRepository.findStudents. Filters left unset match every
+// student; results are ordered by id unless another order is set, with ties broken by id.
+public class StudentQuery {
+    public enum OrderBy { ID, NAME, AGE }
+
+    private Integer minAge;
+    private Integer maxAge;
+    private String course;
+    private OrderBy orderBy = OrderBy.ID;
+    private boolean descending;
+    private int offset;
+    private int limit = Integer.MAX_VALUE;
+
+    public StudentQuery() {}
+
+    // Getters and Setters
+    public Integer getMinAge() { return minAge; }
+    public void setMinAge(Integer minAge) { this.minAge = minAge; }
+
+    public Integer getMaxAge() { return maxAge; }
+    public void setMaxAge(Integer maxAge) { this.maxAge = maxAge; }
+
+    // Inclusive at both ends
+    public void setAgeRange(int minAge, int maxAge) {
+        if (minAge > maxAge) {
+            throw new IllegalArgumentException("Minimum age cannot be greater than maximum age");
+        }
+        this.minAge = minAge;
+        this.maxAge = maxAge;
+    }
+
+    // Matched like getStudentsByExactCourse: ignoring case and surrounding whitespace
+    public String getCourse() { return course; }
+    public void setCourse(String course) { this.course = course; }
+
+    public OrderBy getOrderBy() { return orderBy; }
+    public void setOrderBy(OrderBy orderBy) {
+        if (orderBy == null) {
+            throw new IllegalArgumentException("Order cannot be null");
+        }
+        this.orderBy = orderBy;
+    }
+
+    public boolean isDescending() { return descending; }
+    public void setDescending(boolean descending) { this.descending = descending; }
+
+    public int getOffset() { return offset; }
+    public void setOffset(int offset) {
+        if (offset < 0) {
+            throw new IllegalArgumentException("Offset cannot be negative");
+        }
+        this.offset = offset;
+    }
+
+    public int getLimit() { return limit; }
+    public void setLimit(int limit) {
+        if (limit <= 0) {
+            throw new IllegalArgumentException("Limit must be positive");
+        }
+        this.limit = limit;
+    }
+
+    // Sets offset and limit for the given zero-based page
+    public void setPage(int page, int pageSize) {
+        setLimit(pageSize);
+        setOffset(Math.multiplyExact(page, pageSize));
+    }
+
+    public int getLowestAge() {
+        return minAge == null ? Integer.MIN_VALUE : minAge;
+    }
+
+    public int getHighestAge() {
+        return maxAge == null ? Integer.MAX_VALUE : maxAge;
+    }
+
+    public boolean matches(Student student) {
+        if (student.getAge() < getLowestAge() || student.getAge() > getHighestAge()) {
+            return false;
+        }
+        return course == null || normalize(course).equals(normalize(student.getCourse()));
+    }
+
+    public Comparator<Student> comparator() {
+        Comparator<Student> order;
+        switch (orderBy) {
+            case NAME:
+                order = Comparator.comparing((Student s) -> normalize(s.getName())).thenComparingInt(Student::getId);
+                break;
+            case AGE:
+                order = Comparator.comparingInt(Student::getAge).thenComparingInt(Student::getId);
+                break;
+            default:
+                order = Comparator.comparingInt(Student::getId);
+        }
+        return descending ? order.reversed() : order;
+    }
+
+    // Names are ordered by this form; course filters compare it too
+    public static String normalize(String value) {
+        return value == null ? "" : value.trim().toLowerCase(Locale.ROOT);
+    }
+
+    @Override
+    public String toString() {
+        return "StudentQuery: age " + minAge + "-" + maxAge + ", course " + course + ", order by " + orderBy
+                + (descending ? " desc" : "") + ", offset " + offset + ", limit " + limit;
+    }
+}
@@ -0,0 +1,100 @@
+import java.util.*;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+// Caches name search and course filter results keyed by the normalized query. A change only
+// evicts the entries whose query matches the student before or after the change, so edits to
+// one course leave the cached results for other courses in place.
+public class StudentQueryCache implements StudentChangeListener {
+    private final LruCache<String, List<Student>> byName;
+    private final LruCache<String, List<Student>> byCourse;
+    private final LruCache<String, List<Student>> byExactCourse;
+    private final StoreMetrics metrics;
+
+    public StudentQueryCache(int maxEntries, long ttlMillis, StoreMetrics metrics) {
+        byName = new LruCache<>(maxEntries, ttlMillis);
+        byCourse = new LruCache<>(maxEntries, ttlMillis);
+        byExactCourse = new LruCache<>(maxEntries, ttlMillis);
+        this.metrics = metrics;
+    }
+
+    // Size and time to live come from studentdb.cache.size and studentdb.cache.ttlMillis;
+    // a size of 0 turns caching off
+    public static StudentQueryCache fromSystemProperties(StoreMetrics metrics) {
+        int size = Integer.getInteger("studentdb.cache.size", 256);
+        long ttlMillis = Long.getLong("studentdb.cache.ttlMillis", 60_000);
+        return new StudentQueryCache(size, ttlMillis, metrics);
+    }
+
+    public List<Student> searchByName(String name, Supplier<List<Student>> query) {
+        return lookup(byName, "queryCache.name", normalizeName(name), query);
+    }
+
+    public List<Student> filterByCourse(String course, Supplier<List<Student>> query) {
+        return lookup(byCourse, "queryCache.course", normalizeCourse(course), query);
+    }
+
+    public List<Student> filterByExactCourse(String course, Supplier<List<Student>> query) {
+        return lookup(byExactCourse, "queryCache.exactCourse", normalizeCourse(course), query);
+    }
+
+    @Override
+    public void studentChanged(Student before, Student after) {
+        byName.invalidateIf(term -> nameMatches(before, term) || nameMatches(after, term));
+        byCourse.invalidateIf(affectedCourses(before, after, (course, term) -> course.contains(term)));
+        byExactCourse.invalidateIf(affectedCourses(before, after, String::equals));
+    }
+
+    @Override
+    public void allStudentsCleared() {
+        byName.clear();
+        byCourse.clear();
+        byExactCourse.clear();
+    }
+
+    public Map<String, Object> getStatistics() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("name", byName.getStatistics());
+        stats.put("course", byCourse.getStatistics());
+        stats.put("exactCourse", byExactCourse.getStatistics());
+        return stats;
+    }
+
+    // Callers get their own list, so changing it cannot corrupt the cached copy
+    private List<Student> lookup(LruCache<String, List<Student>> cache, String counter, String key,
+                                 Supplier<List<Student>> query) {
+        List<Student> cached = cache.get(key);
+        if (cached != null) {
+            metrics.increment(counter + ".hits");
+            return new ArrayList<>(cached);
+        }
+        metrics.increment(counter + ".misses");
+        long version = cache.getVersion();
+        List<Student> result = query.get();
+        cache.putIfVersion(key, Collections.unmodifiableList(new ArrayList<>(result)), version);
+        return result;
+    }
+
+    private static boolean nameMatches(Student student, String term) {
+        return student != null && student.getName() != null && normalizeName(student.getName()).contains(term);
+    }
+
+    private interface CourseMatch {
+        boolean test(String course, String term);
+    }
+
+    private static Predicate<String> affectedCourses(Student before, Student after, CourseMatch match) {
+        String beforeCourse = before == null ? null : normalizeCourse(before.getCourse());
+        String afterCourse = after == null ? null : normalizeCourse(after.getCourse());
+        return term -> (beforeCourse != null && match.test(beforeCourse, term))
+                || (afterCourse != null && match.test(afterCourse, term));
+    }
+
+    private static String normalizeName(String name) {
+        return name.toLowerCase(Locale.ROOT);
+    }
+
+    private static String normalizeCourse(String course) {
+        return course == null ? "" : course.trim().toLowerCase(Locale.ROOT);
+    }
+}
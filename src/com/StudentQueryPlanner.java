@@ -0,0 +1,209 @@
+import java.util.*;
+import java.util.function.Supplier;
+
+// Decides how InMemoryDatabase answers a StudentPredicate. Every indexed condition estimates
+// its matches from index sizes alone. An AND starts from its most selective condition and
+// intersects the others that are cheap enough to read, and subtracts a negated part whose
+// index gives its matches exactly; an OR unions its parts when each of them has an index;
+// anything else checks every student, on a ParallelScan once the store is large. Candidates
+// are compressed id bitmaps, so AND, OR and ANDNOT run a container at a time and results come
+// out in id order. Candidates are always checked against the whole predicate, which also
+// covers concurrent edits.
+public class StudentQueryPlanner {
+    // An AND also intersects a condition expected to match up to this many times as many
+    // students as its most selective one; reading a larger one costs more than it saves
+    private static final int INTERSECT_FACTOR = 4;
+
+    private final Map<Integer, Student> students;
+    private final NameIndex nameIndex;
+    private final CourseIndex courseIndex;
+    private final AgeIndex ageIndex;
+    private final EmailPrefixIndex emailIndex;
+    private final ParallelScan scan;
+    private final StoreMetrics metrics;
+
+    public StudentQueryPlanner(Map<Integer, Student> students, NameIndex nameIndex, CourseIndex courseIndex,
+                               AgeIndex ageIndex, EmailPrefixIndex emailIndex, ParallelScan scan,
+                               StoreMetrics metrics) {
+        this.students = students;
+        this.nameIndex = nameIndex;
+        this.courseIndex = courseIndex;
+        this.ageIndex = ageIndex;
+        this.emailIndex = emailIndex;
+        this.scan = scan;
+        this.metrics = metrics;
+    }
+
+    public QueryResult plan(StudentPredicate predicate) {
+        Plan plan = planFor(predicate);
+        IdBitmap candidates;
+        String description;
+        if (plan == null && scan.isParallel(students.size())) {
+            // A large store is checked up front on every scan thread; the matches are still
+            // checked again as they are read, in case they changed in between
+            metrics.increment("planner.parallelScans");
+            candidates = scan.ids(students.values(), predicate::test, Student::getId);
+            description = "parallel scan";
+        } else if (plan == null) {
+            metrics.increment("planner.scans");
+            candidates = new IdBitmap();
+            for (Integer id : students.keySet()) {
+                candidates.add(id);
+            }
+            description = "scan";
+        } else {
+            metrics.increment("planner.indexPlans");
+            candidates = plan.candidates.get();
+            description = plan.description;
+        }
+        int count = candidates.getCardinality();
+        metrics.add("planner.candidates", count);
+        // Matches are handed out as copies, like every other read of InMemoryDatabase
+        return new QueryResult(candidates::iterator, id -> {
+            Student student = students.get(id);
+            return student == null ? null : new Student(student);
+        }, predicate,
+                description + ": " + count + " candidates checked against " + predicate);
+    }
+
+    // Null when the predicate has no index to start from
+    private Plan planFor(StudentPredicate predicate) {
+        if (predicate instanceof StudentPredicate.NameContains) {
+            String term = ((StudentPredicate.NameContains) predicate).getTerm();
+            int estimate = nameIndex.estimate(term);
+            if (estimate < 0) {
+                return null;
+            }
+            // Gram postings hold every match but may hold names that only share the grams
+            return new Plan(estimate, false, "name grams '" + term + "'", () -> nameIndex.candidates(term));
+        }
+        if (predicate instanceof StudentPredicate.CourseEquals) {
+            String course = ((StudentPredicate.CourseEquals) predicate).getCourse();
+            return new Plan(courseIndex.count(course), true, "course index", () -> courseIndex.ids(course));
+        }
+        if (predicate instanceof StudentPredicate.AgeBetween) {
+            StudentPredicate.AgeBetween range = (StudentPredicate.AgeBetween) predicate;
+            return new Plan(ageIndex.count(range.getMinAge(), range.getMaxAge()), true, "age index",
+                    () -> ageIndex.ids(range.getMinAge(), range.getMaxAge()));
+        }
+        if (predicate instanceof StudentPredicate.EmailStartsWith) {
+            String prefix = ((StudentPredicate.EmailStartsWith) predicate).getPrefix();
+            // Counting a long run of emails would cost as much as reading it, so stop early;
+            // a capped count still ranks the prefix behind anything more selective
+            int cap = Math.max(1024, students.size() / 64);
+            return new Plan(emailIndex.count(prefix, cap), true, "email index", () -> emailIndex.ids(prefix));
+        }
+        if (predicate instanceof StudentPredicate.And) {
+            return planAnd(((StudentPredicate.And) predicate).getParts());
+        }
+        if (predicate instanceof StudentPredicate.Or) {
+            return planOr(((StudentPredicate.Or) predicate).getParts());
+        }
+        return null;
+    }
+
+    private Plan planAnd(List<StudentPredicate> parts) {
+        List<Plan> plans = new ArrayList<>();
+        List<Plan> excluded = new ArrayList<>();
+        boolean allPlanned = true;
+        for (StudentPredicate part : parts) {
+            if (part instanceof StudentPredicate.Not) {
+                Plan negated = planFor(((StudentPredicate.Not) part).getPart());
+                // Subtracting a superset of the matches would drop students that belong
+                if (negated != null && negated.exact) {
+                    excluded.add(negated);
+                }
+                allPlanned = false;
+                continue;
+            }
+            Plan plan = planFor(part);
+            if (plan != null) {
+                plans.add(plan);
+            } else {
+                allPlanned = false;
+            }
+        }
+        if (plans.isEmpty()) {
+            return null;
+        }
+        plans.sort(Comparator.comparingLong(plan -> plan.estimate));
+        long driving = plans.get(0).estimate;
+        List<Plan> used = new ArrayList<>();
+        for (Plan plan : plans) {
+            if (used.isEmpty() || plan.estimate <= INTERSECT_FACTOR * driving) {
+                used.add(plan);
+            }
+        }
+        List<Plan> subtracted = new ArrayList<>();
+        for (Plan plan : excluded) {
+            if (plan.estimate <= INTERSECT_FACTOR * driving) {
+                subtracted.add(plan);
+            }
+        }
+        boolean exact = allPlanned && used.size() == plans.size();
+        if (used.size() == 1 && subtracted.isEmpty()) {
+            Plan only = used.get(0);
+            return exact ? only : new Plan(only.estimate, false, only.description, only.candidates);
+        }
+        StringJoiner description = new StringJoiner(" AND ", "(", ")");
+        for (Plan plan : used) {
+            exact &= plan.exact;
+            description.add(plan.description);
+        }
+        for (Plan plan : subtracted) {
+            description.add("NOT " + plan.description);
+        }
+        return new Plan(driving, exact, description.toString(), () -> {
+            IdBitmap ids = used.get(0).candidates.get();
+            for (int i = 1; i < used.size() && !ids.isEmpty(); i++) {
+                ids = IdBitmap.and(ids, used.get(i).candidates.get());
+            }
+            for (int i = 0; i < subtracted.size() && !ids.isEmpty(); i++) {
+                ids = IdBitmap.andNot(ids, subtracted.get(i).candidates.get());
+            }
+            return ids;
+        });
+    }
+
+    private Plan planOr(List<StudentPredicate> parts) {
+        List<Plan> plans = new ArrayList<>();
+        long estimate = 0;
+        for (StudentPredicate part : parts) {
+            Plan plan = planFor(part);
+            if (plan == null) {
+                // One unindexed branch can match anyone, so only a scan finds its students
+                return null;
+            }
+            plans.add(plan);
+            estimate += plan.estimate;
+        }
+        boolean exact = true;
+        StringJoiner description = new StringJoiner(" OR ", "(", ")");
+        for (Plan plan : plans) {
+            exact &= plan.exact;
+            description.add(plan.description);
+        }
+        return new Plan(Math.min(estimate, students.size()), exact, description.toString(), () -> {
+            IdBitmap ids = new IdBitmap();
+            for (Plan plan : plans) {
+                ids = IdBitmap.or(ids, plan.candidates.get());
+            }
+            return ids;
+        });
+    }
+
+    private static final class Plan {
+        final long estimate;
+        // Whether the candidates are exactly the matches rather than a superset of them
+        final boolean exact;
+        final String description;
+        final Supplier<IdBitmap> candidates;
+
+        Plan(long estimate, boolean exact, String description, Supplier<IdBitmap> candidates) {
+            this.estimate = estimate;
+            this.exact = exact;
+            this.description = description;
+            this.candidates = candidates;
+        }
+    }
+}
@@ -0,0 +1,147 @@
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+// Binary layout of one student record:
+//
+//   int     recordLength   bytes that follow this field
+//   int     id
+//   int     age
+//   varint  nameLength     length + 1, then that many bytes of UTF-8 (0 means null)
+//   varint  emailLength    then the email bytes
+//   varint  courseLength   then the course bytes
+//
+// Ints are big-endian; a varint holds 7 bits per byte, low bits first, with the top bit set
+// on every byte but the last, so fields of any length fit and short ones take one byte.
+// Strings are encoded straight into the target buffer and their size is computed without
+// building a byte[] per field.
+public final class StudentRecordCodec {
+    public static final int FIXED_SIZE = 4 + 4 + 4;
+
+    private static final int ID_OFFSET = 4;
+    private static final int AGE_OFFSET = 8;
+
+    private StudentRecordCodec() {}
+
+    public static int encodedSize(Student student) {
+        return FIXED_SIZE
+                + stringSize(student.getName())
+                + stringSize(student.getEmail())
+                + stringSize(student.getCourse());
+    }
+
+    public static void encode(ByteBuffer buffer, Student student) {
+        int start = buffer.position();
+        buffer.putInt(0);
+        buffer.putInt(student.getId());
+        buffer.putInt(student.getAge());
+        putString(buffer, student.getName());
+        putString(buffer, student.getEmail());
+        putString(buffer, student.getCourse());
+        buffer.putInt(start, buffer.position() - start - 4);
+    }
+
+    // The buffer position is left untouched; the strings are read through a view of it
+    public static Student decode(ByteBuffer buffer, int offset) {
+        ByteBuffer in = buffer.duplicate().position(offset + FIXED_SIZE);
+        String name = getString(in);
+        String email = getString(in);
+        String course = getString(in);
+        return new Student(buffer.getInt(offset + ID_OFFSET), name, email, buffer.getInt(offset + AGE_OFFSET), course);
+    }
+
+    static int utf8Length(String value) {
+        if (value == null) {
+            return 0;
+        }
+        int length = 0;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c < 0x80) {
+                length++;
+            } else if (c < 0x800) {
+                length += 2;
+            } else if (Character.isHighSurrogate(c) && i + 1 < value.length()
+                    && Character.isLowSurrogate(value.charAt(i + 1))) {
+                length += 4;
+                i++;
+            } else if (Character.isSurrogate(c)) {
+                length++; // unpaired surrogates are written as '?', as String.getBytes does
+            } else {
+                length += 3;
+            }
+        }
+        return length;
+    }
+
+    private static int stringSize(String value) {
+        int length = utf8Length(value);
+        return varintSize(value == null ? 0 : length + 1) + length;
+    }
+
+    private static int varintSize(int value) {
+        int size = 1;
+        while ((value >>>= 7) != 0) {
+            size++;
+        }
+        return size;
+    }
+
+    private static void putVarint(ByteBuffer buffer, int value) {
+        while ((value & ~0x7F) != 0) {
+            buffer.put((byte) (0x80 | (value & 0x7F)));
+            value >>>= 7;
+        }
+        buffer.put((byte) value);
+    }
+
+    private static int getVarint(ByteBuffer in) {
+        int value = 0;
+        for (int shift = 0; ; shift += 7) {
+            byte b = in.get();
+            value |= (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+    }
+
+    private static void putString(ByteBuffer buffer, String value) {
+        if (value == null) {
+            putVarint(buffer, 0);
+            return;
+        }
+        putVarint(buffer, utf8Length(value) + 1);
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c < 0x80) {
+                buffer.put((byte) c);
+            } else if (c < 0x800) {
+                buffer.put((byte) (0xC0 | (c >> 6)));
+                buffer.put((byte) (0x80 | (c & 0x3F)));
+            } else if (Character.isHighSurrogate(c) && i + 1 < value.length()
+                    && Character.isLowSurrogate(value.charAt(i + 1))) {
+                int codePoint = Character.toCodePoint(c, value.charAt(++i));
+                buffer.put((byte) (0xF0 | (codePoint >> 18)));
+                buffer.put((byte) (0x80 | ((codePoint >> 12) & 0x3F)));
+                buffer.put((byte) (0x80 | ((codePoint >> 6) & 0x3F)));
+                buffer.put((byte) (0x80 | (codePoint & 0x3F)));
+            } else if (Character.isSurrogate(c)) {
+                buffer.put((byte) '?');
+            } else {
+                buffer.put((byte) (0xE0 | (c >> 12)));
+                buffer.put((byte) (0x80 | ((c >> 6) & 0x3F)));
+                buffer.put((byte) (0x80 | (c & 0x3F)));
+            }
+        }
+    }
+
+    private static String getString(ByteBuffer in) {
+        int length = getVarint(in) - 1;
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
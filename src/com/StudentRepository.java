@@ -0,0 +1,136 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+
+// Storage-independent student operations used by the GUI and StudentService. Implementations
+// throw IllegalArgumentException for invalid input, unknown ids and duplicate emails.
+public interface StudentRepository {
+    boolean addStudent(Student student);
+
+    boolean updateStudent(Student student);
+
+    boolean deleteStudent(int id);
+
+    Student getStudentById(int id);
+
+    Student getStudentByEmail(String email);
+
+    List<Student> getAllStudents();
+
+    // Ids of all students in ascending order
+    int[] getStudentIds();
+
+    // The students with the given ids, in ascending id order, leaving out ids with no student.
+    // This version looks each id up on its own; stores with a round-trip per lookup override it.
+    default List<Student> getStudentsById(int[] ids) {
+        List<Student> students = new ArrayList<>(ids.length);
+        for (int id : ids) {
+            Student student = getStudentById(id);
+            if (student != null) {
+                students.add(student);
+            }
+        }
+        students.sort(Comparator.comparingInt(Student::getId));
+        return students;
+    }
+
+    List<Student> searchStudentsByName(String name);
+
+    List<Student> getStudentsByCourse(String course);
+
+    List<Student> getStudentsByExactCourse(String course);
+
+    List<String> getCourseNames();
+
+    Map<String, Object> getStatistics();
+
+    int getSize();
+
+    // Filters, orders and pages by the query. This version sorts every match; stores with
+    // ordered indexes override it.
+    default List<Student> findStudents(StudentQuery query) {
+        List<Student> matches = new ArrayList<>();
+        for (Student student : getAllStudents()) {
+            if (query.matches(student)) {
+                matches.add(student);
+            }
+        }
+        matches.sort(query.comparator());
+        int from = Math.min(query.getOffset(), matches.size());
+        int to = (int) Math.min((long) from + query.getLimit(), matches.size());
+        return new ArrayList<>(matches.subList(from, to));
+    }
+
+    // Checks every student against the predicate as the result is read; stores with indexes or
+    // a query language override it
+    default QueryResult query(StudentPredicate predicate) {
+        int[] ids = getStudentIds();
+        return new QueryResult(() -> Arrays.stream(ids).iterator(), this::getStudentById, predicate,
+                "scan of " + ids.length + " students for " + predicate);
+    }
+
+    // Adds each student on its own; stores with a cheaper bulk path override this. Students
+    // rejected for invalid fields or duplicate emails are reported rather than thrown.
+    default BatchResult addStudents(Collection<Student> students) {
+        BatchResult result = new BatchResult();
+        for (Student student : students) {
+            try {
+                addStudent(student);
+                result.addSuccess(student);
+            } catch (IllegalArgumentException e) {
+                result.addFailure(student, e.getMessage());
+            }
+        }
+        return result;
+    }
+
+    // The given emails that already belong to a student, trimmed and lower-cased
+    default Set<String> getExistingEmails(Collection<String> emails) {
+        Set<String> existing = new HashSet<>();
+        for (String email : emails) {
+            if (email != null && getStudentByEmail(email) != null) {
+                existing.add(email.trim().toLowerCase(Locale.ROOT));
+            }
+        }
+        return existing;
+    }
+
+    // Visits every student in id order without building a list of all of them
+    default void forEachStudent(Consumer<Student> action) {
+        for (int id : getStudentIds()) {
+            Student student = getStudentById(id);
+            if (student != null) {
+                action.accept(student);
+            }
+        }
+    }
+
+    // Ordered feed of this repository's changes; null when the backend does not publish one
+    default ChangeStream getChangeStream() {
+        return null;
+    }
+
+    // Picks the backend named by studentdb.backend: memory (the default), columnar, jdbc or tiered
+    static StudentRepository fromSystemProperties() {
+        String backend = System.getProperty("studentdb.backend", "memory");
+        switch (backend) {
+            case "memory":
+                return InMemoryDatabase.getInstance();
+            case "columnar":
+                return new ColumnarStudentStore();
+            case "jdbc":
+                return new JdbcStudentRepository(CachingStudentDAO.fromSystemProperties());
+            case "tiered":
+                return TieredStudentRepository.fromSystemProperties();
+            default:
+                throw new IllegalArgumentException("Unknown studentdb.backend: " + backend);
+        }
+    }
+}
@@ -0,0 +1,106 @@
+import javax.swing.SwingUtilities;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.function.LongConsumer;
+
+// Runs database calls on virtual threads so the Swing event dispatch thread never waits on the store
+public class StudentService {
+    // Use with the *Async stages of the returned futures to get back onto the EDT
+    public static final Executor EDT = SwingUtilities::invokeLater;
+
+    private final StudentRepository database;
+    private final ExecutorService executor;
+
+    public StudentService(StudentRepository database) {
+        this.database = database;
+        this.executor = Executors.newVirtualThreadPerTaskExecutor();
+    }
+
+    public CompletableFuture<Student> addStudent(Student student) {
+        return submit(() -> {
+            database.addStudent(student);
+            return student;
+        });
+    }
+
+    public CompletableFuture<Student> updateStudent(Student student) {
+        return submit(() -> {
+            database.updateStudent(student);
+            return student;
+        });
+    }
+
+    public CompletableFuture<Integer> deleteStudent(int id) {
+        return submit(() -> {
+            database.deleteStudent(id);
+            return id;
+        });
+    }
+
+    public CompletableFuture<int[]> getStudentIds() {
+        return submit(database::getStudentIds);
+    }
+
+    // The students with the given ids that still exist, for the table to show a page of rows
+    public CompletableFuture<List<Student>> getStudentsById(int[] ids) {
+        return submit(() -> database.getStudentsById(ids));
+    }
+
+    public CompletableFuture<List<Student>> searchStudentsByName(String name) {
+        return submit(() -> database.searchStudentsByName(name));
+    }
+
+    public CompletableFuture<List<Student>> getStudentsByExactCourse(String course) {
+        return submit(() -> database.getStudentsByExactCourse(course));
+    }
+
+    public CompletableFuture<List<Student>> findStudents(StudentQuery query) {
+        return submit(() -> database.findStudents(query));
+    }
+
+    // Ids of every match, ascending, so the table can read the rows as it shows them
+    public CompletableFuture<int[]> findStudentIds(StudentPredicate predicate) {
+        return submit(() -> database.query(predicate).ids());
+    }
+
+    public CompletableFuture<List<String>> getCourseNames() {
+        return submit(database::getCourseNames);
+    }
+
+    public CompletableFuture<Map<String, Object>> getStatistics() {
+        return submit(database::getStatistics);
+    }
+
+    // The progress callbacks run on the worker thread
+    public CompletableFuture<ImportReport> importCsv(Path file, CsvStudentImporter.ProgressListener progress) {
+        return submit(() -> CsvStudentImporter.fromSystemProperties().importFile(file, database, progress));
+    }
+
+    public CompletableFuture<Long> exportCsv(Path file, LongConsumer progress) {
+        return submit(() -> new CsvStudentExporter(10_000).exportFile(file, database, progress));
+    }
+
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    // Cancelling the returned future interrupts the task if it is still running
+    private <T> CompletableFuture<T> submit(Callable<T> task) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        Future<?> work = executor.submit(() -> {
+            try {
+                result.complete(task.call());
+            } catch (Throwable t) {
+                result.completeExceptionally(t);
+            }
+        });
+        result.whenComplete((value, error) -> {
+            if (result.isCancelled()) {
+                work.cancel(true);
+            }
+        });
+        return result;
+    }
+}
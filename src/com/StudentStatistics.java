@@ -0,0 +1,108 @@
+import java.util.*;
+
+// Running aggregates updated on every mutation so a statistics snapshot never rescans students
+public class StudentStatistics {
+    private long count;
+    private long ageSum;
+    private long ageSumOfSquares;
+    private final TreeMap<Integer, Integer> ageHistogram = new TreeMap<>();
+    private final CourseDictionary dictionary;
+    // Per-course totals indexed by dictionary code
+    private int[] courseCounts = new int[16];
+    private long[] courseAgeSums = new long[16];
+
+    public StudentStatistics(CourseDictionary dictionary) {
+        this.dictionary = dictionary;
+    }
+
+    public synchronized void add(Student student) {
+        int age = student.getAge();
+        count++;
+        ageSum += age;
+        ageSumOfSquares += (long) age * age;
+        ageHistogram.merge(age, 1, Integer::sum);
+
+        int code = dictionary.intern(student.getCourse());
+        if (code >= courseCounts.length) {
+            int capacity = Math.max(code + 1, courseCounts.length * 2);
+            courseCounts = Arrays.copyOf(courseCounts, capacity);
+            courseAgeSums = Arrays.copyOf(courseAgeSums, capacity);
+        }
+        courseCounts[code]++;
+        courseAgeSums[code] += age;
+    }
+
+    public synchronized void remove(Student student) {
+        int age = student.getAge();
+        count--;
+        ageSum -= age;
+        ageSumOfSquares -= (long) age * age;
+        ageHistogram.computeIfPresent(age, (k, n) -> n == 1 ? null : n - 1);
+
+        int code = dictionary.codeOf(student.getCourse());
+        if (code >= 0 && code < courseCounts.length) {
+            courseCounts[code]--;
+            courseAgeSums[code] -= age;
+        }
+    }
+
+    public synchronized void replace(Student before, Student after) {
+        remove(before);
+        add(after);
+    }
+
+    // Adds the totals of aggregates kept over the same dictionary, e.g. by another scan segment
+    public synchronized StudentStatistics merge(StudentStatistics other) {
+        synchronized (other) {
+            count += other.count;
+            ageSum += other.ageSum;
+            ageSumOfSquares += other.ageSumOfSquares;
+            other.ageHistogram.forEach((age, n) -> ageHistogram.merge(age, n, Integer::sum));
+            if (other.courseCounts.length > courseCounts.length) {
+                courseCounts = Arrays.copyOf(courseCounts, other.courseCounts.length);
+                courseAgeSums = Arrays.copyOf(courseAgeSums, other.courseCounts.length);
+            }
+            for (int code = 0; code < other.courseCounts.length; code++) {
+                courseCounts[code] += other.courseCounts[code];
+                courseAgeSums[code] += other.courseAgeSums[code];
+            }
+        }
+        return this;
+    }
+
+    public synchronized void clear() {
+        count = 0;
+        ageSum = 0;
+        ageSumOfSquares = 0;
+        ageHistogram.clear();
+        Arrays.fill(courseCounts, 0);
+        Arrays.fill(courseAgeSums, 0);
+    }
+
+    // Cost depends only on the number of distinct ages and courses, not on the number of students
+    public synchronized Map<String, Object> snapshot() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("totalStudents", (int) count);
+
+        double averageAge = count == 0 ? 0.0 : (double) ageSum / count;
+        stats.put("averageAge", averageAge);
+        double variance = count == 0 ? 0.0 : (double) ageSumOfSquares / count - averageAge * averageAge;
+        stats.put("ageStdDev", Math.sqrt(Math.max(variance, 0.0)));
+        stats.put("minAge", ageHistogram.isEmpty() ? 0 : ageHistogram.firstKey());
+        stats.put("maxAge", ageHistogram.isEmpty() ? 0 : ageHistogram.lastKey());
+        stats.put("ageHistogram", new TreeMap<>(ageHistogram));
+
+        Map<String, Integer> courseCount = new HashMap<>();
+        Map<String, Double> courseAverageAge = new HashMap<>();
+        for (int code = 0; code < courseCounts.length; code++) {
+            if (courseCounts[code] > 0) {
+                String name = dictionary.nameOf(code);
+                courseCount.put(name, courseCounts[code]);
+                courseAverageAge.put(name, (double) courseAgeSums[code] / courseCounts[code]);
+            }
+        }
+        stats.put("courseDistribution", courseCount);
+        stats.put("courseAverageAge", courseAverageAge);
+        return stats;
+    }
+}
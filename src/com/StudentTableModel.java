@@ -0,0 +1,320 @@
+import javax.swing.table.AbstractTableModel;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+// Table model that holds only the ids of the visible rows, in ascending order. Rows are read a
+// page at a time through StudentService when the table first paints them, so the event dispatch
+// thread never waits on the store; until its page arrives a row shows only its id. All methods
+// must be called on the event dispatch thread.
+public class StudentTableModel extends AbstractTableModel {
+    private static final long serialVersionUID = 1L;
+    private static final String[] COLUMNS = {"ID", "Name", "Email", "Age", "Course"};
+    private static final int PAGE_SIZE = 100;
+    private static final int MAX_LOADED_ROWS = 50 * PAGE_SIZE;
+    // Stands in for a row deleted before its page was read, so the page is not asked for again
+    private static final Student MISSING = new Student();
+
+    // The model lives only as long as its window; none of this is serialized
+    private final transient StudentService service;
+    private int[] ids = new int[0];
+    private int rowCount;
+    private boolean showingAll;
+
+    // Students read so far by id, least recently painted first
+    private final transient Map<Integer, Student> loaded = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Integer, Student> eldest) {
+            return size() > MAX_LOADED_ROWS;
+        }
+    };
+    private final transient Set<Integer> loadingPages = new HashSet<>();
+    // Counts row changes, and remembers when each row last changed while pages are loading, so
+    // a page read before a change does not overwrite it
+    private long changes;
+    private final transient Map<Integer, Long> changedAt = new HashMap<>();
+    // Pages asked for before this are dropped when they arrive
+    private long resetAt;
+
+    public StudentTableModel(StudentService service) {
+        this.service = service;
+    }
+
+    // Takes ownership of the array, which must be sorted ascending
+    public void showAll(int[] allIds) {
+        resetRows();
+        ids = allIds;
+        rowCount = allIds.length;
+        showingAll = true;
+        fireTableDataChanged();
+    }
+
+    // Like showAll, for a filtered set of ids
+    public void showMatches(int[] matchingIds) {
+        resetRows();
+        ids = matchingIds;
+        rowCount = matchingIds.length;
+        showingAll = false;
+        fireTableDataChanged();
+    }
+
+    public void showStudents(List<Student> students) {
+        resetRows();
+        int[] newIds = new int[students.size()];
+        for (int i = 0; i < newIds.length; i++) {
+            Student student = students.get(i);
+            newIds[i] = student.getId();
+            remember(student);
+        }
+        Arrays.sort(newIds);
+        ids = newIds;
+        rowCount = newIds.length;
+        showingAll = false;
+        fireTableDataChanged();
+    }
+
+    public boolean isShowingAll() {
+        return showingAll;
+    }
+
+    public void studentAdded(Student student) {
+        remember(student);
+        int pos = Arrays.binarySearch(ids, 0, rowCount, student.getId());
+        if (pos >= 0) {
+            fireTableRowsUpdated(pos, pos);
+            return;
+        }
+        int row = -pos - 1;
+        insertId(student.getId());
+        fireTableRowsInserted(row, row);
+    }
+
+    public void studentUpdated(Student student) {
+        remember(student);
+        int row = Arrays.binarySearch(ids, 0, rowCount, student.getId());
+        if (row >= 0) {
+            fireTableRowsUpdated(row, row);
+        }
+    }
+
+    public void studentRemoved(int id) {
+        forget(id);
+        int row = Arrays.binarySearch(ids, 0, rowCount, id);
+        if (row >= 0) {
+            removeId(id);
+            fireTableRowsDeleted(row, row);
+        }
+    }
+
+    // Applies events from the repository's change stream, in order. The events carry the new
+    // rows, so nothing is read again. A filtered view cannot tell whether a new student matches,
+    // so it only drops deleted rows and repaints changed ones. A batch of more than one event is
+    // applied to the ids first and announced as one change.
+    public void applyChanges(List<ChangeEvent> events) {
+        if (events.size() == 1) {
+            applyChange(events.get(0));
+            return;
+        }
+        int[] before = Arrays.copyOf(ids, rowCount);
+        for (ChangeEvent event : events) {
+            switch (event.getType()) {
+                case INSERT:
+                    remember(event.getAfter());
+                    if (showingAll) {
+                        insertId(event.getStudentId());
+                    }
+                    break;
+                case UPDATE:
+                    remember(event.getAfter());
+                    break;
+                case DELETE:
+                    forget(event.getStudentId());
+                    removeId(event.getStudentId());
+                    break;
+                case CLEAR:
+                    resetRows();
+                    rowCount = 0;
+                    break;
+            }
+        }
+        if (rowCount != before.length || !Arrays.equals(ids, 0, rowCount, before, 0, rowCount)) {
+            fireTableDataChanged();
+        } else if (rowCount > 0) {
+            fireTableRowsUpdated(0, rowCount - 1);
+        }
+    }
+
+    private void applyChange(ChangeEvent event) {
+        switch (event.getType()) {
+            case INSERT:
+                if (showingAll) {
+                    studentAdded(event.getAfter());
+                } else {
+                    remember(event.getAfter());
+                }
+                break;
+            case UPDATE:
+                studentUpdated(event.getAfter());
+                break;
+            case DELETE:
+                studentRemoved(event.getStudentId());
+                break;
+            case CLEAR:
+                resetRows();
+                rowCount = 0;
+                fireTableDataChanged();
+                break;
+        }
+    }
+
+    private void insertId(int id) {
+        int pos = Arrays.binarySearch(ids, 0, rowCount, id);
+        if (pos >= 0) {
+            return;
+        }
+        int row = -pos - 1;
+        if (rowCount == ids.length) {
+            ids = Arrays.copyOf(ids, Math.max(16, rowCount * 2));
+        }
+        System.arraycopy(ids, row, ids, row + 1, rowCount - row);
+        ids[row] = id;
+        rowCount++;
+    }
+
+    private void removeId(int id) {
+        int row = Arrays.binarySearch(ids, 0, rowCount, id);
+        if (row >= 0) {
+            System.arraycopy(ids, row + 1, ids, row, rowCount - row - 1);
+            rowCount--;
+        }
+    }
+
+    // Null until the row's page has been read, or if the student was deleted meanwhile
+    public Student getStudentAt(int row) {
+        Student student = loaded.get(ids[row]);
+        if (student == null) {
+            loadPage(row / PAGE_SIZE);
+        }
+        return student == MISSING ? null : student;
+    }
+
+    private void loadPage(int page) {
+        if (!loadingPages.add(page)) {
+            return;
+        }
+        int from = page * PAGE_SIZE;
+        int[] pageIds = Arrays.copyOfRange(ids, from, Math.min(rowCount, from + PAGE_SIZE));
+        long startedAt = changes;
+        service.getStudentsById(pageIds).whenCompleteAsync((students, error) -> {
+            if (startedAt < resetAt) {
+                return;
+            }
+            loadingPages.remove(page);
+            if (error != null) {
+                System.err.println("Error loading students: " + error.getMessage());
+            } else {
+                pageLoaded(pageIds, students, startedAt);
+            }
+            if (loadingPages.isEmpty()) {
+                changedAt.clear();
+            }
+        }, StudentService.EDT);
+    }
+
+    private void pageLoaded(int[] pageIds, List<Student> students, long startedAt) {
+        Map<Integer, Student> byId = new HashMap<>();
+        for (Student student : students) {
+            byId.put(student.getId(), student);
+        }
+        int firstRow = Integer.MAX_VALUE;
+        int lastRow = -1;
+        for (int id : pageIds) {
+            Long changed = changedAt.get(id);
+            if (changed != null && changed > startedAt) {
+                continue;
+            }
+            loaded.put(id, byId.getOrDefault(id, MISSING));
+            int row = Arrays.binarySearch(ids, 0, rowCount, id);
+            if (row >= 0) {
+                firstRow = Math.min(firstRow, row);
+                lastRow = Math.max(lastRow, row);
+            }
+        }
+        if (lastRow >= 0) {
+            fireTableRowsUpdated(firstRow, lastRow);
+        }
+    }
+
+    private void remember(Student student) {
+        markChanged(student.getId());
+        loaded.put(student.getId(), student);
+    }
+
+    private void forget(int id) {
+        markChanged(id);
+        loaded.remove(id);
+    }
+
+    private void markChanged(int id) {
+        changes++;
+        if (!loadingPages.isEmpty()) {
+            changedAt.put(id, changes);
+        }
+    }
+
+    // A new view is read afresh, which also picks up changes the store did not publish
+    private void resetRows() {
+        loaded.clear();
+        loadingPages.clear();
+        changedAt.clear();
+        resetAt = ++changes;
+    }
+
+    @Override
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    @Override
+    public int getColumnCount() {
+        return COLUMNS.length;
+    }
+
+    @Override
+    public String getColumnName(int column) {
+        return COLUMNS[column];
+    }
+
+    @Override
+    public Class<?> getColumnClass(int columnIndex) {
+        return columnIndex == 0 || columnIndex == 3 ? Integer.class : String.class;
+    }
+
+    @Override
+    public boolean isCellEditable(int row, int column) {
+        return false;
+    }
+
+    @Override
+    public Object getValueAt(int row, int column) {
+        if (column == 0) {
+            return ids[row];
+        }
+        Student student = getStudentAt(row);
+        if (student == null) {
+            // Still loading, or deleted by another thread with the removal event on its way
+            return null;
+        }
+        switch (column) {
+            case 1: return student.getName();
+            case 2: return student.getEmail();
+            case 3: return student.getAge();
+            case 4: return student.getCourse();
+            default: return null;
+        }
+    }
+}
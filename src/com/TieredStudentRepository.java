@@ -0,0 +1,333 @@
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+// Keeps recently used students in an InMemoryDatabase in front of the database, which remains
+// the system of record, so the data set can outgrow the heap. Writes go to the database first
+// and then to memory. Id and email lookups are answered from memory when the student is
+// resident; searches, filters and statistics run in the database, the only tier that holds
+// every student. Writes made through this repository are published on its own change stream;
+// the hot tier's stream would also report admissions and evictions.
+public class TieredStudentRepository implements StudentRepository {
+    private final InMemoryDatabase hot;
+    private final JdbcStudentRepository cold;
+    private final int maxHotStudents;
+    // Resident ids in access order; the lock guards this map only, never a write to the hot tier
+    private final LinkedHashMap<Integer, Boolean> resident = new LinkedHashMap<>(16, 0.75f, true);
+    // Writes and admissions of an id are serialized on its stripe. A write holds it across the
+    // database write and the hot tier update, so concurrent writers of one student leave the
+    // copy the database kept in memory; an admission holds it only to check and copy.
+    private final StripedLock idLocks = new StripedLock(64);
+    // Per stripe, the sequence number of its latest write, guarded by the stripe's lock. A
+    // lookup admits what it read only if no write to the student's stripe came after the read
+    // began, so unrelated writes do not cancel it.
+    private final long[] lastWrites = new long[idLocks.getStripeCount()];
+    private final AtomicLong writeSequence = new AtomicLong();
+    private final ChangeStream changes;
+
+    public TieredStudentRepository(InMemoryDatabase hot, JdbcStudentRepository cold, int maxHotStudents) {
+        if (maxHotStudents <= 0) {
+            throw new IllegalArgumentException("Hot set size must be positive");
+        }
+        this.hot = hot;
+        this.cold = cold;
+        this.maxHotStudents = maxHotStudents;
+        this.changes = ChangeStream.fromSystemProperties(hot.getMetrics());
+    }
+
+    // The hot set holds at most studentdb.tiered.hotSize students (default 100000)
+    public static TieredStudentRepository fromSystemProperties() {
+        return new TieredStudentRepository(InMemoryDatabase.createEmpty("TieredHotSet"),
+                new JdbcStudentRepository(new StudentDAO()),
+                Integer.getInteger("studentdb.tiered.hotSize", 100_000));
+    }
+
+    public boolean addStudent(Student student) {
+        cold.addStudent(student);
+        // The database assigns the id, so its stripe is only known now
+        int[] held = idLocks.lock(student.getId());
+        try {
+            recordWrite(held);
+            store(student);
+            changes.studentChanged(null, student);
+        } finally {
+            unlock(held);
+        }
+        return true;
+    }
+
+    // The event needs the student as it was, so a non-resident one is read from the database first
+    public boolean updateStudent(Student student) {
+        int[] held = idLocks.lock(student.getId());
+        try {
+            Student before = currentCopy(student.getId());
+            cold.updateStudent(student);
+            recordWrite(held);
+            store(student);
+            if (before != null) {
+                changes.studentChanged(before, student);
+            }
+        } finally {
+            unlock(held);
+        }
+        return true;
+    }
+
+    public boolean deleteStudent(int id) {
+        int[] held = idLocks.lock(id);
+        try {
+            Student before = currentCopy(id);
+            cold.deleteStudent(id);
+            recordWrite(held);
+            evict(id);
+            if (before != null) {
+                changes.studentChanged(before, null);
+            }
+        } finally {
+            unlock(held);
+        }
+        return true;
+    }
+
+    public Student getStudentById(int id) {
+        Student student = hot.getStudentById(id);
+        if (student != null) {
+            touch(id);
+            return student;
+        }
+        long readStart = writeSequence.get();
+        student = cold.getStudentById(id);
+        if (student != null) {
+            admit(student, readStart);
+        }
+        return student;
+    }
+
+    public Student getStudentByEmail(String email) {
+        Student student = hot.getStudentByEmail(email);
+        if (student != null) {
+            touch(student.getId());
+            return student;
+        }
+        long readStart = writeSequence.get();
+        student = cold.getStudentByEmail(email);
+        if (student != null) {
+            admit(student, readStart);
+        }
+        return student;
+    }
+
+    public List<Student> getAllStudents() {
+        return cold.getAllStudents();
+    }
+
+    public int[] getStudentIds() {
+        return cold.getStudentIds();
+    }
+
+    // Resident students come from memory and the rest from the database in batches
+    @Override
+    public List<Student> getStudentsById(int[] ids) {
+        List<Student> students = new ArrayList<>(ids.length);
+        int[] misses = new int[ids.length];
+        int missCount = 0;
+        for (int id : ids) {
+            Student student = hot.getStudentById(id);
+            if (student != null) {
+                touch(id);
+                students.add(student);
+            } else {
+                misses[missCount++] = id;
+            }
+        }
+        if (missCount > 0) {
+            long readStart = writeSequence.get();
+            for (Student student : cold.getStudentsById(Arrays.copyOf(misses, missCount))) {
+                admit(student, readStart);
+                students.add(student);
+            }
+            students.sort(Comparator.comparingInt(Student::getId));
+        }
+        return students;
+    }
+
+    public List<Student> searchStudentsByName(String name) {
+        return cold.searchStudentsByName(name);
+    }
+
+    public List<Student> getStudentsByCourse(String course) {
+        return cold.getStudentsByCourse(course);
+    }
+
+    public List<Student> getStudentsByExactCourse(String course) {
+        return cold.getStudentsByExactCourse(course);
+    }
+
+    @Override
+    public List<Student> findStudents(StudentQuery query) {
+        return cold.findStudents(query);
+    }
+
+    // Matching ids come from the database; the rows are read through the hot set a batch at a time
+    @Override
+    public QueryResult query(StudentPredicate predicate) {
+        StudentDAO dao = cold.getDao();
+        int[] ids = dao.findStudentIds(predicate);
+        return new QueryResult(() -> Arrays.stream(ids).iterator(), this::getStudentsById, dao.getBatchSize(),
+                null, "database query for " + predicate);
+    }
+
+    public List<String> getCourseNames() {
+        return cold.getCourseNames();
+    }
+
+    public Map<String, Object> getStatistics() {
+        return cold.getStatistics();
+    }
+
+    public int getSize() {
+        return cold.getSize();
+    }
+
+    // Bulk loads go straight to the database so they do not push the working set out of memory
+    @Override
+    public BatchResult addStudents(Collection<Student> students) {
+        BatchResult result = cold.addStudents(students);
+        for (Student student : result.getSucceeded()) {
+            int[] held = idLocks.lock(student.getId());
+            try {
+                changes.studentChanged(null, student);
+            } finally {
+                unlock(held);
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public Set<String> getExistingEmails(Collection<String> emails) {
+        return cold.getExistingEmails(emails);
+    }
+
+    @Override
+    public void forEachStudent(Consumer<Student> action) {
+        cold.forEachStudent(action);
+    }
+
+    @Override
+    public ChangeStream getChangeStream() {
+        return changes;
+    }
+
+    public int getHotSize() {
+        return hot.getSize();
+    }
+
+    public StoreMetrics getHotMetrics() {
+        return hot.getMetrics();
+    }
+
+    // Called with the stripe of the written student held
+    private void recordWrite(int[] held) {
+        lastWrites[held[0]] = writeSequence.incrementAndGet();
+    }
+
+    // Events are numbered with the stripe held, which keeps each student's changes in order, and
+    // published once it is released
+    private void unlock(int[] held) {
+        idLocks.unlock(held);
+        changes.publishClaimed();
+    }
+
+    private Student currentCopy(int id) {
+        Student student = hot.getStudentById(id);
+        return student != null ? student : cold.getStudentById(id);
+    }
+
+    private void touch(int id) {
+        synchronized (resident) {
+            resident.get(id);
+        }
+    }
+
+    // Copies a student read from the database into the hot tier, unless a write to its stripe
+    // since readStart may have made the copy stale
+    private void admit(Student student, long readStart) {
+        if (!admissible(student)) {
+            hot.getMetrics().increment("tiered.skippedAdmissions");
+            return;
+        }
+        int[] held = idLocks.lock(student.getId());
+        try {
+            if (lastWrites[held[0]] > readStart) {
+                hot.getMetrics().increment("tiered.skippedAdmissions");
+                return;
+            }
+            store(student);
+        } finally {
+            idLocks.unlock(held);
+        }
+    }
+
+    // Makes the hot tier hold this copy of the student, or none. Called with its stripe held.
+    private void store(Student student) {
+        if (!admissible(student)) {
+            evict(student.getId());
+            return;
+        }
+        // The database is authoritative, so a resident student still holding this email is stale
+        Student owner = hot.getStudentByEmail(student.getEmail());
+        if (owner != null && owner.getId() != student.getId()) {
+            evict(owner.getId());
+        }
+        try {
+            hot.putStudent(student);
+        } catch (IllegalArgumentException e) {
+            // Another student was admitted with this email in the meantime; an older copy of
+            // this one must not stay behind
+            hot.getMetrics().increment("tiered.skippedAdmissions");
+            evict(student.getId());
+            return;
+        }
+
+        List<Integer> evicted = new ArrayList<>();
+        synchronized (resident) {
+            resident.put(student.getId(), Boolean.TRUE);
+            Iterator<Integer> eldest = resident.keySet().iterator();
+            while (resident.size() > maxHotStudents) {
+                evicted.add(eldest.next());
+                eldest.remove();
+            }
+        }
+        for (int id : evicted) {
+            removeFromHot(id);
+        }
+    }
+
+    // The hot tier holds only what the database accepted, but rows written there by other
+    // clients need not pass the hot store's checks, e.g. a null email
+    private static boolean admissible(Student student) {
+        return student.getId() > 0
+                && student.getName() != null && !student.getName().trim().isEmpty()
+                && student.getEmail() != null && !student.getEmail().trim().isEmpty();
+    }
+
+    // Also removes a copy whose resident entry a racing eviction already dropped
+    private void evict(int id) {
+        synchronized (resident) {
+            resident.remove(id);
+        }
+        removeFromHot(id);
+    }
+
+    // Tolerates a student a racing admission or eviction already removed
+    private void removeFromHot(int id) {
+        if (hot.getStudentById(id) != null) {
+            try {
+                hot.deleteStudent(id);
+            } catch (IllegalArgumentException e) {
+                // Removed by another thread since the check
+            }
+        }
+    }
+}
@@ -0,0 +1,409 @@
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.zip.CRC32;
+
+// Append-only log of store mutations, split into segment files named after their first sequence
+// number. Entries are framed as [length][sequence][payload][crc32]; a torn or corrupt tail left
+// by a crash is cut off during replay.
+public class WriteAheadLog implements Closeable {
+    public static final byte OP_PUT = 1;
+    public static final byte OP_DELETE = 2;
+    public static final byte OP_CLEAR = 3;
+
+    private static final String SEGMENT_PREFIX = "wal-";
+    private static final String SEGMENT_SUFFIX = ".log";
+
+    public interface ReplayHandler {
+        void put(Student student);
+        void delete(int id);
+        void clear();
+    }
+
+    private static class Entry {
+        final long seq;
+        final byte[] payload;
+        final CompletableFuture<Void> done;
+        final boolean rollover;
+
+        Entry(long seq, byte[] payload, CompletableFuture<Void> done, boolean rollover) {
+            this.seq = seq;
+            this.payload = payload;
+            this.done = done;
+            this.rollover = rollover;
+        }
+    }
+
+    // Queued by close(); the writer drains everything ahead of it, forces the log and exits
+    private static final Entry SHUTDOWN = new Entry(-1, null, null, false);
+
+    private final Path directory;
+    private final FsyncPolicy fsyncPolicy;
+    private final long fsyncIntervalMillis;
+    private final BlockingQueue<Entry> queue = new LinkedBlockingQueue<>();
+    private final Object appendLock = new Object();
+    private long lastSeq;
+    private Thread writer;
+    private volatile boolean closed;
+
+    // Only touched by the writer thread once it is running
+    private FileChannel channel;
+    private ByteBuffer buffer = ByteBuffer.allocate(64 * 1024);
+    private long lastForceMillis;
+    private boolean unforcedWrites;
+
+    public WriteAheadLog(Path directory, FsyncPolicy fsyncPolicy, long fsyncIntervalMillis) {
+        this.directory = directory;
+        this.fsyncPolicy = fsyncPolicy;
+        this.fsyncIntervalMillis = fsyncIntervalMillis;
+    }
+
+    // Replays every entry after afterSeq in order and returns the highest sequence seen. A segment
+    // is cut back to its last valid entry when the rest of it is torn or corrupt, so appends after
+    // recovery do not land behind unreadable bytes. If that leaves a gap before the next segment,
+    // replay stops there: the later segments are renamed to .corrupt and kept for inspection
+    // rather than applied out of order.
+    public long replay(long afterSeq, ReplayHandler handler) throws IOException {
+        long highest = afterSeq;
+        List<Path> segments = listSegments();
+        for (int i = 0; i < segments.size(); i++) {
+            Path segment = segments.get(i);
+            if (firstSeq(segment) > highest + 1) {
+                System.err.println("Write-ahead log is missing entries " + (highest + 1) + " to "
+                        + (firstSeq(segment) - 1) + "; not replaying " + segment.getFileName() + " or later segments");
+                setAside(segments.subList(i, segments.size()));
+                break;
+            }
+            highest = replaySegment(segment, afterSeq, highest, handler);
+        }
+        return highest;
+    }
+
+    // Applies the segment's valid entries and truncates whatever follows the last of them
+    private long replaySegment(Path segment, long afterSeq, long highest, ReplayHandler handler) throws IOException {
+        long size = Files.size(segment);
+        long validEnd = 0;
+        String problem = null;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(segment), 1 << 16))) {
+            while (validEnd < size) {
+                if (size - validEnd < 16) {
+                    problem = "torn entry";
+                    break;
+                }
+                int length = in.readInt();
+                if (length < 0 || length > size - validEnd - 16) {
+                    problem = length < 0 ? "corrupt entry" : "torn entry";
+                    break;
+                }
+                byte[] payload = new byte[length];
+                long seq = in.readLong();
+                in.readFully(payload);
+                int crc = in.readInt();
+                if (crc != checksum(seq, payload)) {
+                    problem = "corrupt entry " + seq;
+                    break;
+                }
+                if (seq > afterSeq) {
+                    apply(payload, handler);
+                }
+                highest = Math.max(highest, seq);
+                validEnd += 16 + length;
+            }
+        }
+        if (problem != null) {
+            System.err.println("Truncating " + segment.getFileName() + " at " + problem + ", offset " + validEnd);
+            try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+                channel.truncate(validEnd);
+                channel.force(true);
+            }
+        }
+        return highest;
+    }
+
+    private static void setAside(List<Path> segments) throws IOException {
+        for (Path segment : segments) {
+            Files.move(segment, segment.resolveSibling(segment.getFileName() + ".corrupt"),
+                    StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    // Starts a fresh segment after lastSeq and the background writer
+    public void open(long lastSeq) throws IOException {
+        Files.createDirectories(directory);
+        this.lastSeq = lastSeq;
+        channel = openSegment(lastSeq + 1);
+        lastForceMillis = System.currentTimeMillis();
+        writer = new Thread(this::writeLoop, "wal-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    public CompletableFuture<Void> logPut(Student student) {
+        return append(encodePut(student));
+    }
+
+    public CompletableFuture<Void> logDelete(int id) {
+        ByteBuffer payload = ByteBuffer.allocate(5);
+        payload.put(OP_DELETE).putInt(id);
+        return append(payload.array());
+    }
+
+    public CompletableFuture<Void> logClear() {
+        return append(new byte[]{OP_CLEAR});
+    }
+
+    // Must be called while no other thread can append. Ends the current segment after every entry
+    // queued so far; later appends go to the next one. The returned future completes with the
+    // last sequence number of the ended segment once it is written, forced and closed, so the
+    // caller need not hold off appends while that happens.
+    public CompletableFuture<Long> startRollover() {
+        CompletableFuture<Void> done = new CompletableFuture<>();
+        long seq;
+        synchronized (appendLock) {
+            seq = lastSeq;
+            queue.add(new Entry(seq, null, done, true));
+        }
+        return done.thenApply(ignored -> seq);
+    }
+
+    public long finishRollover(CompletableFuture<Long> rollover) throws IOException {
+        return await(rollover);
+    }
+
+    public long rollover() throws IOException {
+        return finishRollover(startRollover());
+    }
+
+    // Deletes segments whose entries are all covered by a snapshot taken at snapshotSeq
+    public void deleteSegmentsUpTo(long snapshotSeq) throws IOException {
+        List<Path> segments = listSegments();
+        for (int i = 0; i + 1 < segments.size(); i++) {
+            if (firstSeq(segments.get(i + 1)) <= snapshotSeq + 1) {
+                Files.deleteIfExists(segments.get(i));
+            }
+        }
+    }
+
+    public boolean hasSegments() throws IOException {
+        return !listSegments().isEmpty();
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        if (writer != null) {
+            queue.add(SHUTDOWN);
+            try {
+                writer.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private CompletableFuture<Void> append(byte[] payload) {
+        if (closed) {
+            throw new IllegalStateException("Write-ahead log is closed");
+        }
+        CompletableFuture<Void> done = fsyncPolicy == FsyncPolicy.ALWAYS ? new CompletableFuture<>() : null;
+        synchronized (appendLock) {
+            queue.add(new Entry(++lastSeq, payload, done, false));
+        }
+        return done == null ? CompletableFuture.completedFuture(null) : done;
+    }
+
+    private void writeLoop() {
+        List<Entry> batch = new ArrayList<>();
+        while (true) {
+            try {
+                // With the interval policy, wake up to force writes even if no new entries arrive
+                Entry first = unforcedWrites && fsyncPolicy == FsyncPolicy.INTERVAL
+                        ? queue.poll(fsyncIntervalMillis, TimeUnit.MILLISECONDS)
+                        : queue.take();
+                if (first != null) {
+                    batch.add(first);
+                }
+            } catch (InterruptedException e) {
+                continue;
+            }
+            // Everything queued while the previous batch was being forced goes out with one fsync
+            queue.drainTo(batch);
+            boolean shutdown = false;
+            try {
+                for (Entry entry : batch) {
+                    if (entry == SHUTDOWN) {
+                        shutdown = true;
+                    } else if (entry.rollover) {
+                        flush(true);
+                        channel.close();
+                        channel = openSegment(entry.seq + 1);
+                    } else {
+                        write(entry);
+                    }
+                }
+                flush(shutdown || fsyncPolicy == FsyncPolicy.ALWAYS
+                        || System.currentTimeMillis() - lastForceMillis >= fsyncIntervalMillis);
+                for (Entry entry : batch) {
+                    if (entry.done != null) {
+                        entry.done.complete(null);
+                    }
+                }
+            } catch (IOException e) {
+                System.err.println("Error writing write-ahead log: " + e.getMessage());
+                for (Entry entry : batch) {
+                    if (entry.done != null) {
+                        entry.done.completeExceptionally(e);
+                    }
+                }
+            }
+            batch.clear();
+            if (shutdown) {
+                try {
+                    channel.close();
+                } catch (IOException e) {
+                    System.err.println("Error closing write-ahead log: " + e.getMessage());
+                }
+                return;
+            }
+        }
+    }
+
+    private void write(Entry entry) throws IOException {
+        int size = 4 + 8 + entry.payload.length + 4;
+        if (buffer.remaining() < size) {
+            flush(false);
+            if (buffer.capacity() < size) {
+                buffer = ByteBuffer.allocate(size);
+            }
+        }
+        buffer.putInt(entry.payload.length);
+        buffer.putLong(entry.seq);
+        buffer.put(entry.payload);
+        buffer.putInt(checksum(entry.seq, entry.payload));
+        unforcedWrites = true;
+    }
+
+    private void flush(boolean force) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+        if (force && unforcedWrites && fsyncPolicy != FsyncPolicy.NEVER) {
+            channel.force(false);
+            lastForceMillis = System.currentTimeMillis();
+        }
+        if (force || fsyncPolicy == FsyncPolicy.NEVER) {
+            unforcedWrites = false;
+        }
+    }
+
+    private FileChannel openSegment(long firstSeq) throws IOException {
+        Path path = directory.resolve(String.format("%s%020d%s", SEGMENT_PREFIX, firstSeq, SEGMENT_SUFFIX));
+        return FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    }
+
+    private List<Path> listSegments() throws IOException {
+        List<Path> segments = new ArrayList<>();
+        if (!Files.isDirectory(directory)) {
+            return segments;
+        }
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, SEGMENT_PREFIX + "*" + SEGMENT_SUFFIX)) {
+            for (Path path : stream) {
+                segments.add(path);
+            }
+        }
+        segments.sort(Comparator.comparingLong(WriteAheadLog::firstSeq));
+        return segments;
+    }
+
+    private static long firstSeq(Path segment) {
+        String name = segment.getFileName().toString();
+        return Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+    }
+
+    private static <T> T await(CompletableFuture<T> done) throws IOException {
+        try {
+            return done.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for the write-ahead log");
+        } catch (ExecutionException e) {
+            throw new IOException(e.getCause());
+        }
+    }
+
+    private static int checksum(long seq, byte[] payload) {
+        CRC32 crc = new CRC32();
+        crc.update(ByteBuffer.allocate(8).putLong(0, seq));
+        crc.update(payload);
+        return (int) crc.getValue();
+    }
+
+    private static byte[] encodePut(Student student) {
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeByte(OP_PUT);
+            out.writeInt(student.getId());
+            writeString(out, student.getName());
+            writeString(out, student.getEmail());
+            out.writeInt(student.getAge());
+            writeString(out, student.getCourse());
+            return bytes.toByteArray();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static void apply(byte[] payload, ReplayHandler handler) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload));
+        byte op = in.readByte();
+        switch (op) {
+            case OP_PUT:
+                int id = in.readInt();
+                String name = readString(in);
+                String email = readString(in);
+                int age = in.readInt();
+                String course = readString(in);
+                handler.put(new Student(id, name, email, age, course));
+                break;
+            case OP_DELETE:
+                handler.delete(in.readInt());
+                break;
+            case OP_CLEAR:
+                handler.clear();
+                break;
+            default:
+                throw new IOException("Unknown write-ahead log operation: " + op);
+        }
+    }
+
+    // Length-prefixed UTF-8 with -1 for null; writeUTF would cap strings at 64 KB
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,169 @@
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CachingStudentDAOTest {
+    private CachingStudentDAO dao;
+
+    @BeforeEach
+    void start() {
+        EmbeddedDatabase.start("caching-dao");
+        // Long enough that only the reads themselves can flush the buffer
+        dao = new CachingStudentDAO(100, 60_000, 60_000);
+    }
+
+    @AfterEach
+    void stop() {
+        dao.close();
+        EmbeddedDatabase.stop();
+    }
+
+    @Test
+    void readsSeeBufferedWrites() {
+        dao.addStudent(new Student(0, "Asha Rao", "asha@example.com", 20, "Physics"));
+        dao.addStudent(new Student(0, "Ravi Iyer", "ravi@example.com", 22, "Economics"));
+        assertEquals(2, dao.getPendingWriteCount());
+
+        assertEquals(2, dao.countStudents());
+        assertEquals(0, dao.getPendingWriteCount());
+        Student asha = dao.getStudentByEmail("asha@example.com");
+        assertNotNull(asha);
+        assertTrue(asha.getId() > 0);
+
+        asha.setCourse("Mathematics");
+        dao.updateStudent(asha);
+        assertEquals(1, dao.getPendingWriteCount());
+        assertEquals(1, dao.getStudentsByExactCourse("Mathematics").size());
+
+        dao.addStudent(new Student(0, "Meera Nair", "meera@example.com", 23, "Physics"));
+        assertEquals(3, dao.getStudentIds().length);
+        dao.addStudent(new Student(0, "Kabir Das", "kabir@example.com", 24, "Physics"));
+        assertEquals(Set.of("kabir@example.com"), dao.getExistingEmails(List.of("kabir@example.com", "new@example.com")));
+        dao.addStudent(new Student(0, "Tara Bose", "tara@example.com", 25, "Chemistry"));
+        assertTrue(dao.getCourseNames().contains("Chemistry"));
+        dao.addStudent(new Student(0, "Dev Rao", "dev@example.com", 26, "Physics"));
+        assertEquals(2, dao.searchStudentsByName("rao").size());
+        dao.addStudent(new Student(0, "Isha Sen", "isha@example.com", 27, "Physics"));
+        Map<String, Object> stats = dao.getStatistics();
+        assertEquals(7, ((Number) stats.get("totalStudents")).intValue());
+    }
+
+    @Test
+    void repositoryAddsReturnTheGeneratedIdAndSeeBufferedEmails() {
+        JdbcStudentRepository repository = new JdbcStudentRepository(dao);
+        dao.addStudent(new Student(0, "Asha Rao", "asha@example.com", 20, "Physics"));
+
+        assertThrows(IllegalArgumentException.class,
+                () -> repository.addStudent(new Student(0, "Asha Again", "asha@example.com", 21, "Physics")));
+
+        Student ravi = new Student(0, "Ravi Iyer", "ravi@example.com", 22, "Economics");
+        repository.addStudent(ravi);
+        assertTrue(ravi.getId() > 0);
+        assertEquals("Ravi Iyer", repository.getStudentById(ravi.getId()).getName());
+        assertEquals(2, repository.getSize());
+    }
+
+    @Test
+    void bufferedWritesAreFlushedWithinTheLag() throws InterruptedException {
+        CachingStudentDAO lagging = new CachingStudentDAO(100, 60_000, 50);
+        try {
+            lagging.addStudent(new Student(0, "Asha Rao", "asha@example.com", 20, "Physics"));
+            lagging.addStudent(new Student(0, "Ravi Iyer", "ravi@example.com", 22, "Economics"));
+            // A plain DAO does not flush, so only the scheduled flush can make the rows appear
+            StudentDAO plain = new StudentDAO();
+            long deadline = System.nanoTime() + 5_000_000_000L;
+            while (plain.countStudents() < 2 && System.nanoTime() < deadline) {
+                Thread.sleep(10);
+            }
+            assertEquals(2, plain.countStudents());
+            assertEquals(0, lagging.getPendingWriteCount());
+        } finally {
+            lagging.close();
+        }
+    }
+
+    @Test
+    void anUpdateDuringAMissIsNotReplacedByTheRowTheMissRead() throws Exception {
+        dao.addStudent(new Student(0, "Asha Rao", "asha@example.com", 20, "Physics"));
+        int id = dao.getStudentByEmail("asha@example.com").getId();
+        dao.invalidateAll();
+
+        // With every connection taken, the miss waits for one after checking cache and buffer
+        CompletableFuture<Student> miss;
+        List<Connection> held = holdAllConnections();
+        try {
+            miss = CompletableFuture.supplyAsync(() -> dao.getStudentById(id));
+            awaitWaitingThreads(1);
+            dao.updateStudent(new Student(id, "Asha Rao", "asha@example.com", 20, "Mathematics"));
+        } finally {
+            release(held);
+        }
+
+        assertEquals("Physics", miss.get(5, TimeUnit.SECONDS).getCourse());
+        assertEquals("Mathematics", dao.getStudentById(id).getCourse());
+        assertEquals(1, dao.getPendingWriteCount());
+    }
+
+    @Test
+    void aMissDuringAFlushSeesTheUpdateBeingWritten() throws Exception {
+        CachingStudentDAO small = new CachingStudentDAO(1, 60_000, 60_000);
+        try {
+            small.addStudent(new Student(0, "Asha Rao", "asha@example.com", 20, "Physics"));
+            small.addStudent(new Student(0, "Ravi Iyer", "ravi@example.com", 22, "Economics"));
+            int asha = small.getStudentByEmail("asha@example.com").getId();
+            int ravi = small.getStudentByEmail("ravi@example.com").getId();
+            small.updateStudent(new Student(asha, "Asha Rao", "asha@example.com", 20, "Mathematics"));
+            // Pushes the updated Asha out of the one-entry cache
+            small.getStudentById(ravi);
+
+            // The flush has taken the update out of the buffer but cannot write it yet
+            CompletableFuture<Void> flush;
+            List<Connection> held = holdAllConnections();
+            try {
+                flush = CompletableFuture.runAsync(small::flush);
+                awaitWaitingThreads(1);
+                assertEquals("Mathematics", small.getStudentById(asha).getCourse());
+            } finally {
+                release(held);
+            }
+
+            flush.get(5, TimeUnit.SECONDS);
+            assertEquals("Mathematics", new StudentDAO().getStudentById(asha).getCourse());
+        } finally {
+            small.close();
+        }
+    }
+
+    private static List<Connection> holdAllConnections() {
+        List<Connection> held = new ArrayList<>();
+        for (int i = 0; i < new PoolConfig().getMaxSize(); i++) {
+            held.add(DatabaseConnection.getConnection());
+        }
+        return held;
+    }
+
+    private static void awaitWaitingThreads(int count) throws InterruptedException {
+        long deadline = System.nanoTime() + 5_000_000_000L;
+        while ((int) DatabaseConnection.getPool().getMetrics().get("waitingThreads") < count) {
+            assertTrue(System.nanoTime() < deadline, "Nothing waited for a connection");
+            Thread.sleep(5);
+        }
+    }
+
+    private static void release(List<Connection> held) throws SQLException {
+        for (Connection connection : held) {
+            connection.close();
+        }
+    }
+}
@@ -0,0 +1,82 @@
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ChangeStreamTest {
+    @Test
+    void writerWaitingForASubscriberHoldsNoStudentLocks() throws Exception {
+        InMemoryDatabase database = withCapacity(2);
+        ChangeStream.Subscription subscription = database.getChangeStream().subscribe();
+        Student asha = new Student(0, "Asha Rao", "asha@example.com", 20, "Physics");
+        Student ravi = new Student(0, "Ravi Iyer", "ravi@example.com", 22, "Economics");
+        database.addStudent(asha);
+        database.addStudent(ravi);
+
+        // The ring is full, so this update waits for the subscriber...
+        Student renamed = new Student(asha);
+        renamed.setName("Asha Menon");
+        CompletableFuture<Boolean> waiting = CompletableFuture.supplyAsync(() -> database.updateStudent(renamed));
+        awaitApplied(database, asha.getId(), "Asha Menon");
+        assertFalse(waiting.isDone());
+
+        // ...but another writer can still take the same student's locks
+        Student moved = new Student(renamed);
+        moved.setCourse("Mathematics");
+        CompletableFuture<Boolean> second = CompletableFuture.supplyAsync(() -> database.updateStudent(moved));
+        awaitApplied(database, asha.getId(), "Asha Menon", "Mathematics");
+
+        List<ChangeEvent> events = new ArrayList<>();
+        while (events.size() < 4) {
+            ChangeEvent event = subscription.take(5, TimeUnit.SECONDS);
+            assertNotNull(event);
+            events.add(event);
+        }
+        assertTrue(waiting.get(5, TimeUnit.SECONDS));
+        assertTrue(second.get(5, TimeUnit.SECONDS));
+        for (int i = 0; i < events.size(); i++) {
+            assertEquals(i + 1, events.get(i).getSequence());
+        }
+        assertEquals("Asha Menon", events.get(2).getAfter().getName());
+        assertEquals("Mathematics", events.get(3).getAfter().getCourse());
+    }
+
+    @Test
+    void closingWakesAWaitingReader() throws Exception {
+        ChangeStream.Subscription subscription = withCapacity(16).getChangeStream().subscribe();
+        CompletableFuture<ChangeEvent> taken = CompletableFuture.supplyAsync(() -> subscription.take(1, TimeUnit.MINUTES));
+        Thread.sleep(50);
+        subscription.close();
+        assertNull(taken.get(5, TimeUnit.SECONDS));
+    }
+
+    private static InMemoryDatabase withCapacity(int capacity) {
+        String previous = System.setProperty("studentdb.changes.capacity", String.valueOf(capacity));
+        try {
+            return InMemoryDatabase.createEmpty("test-changes-" + capacity);
+        } finally {
+            if (previous == null) {
+                System.clearProperty("studentdb.changes.capacity");
+            } else {
+                System.setProperty("studentdb.changes.capacity", previous);
+            }
+        }
+    }
+
+    private static void awaitApplied(InMemoryDatabase database, int id, String name, String... course)
+            throws InterruptedException {
+        long deadline = System.nanoTime() + 5_000_000_000L;
+        while (System.nanoTime() < deadline) {
+            Student student = database.getStudentById(id);
+            if (student.getName().equals(name) && (course.length == 0 || student.getCourse().equals(course[0]))) {
+                return;
+            }
+            Thread.sleep(5);
+        }
+        fail("change to student " + id + " was not applied");
+    }
+}
@@ -0,0 +1,30 @@
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ColumnarStudentStoreTest {
+    private static final String[] NAMES = {"Élodie Martin", "ÉMILE Zola", "José Álvarez", "Jose Alvarez", "ØYVIND Berg",
+            "Straße Ost", "İlkay Demir"};
+
+    @Test
+    void nameSearchFoldsCaseLikeTheOtherStores() {
+        ColumnarStudentStore columnar = new ColumnarStudentStore();
+        InMemoryDatabase memory = InMemoryDatabase.createEmpty("test-columnar-names");
+        for (int i = 0; i < NAMES.length; i++) {
+            columnar.addStudent(new Student(0, NAMES[i], "c" + i + "@example.com", 20, "Physics"));
+            memory.addStudent(new Student(0, NAMES[i], "c" + i + "@example.com", 20, "Physics"));
+        }
+
+        for (String term : new String[] {"é", "É", "élo", "ÉLODIE", "josé", "JOSÉ", "ÁLV", "øy", "STRASSE", "ße", "i", "İl", "mar"}) {
+            assertEquals(names(memory.searchStudentsByName(term)), names(columnar.searchStudentsByName(term)),
+                    "search for " + term);
+        }
+        assertEquals(3, columnar.searchStudentsByName("É").size());
+    }
+
+    private static List<String> names(List<Student> students) {
+        return students.stream().map(Student::getName).sorted().toList();
+    }
+}
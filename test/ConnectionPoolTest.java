@@ -0,0 +1,138 @@
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.sql.Statement;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ConnectionPoolTest {
+    private ConnectionPool pool;
+
+    @AfterEach
+    void stop() {
+        if (pool != null) {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    void returnedConnectionsAreReused() throws SQLException {
+        PoolConfig config = EmbeddedDatabase.config("pool-reuse");
+        config.setMinSize(0);
+        pool = new ConnectionPool(config);
+
+        for (int i = 0; i < 3; i++) {
+            try (Connection connection = pool.getConnection()) {
+                assertTrue(connection.isValid(1));
+            }
+        }
+        Map<String, Object> metrics = pool.getMetrics();
+        assertEquals(1L, metrics.get("connectionsCreated"));
+        assertEquals(3L, metrics.get("acquisitions"));
+        assertEquals(0, metrics.get("activeConnections"));
+        assertEquals(1, metrics.get("idleConnections"));
+    }
+
+    @Test
+    void borrowersTimeOutWhileThePoolIsExhausted() throws SQLException {
+        PoolConfig config = EmbeddedDatabase.config("pool-timeout");
+        config.setMinSize(0);
+        config.setMaxSize(1);
+        config.setAcquireTimeoutMillis(50);
+        pool = new ConnectionPool(config);
+
+        try (Connection held = pool.getConnection()) {
+            assertThrows(SQLTimeoutException.class, pool::getConnection);
+        }
+        pool.getConnection().close();
+        assertEquals(1L, pool.getMetrics().get("acquireTimeouts"));
+    }
+
+    @Test
+    void onlyConnectionsIdlePastTheThresholdAreValidated() throws SQLException {
+        PoolConfig config = EmbeddedDatabase.config("pool-validation");
+        config.setMinSize(0);
+        config.setValidateAfterIdleMillis(60_000);
+        pool = new ConnectionPool(config);
+        Connection first = pool.getConnection();
+        Connection second = pool.getConnection();
+        first.close();
+        second.close();
+
+        // Kills both pooled sessions behind the pool's back
+        try (Connection direct = DriverManager.getConnection(config.getUrl(), "sa", "");
+             Statement statement = direct.createStatement()) {
+            statement.execute("SHUTDOWN");
+        }
+
+        // Returned moments ago, so the broken connection is handed out unchecked
+        Connection unchecked = pool.getConnection();
+        assertThrows(SQLException.class, () -> unchecked.createStatement().execute("SELECT 1"));
+        unchecked.close();
+        assertEquals(1L, pool.getMetrics().get("connectionsDestroyed"));
+
+        config.setValidateAfterIdleMillis(0);
+        try (Connection checked = pool.getConnection();
+             Statement statement = checked.createStatement()) {
+            statement.execute("SELECT 1");
+        }
+        assertEquals(2L, pool.getMetrics().get("connectionsDestroyed"));
+        assertEquals(3L, pool.getMetrics().get("connectionsCreated"));
+    }
+
+    @Test
+    void leakReportsSayWhereTheConnectionWasBorrowed() throws Exception {
+        PoolConfig config = EmbeddedDatabase.config("pool-leak");
+        config.setMinSize(0);
+        config.setLeakThresholdMillis(20);
+        config.setHousekeepingIntervalMillis(10);
+        config.setLeakStackTraces(true);
+        ByteArrayOutputStream errors = new ByteArrayOutputStream();
+        PrintStream originalErr = System.err;
+        System.setErr(new PrintStream(errors, true, StandardCharsets.UTF_8));
+        try {
+            pool = new ConnectionPool(config);
+            try (Connection leaked = pool.getConnection()) {
+                long deadline = System.nanoTime() + 5_000_000_000L;
+                while (!errors.toString(StandardCharsets.UTF_8).contains("Possible connection leak")) {
+                    assertTrue(System.nanoTime() < deadline, "No leak was reported");
+                    Thread.sleep(10);
+                }
+            }
+        } finally {
+            System.setErr(originalErr);
+        }
+        assertEquals(1L, pool.getMetrics().get("leaksDetected"));
+        String report = errors.toString(StandardCharsets.UTF_8);
+        assertTrue(report.contains("ConnectionPoolTest.leakReportsSayWhereTheConnectionWasBorrowed"), report);
+        assertFalse(report.contains("ConnectionPool.getConnection"), report);
+    }
+
+    @Test
+    void everySettingCanComeFromASystemProperty() {
+        Map<String, String> properties = Map.of(
+                "studentdb.pool.housekeepingIntervalMillis", "1234",
+                "studentdb.pool.validationTimeoutSeconds", "7",
+                "studentdb.pool.validateAfterIdleMillis", "250",
+                "studentdb.pool.leakStackTraces", "true");
+        properties.forEach(System::setProperty);
+        try {
+            PoolConfig config = PoolConfig.fromSystemProperties();
+            assertEquals(1234, config.getHousekeepingIntervalMillis());
+            assertEquals(7, config.getValidationTimeoutSeconds());
+            assertEquals(250, config.getValidateAfterIdleMillis());
+            assertTrue(config.isLeakStackTraces());
+        } finally {
+            properties.keySet().forEach(System::clearProperty);
+        }
+        assertFalse(PoolConfig.fromSystemProperties().isLeakStackTraces());
+    }
+}
@@ -0,0 +1,26 @@
+// Points DatabaseConnection at a private in-memory H2 database in MySQL mode and creates the
+// students table, so DAO tests run without a server. IGNORECASE gives the text columns the
+// case-insensitive comparisons of MySQL's default collation.
+final class EmbeddedDatabase {
+    private EmbeddedDatabase() {}
+
+    static void start(String name) {
+        DatabaseConnection.configure(config(name));
+        new StudentDAO().createTable();
+    }
+
+    // Pool settings for the named database, for tests that build a pool of their own
+    static PoolConfig config(String name) {
+        PoolConfig config = new PoolConfig();
+        config.setUrl("jdbc:h2:mem:" + name + ";MODE=MySQL;IGNORECASE=TRUE");
+        config.setUsername("sa");
+        config.setPassword("");
+        config.setDriverClassName("org.h2.Driver");
+        return config;
+    }
+
+    // The in-memory database goes away with the last pooled connection
+    static void stop() {
+        DatabaseConnection.shutdown();
+    }
+}
@@ -0,0 +1,204 @@
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.PrimitiveIterator;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IdBitmapTest {
+    // A chunk holds 65536 ids; above 4096 of them its container turns from an array into a bitmap
+    private static final int CHUNK = 1 << 16;
+    private static final int ARRAY_MAX = 4096;
+
+    @Test
+    void randomOperationsMatchBitSet() {
+        Random random = new Random(23);
+        for (int round = 0; round < 10; round++) {
+            IdBitmap[] bitmaps = new IdBitmap[3];
+            BitSet[] expected = new BitSet[3];
+            for (int i = 0; i < bitmaps.length; i++) {
+                bitmaps[i] = new IdBitmap();
+                expected[i] = new BitSet();
+            }
+            for (int step = 0; step < 300; step++) {
+                int i = random.nextInt(bitmaps.length);
+                int op = random.nextInt(10);
+                if (op < 6) {
+                    // Runs of ids, so some chunks get dense enough to become bitmaps
+                    int start = randomId(random);
+                    int length = random.nextInt(op == 0 ? 3000 : 40);
+                    for (int id = start; id < start + length; id++) {
+                        boolean add = op < 5;
+                        assertEquals(add ? !expected[i].get(id) : expected[i].get(id),
+                                add ? bitmaps[i].add(id) : bitmaps[i].remove(id));
+                        expected[i].set(id, add);
+                    }
+                } else {
+                    int j = random.nextInt(bitmaps.length);
+                    IdBitmap result;
+                    BitSet check = (BitSet) expected[i].clone();
+                    if (op == 6) {
+                        result = IdBitmap.and(bitmaps[i], bitmaps[j]);
+                        check.and(expected[j]);
+                    } else if (op == 7) {
+                        result = IdBitmap.or(bitmaps[i], bitmaps[j]);
+                        check.or(expected[j]);
+                    } else {
+                        result = IdBitmap.andNot(bitmaps[i], bitmaps[j]);
+                        check.andNot(expected[j]);
+                    }
+                    assertMatches(check, result);
+                    // The operands are left as they were
+                    assertEquals(expected[i].cardinality(), bitmaps[i].getCardinality());
+                    assertEquals(expected[j].cardinality(), bitmaps[j].getCardinality());
+                    bitmaps[i] = result;
+                    expected[i] = check;
+                }
+            }
+            for (int i = 0; i < bitmaps.length; i++) {
+                assertMatches(expected[i], bitmaps[i]);
+                IdBitmap copy = bitmaps[i].copy();
+                copy.add(Integer.MAX_VALUE);
+                assertMatches(expected[i], bitmaps[i]);
+            }
+        }
+    }
+
+    @Test
+    void containersConvertAtTheArrayLimit() {
+        IdBitmap bitmap = new IdBitmap();
+        BitSet expected = new BitSet();
+        // Every other id, so the bitmap form cannot be mistaken for a full run
+        for (int i = 0; i < ARRAY_MAX; i++) {
+            int id = CHUNK + 2 * i;
+            bitmap.add(id);
+            expected.set(id);
+        }
+        assertMatches(expected, bitmap);
+
+        bitmap.add(CHUNK + 2 * ARRAY_MAX);
+        expected.set(CHUNK + 2 * ARRAY_MAX);
+        assertMatches(expected, bitmap);
+        assertFalse(bitmap.add(CHUNK + 2 * ARRAY_MAX));
+
+        bitmap.remove(CHUNK);
+        expected.clear(CHUNK);
+        assertMatches(expected, bitmap);
+        bitmap.remove(CHUNK + 2);
+        expected.clear(CHUNK + 2);
+        assertMatches(expected, bitmap);
+
+        for (int id = CHUNK; id < 2 * CHUNK; id++) {
+            bitmap.remove(id);
+        }
+        assertTrue(bitmap.isEmpty());
+        assertEquals(0, bitmap.toArray().length);
+    }
+
+    @Test
+    void idsAtChunkEdgesStayInTheirChunk() {
+        int[] edges = {0, 1, CHUNK - 1, CHUNK, CHUNK + 1, 2 * CHUNK - 1, 2 * CHUNK, Integer.MAX_VALUE - 1, Integer.MAX_VALUE};
+        IdBitmap bitmap = new IdBitmap();
+        for (int i = 0; i < edges.length; i++) {
+            assertTrue(bitmap.add(edges[i]));
+            assertMatches(Arrays.copyOf(edges, i + 1), bitmap);
+        }
+        for (int i = 0; i < edges.length; i++) {
+            assertTrue(bitmap.remove(edges[i]));
+            assertFalse(bitmap.remove(edges[i]));
+            assertMatches(Arrays.copyOfRange(edges, i + 1, edges.length), bitmap);
+        }
+        assertFalse(bitmap.remove(-1));
+        assertThrows(IllegalArgumentException.class, () -> bitmap.add(-1));
+    }
+
+    @Test
+    void setOperationsCombineArrayAndBitmapContainers() {
+        IdBitmap dense = new IdBitmap();
+        IdBitmap sparse = new IdBitmap();
+        BitSet denseExpected = new BitSet();
+        BitSet sparseExpected = new BitSet();
+        for (int id = 0; id < 3 * CHUNK; id += 3) {
+            dense.add(id);
+            denseExpected.set(id);
+        }
+        for (int id = CHUNK - 100; id < 2 * CHUNK + 100; id += 7) {
+            sparse.add(id);
+            sparseExpected.set(id);
+        }
+        // Two arrays whose union is larger than an array may be
+        IdBitmap evens = new IdBitmap();
+        IdBitmap odds = new IdBitmap();
+        for (int i = 0; i < 3000; i++) {
+            evens.add(2 * i);
+            odds.add(2 * i + 1);
+        }
+        BitSet evensExpected = bits(evens);
+        BitSet oddsExpected = bits(odds);
+
+        IdBitmap[][] pairs = {{dense, sparse}, {sparse, dense}, {evens, odds}, {dense, evens}, {odds, dense}};
+        BitSet[][] expectedPairs = {{denseExpected, sparseExpected}, {sparseExpected, denseExpected},
+                {evensExpected, oddsExpected}, {denseExpected, evensExpected}, {oddsExpected, denseExpected}};
+        for (int i = 0; i < pairs.length; i++) {
+            IdBitmap a = pairs[i][0];
+            IdBitmap b = pairs[i][1];
+            BitSet and = (BitSet) expectedPairs[i][0].clone();
+            and.and(expectedPairs[i][1]);
+            BitSet or = (BitSet) expectedPairs[i][0].clone();
+            or.or(expectedPairs[i][1]);
+            BitSet andNot = (BitSet) expectedPairs[i][0].clone();
+            andNot.andNot(expectedPairs[i][1]);
+            assertMatches(and, IdBitmap.and(a, b));
+            assertMatches(or, IdBitmap.or(a, b));
+            assertMatches(andNot, IdBitmap.andNot(a, b));
+        }
+        assertMatches(new BitSet(), IdBitmap.andNot(dense, dense));
+        assertEquals(dense, IdBitmap.or(dense, new IdBitmap()));
+    }
+
+    // Mostly the first few chunks, where runs collide, with the odd id further out
+    private static int randomId(Random random) {
+        return random.nextInt(random.nextInt(20) == 0 ? 64 * CHUNK : 4 * CHUNK);
+    }
+
+    private static BitSet bits(IdBitmap bitmap) {
+        BitSet bits = new BitSet();
+        for (int id : bitmap.toArray()) {
+            bits.set(id);
+        }
+        return bits;
+    }
+
+    private static void assertMatches(BitSet expected, IdBitmap actual) {
+        assertMatches(expected.stream().toArray(), actual);
+    }
+
+    // ids must be in ascending order
+    private static void assertMatches(int[] ids, IdBitmap actual) {
+        assertEquals(ids.length, actual.getCardinality());
+        assertEquals(ids.length == 0, actual.isEmpty());
+        assertArrayEquals(ids, actual.toArray());
+
+        PrimitiveIterator.OfInt ascending = actual.iterator();
+        for (int id : ids) {
+            assertTrue(ascending.hasNext());
+            assertEquals(id, ascending.nextInt());
+            assertTrue(actual.contains(id));
+        }
+        assertFalse(ascending.hasNext());
+        PrimitiveIterator.OfInt descending = actual.descendingIterator();
+        for (int i = ids.length - 1; i >= 0; i--) {
+            assertEquals(ids[i], descending.nextInt());
+        }
+        assertFalse(descending.hasNext());
+
+        for (int i = 0; i < ids.length; i++) {
+            if (ids[i] > 0 && (i == 0 || ids[i - 1] != ids[i] - 1)) {
+                assertFalse(actual.contains(ids[i] - 1));
+            }
+        }
+        assertEquals(IdBitmap.of(ids), actual);
+    }
+}
@@ -0,0 +1,193 @@
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Many threads adding, updating and deleting students over a small pool of emails, so that
+// writers keep colliding on the same email and id locks; afterwards the email index, the
+// course, age and name indexes and the running statistics must all agree with the students
+class InMemoryDatabaseStressTest {
+    private static final int THREADS = 8;
+    private static final int OPERATIONS_PER_THREAD = 5000;
+    private static final int EMAILS = 64;
+    private static final String[] COURSES = {"Computer Science", "Physics", "Mathematics", "Economics"};
+
+    @Test
+    void indexesStayConsistentUnderConcurrentWrites() throws Exception {
+        InMemoryDatabase database = InMemoryDatabase.createEmpty("stress-writes");
+        AtomicInteger added = new AtomicInteger();
+        runConcurrently(random -> {
+            int choice = random.nextInt(10);
+            try {
+                if (choice < 4) {
+                    database.addStudent(randomStudent(0, random));
+                    added.incrementAndGet();
+                } else if (choice < 8) {
+                    int[] ids = database.getStudentIds();
+                    if (ids.length > 0) {
+                        database.updateStudent(randomStudent(ids[random.nextInt(ids.length)], random));
+                    }
+                } else {
+                    int[] ids = database.getStudentIds();
+                    if (ids.length > 0) {
+                        database.deleteStudent(ids[random.nextInt(ids.length)]);
+                    }
+                }
+            } catch (IllegalArgumentException expected) {
+                // Duplicate email or a student deleted by another thread
+            }
+        });
+
+        assertTrue(added.get() > 0, "no student was ever added");
+        assertConsistent(database);
+    }
+
+    @Test
+    void onlyOneOfConcurrentAddsWithTheSameEmailSucceeds() throws Exception {
+        InMemoryDatabase database = InMemoryDatabase.createEmpty("stress-duplicates");
+        AtomicInteger succeeded = new AtomicInteger();
+        CyclicBarrier start = new CyclicBarrier(THREADS);
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<Future<?>> workers = new ArrayList<>();
+            for (int t = 0; t < THREADS; t++) {
+                // Same address in different case and padding, which the store treats as equal
+                String email = (t % 2 == 0 ? " Same@Example.com" : "same@example.COM ");
+                workers.add(executor.submit(() -> {
+                    start.await();
+                    try {
+                        database.addStudent(new Student(0, "Student", email, 20, "Physics"));
+                        succeeded.incrementAndGet();
+                    } catch (IllegalArgumentException expected) {
+                        // Lost the race
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> worker : workers) {
+                worker.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(1, succeeded.get());
+        assertEquals(1, database.getSize());
+        assertConsistent(database);
+    }
+
+    private interface Operation {
+        void run(ThreadLocalRandom random);
+    }
+
+    // putStudent aimed at the ids addStudent is about to hand out must never share one with an add
+    @Test
+    void addsAndPutsNeverStoreTwoStudentsUnderOneId() throws Exception {
+        InMemoryDatabase database = InMemoryDatabase.createEmpty("stress-ids");
+        AtomicInteger emails = new AtomicInteger();
+        AtomicInteger highestId = new AtomicInteger();
+        Map<Integer, String> addedEmails = new ConcurrentHashMap<>();
+        Set<Integer> putIds = ConcurrentHashMap.newKeySet();
+        runConcurrently(random -> {
+            String email = "student" + emails.incrementAndGet() + "@example.com";
+            if (random.nextBoolean()) {
+                Student student = new Student(0, "Student", email, 20, "Physics");
+                database.addStudent(student);
+                addedEmails.put(student.getId(), email);
+                highestId.accumulateAndGet(student.getId(), Math::max);
+            } else {
+                int id = highestId.get() + 1 + random.nextInt(2);
+                putIds.add(id);
+                database.putStudent(new Student(id, "Student", email, 20, "Physics"));
+                highestId.accumulateAndGet(id, Math::max);
+            }
+        });
+
+        assertConsistent(database);
+        addedEmails.forEach((id, email) -> {
+            if (!putIds.contains(id)) {
+                assertEquals(email, database.getStudentById(id).getEmail(), "student " + id + " was lost");
+            }
+        });
+    }
+
+    private static void runConcurrently(Operation operation) throws Exception {
+        CyclicBarrier start = new CyclicBarrier(THREADS);
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<Future<?>> workers = new ArrayList<>();
+            for (int t = 0; t < THREADS; t++) {
+                workers.add(executor.submit(() -> {
+                    start.await();
+                    ThreadLocalRandom random = ThreadLocalRandom.current();
+                    for (int i = 0; i < OPERATIONS_PER_THREAD; i++) {
+                        operation.run(random);
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> worker : workers) {
+                worker.get(2, TimeUnit.MINUTES);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static Student randomStudent(int id, ThreadLocalRandom random) {
+        int email = random.nextInt(EMAILS);
+        return new Student(id, "Student " + (char) ('a' + random.nextInt(26)) + random.nextInt(100),
+                "student" + email + "@example.com", 17 + random.nextInt(24), COURSES[random.nextInt(COURSES.length)]);
+    }
+
+    private static void assertConsistent(InMemoryDatabase database) {
+        List<Student> students = database.getAllStudents();
+        int[] ids = database.getStudentIds();
+        assertEquals(students.size(), database.getSize());
+        assertEquals(students.size(), ids.length);
+
+        Map<String, Integer> owners = new HashMap<>();
+        Map<String, Integer> courseCounts = new HashMap<>();
+        SortedMap<Integer, Integer> ageCounts = new TreeMap<>();
+        for (Student student : students) {
+            String email = student.getEmail().trim().toLowerCase(Locale.ROOT);
+            assertNull(owners.put(email, student.getId()), "two students share " + email);
+            Student byEmail = database.getStudentByEmail(student.getEmail());
+            assertNotNull(byEmail, "email index lost " + email);
+            assertEquals(student.getId(), byEmail.getId());
+            courseCounts.merge(student.getCourse(), 1, Integer::sum);
+            ageCounts.merge(student.getAge(), 1, Integer::sum);
+        }
+
+        // Emails no student holds any more must have left the index
+        for (int i = 0; i < EMAILS; i++) {
+            String email = "student" + i + "@example.com";
+            Student byEmail = database.getStudentByEmail(email);
+            if (owners.containsKey(email)) {
+                assertNotNull(byEmail);
+            } else {
+                assertNull(byEmail, "email index still holds " + email);
+            }
+        }
+
+        for (String course : COURSES) {
+            int expected = courseCounts.getOrDefault(course, 0);
+            assertEquals(expected, database.getCourseCount(course), course);
+            assertEquals(expected, database.getStudentsByExactCourse(course).size(), course);
+        }
+        for (int age = 17; age <= 40; age++) {
+            int expected = ageCounts.getOrDefault(age, 0);
+            assertEquals(expected, database.query(StudentPredicate.ageBetween(age, age)).ids().length, "age " + age);
+        }
+        assertEquals(students.size(), database.searchStudentsByName("student").size());
+
+        Map<String, Object> stats = database.getStatistics();
+        assertEquals(students.size(), stats.get("totalStudents"));
+        if (!students.isEmpty()) {
+            assertEquals(new TreeMap<>(ageCounts), stats.get("ageHistogram"));
+        }
+    }
+}
@@ -0,0 +1,71 @@
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class InMemoryDatabaseTest {
+
+    // The GUI's edit flow: read a student, change the object, pass it to updateStudent. The
+    // indexes must move from the old values to the new ones.
+    @Test
+    void updatingAStudentReadFromTheStoreMovesItsIndexEntries() {
+        InMemoryDatabase database = InMemoryDatabase.createEmpty("test-edit");
+        Student added = new Student(0, "Asha Rao", "asha@example.com", 20, "Physics");
+        database.addStudent(added);
+        int id = added.getId();
+
+        Student edited = database.getStudentById(id);
+        edited.setName("Asha Menon");
+        edited.setEmail("asha.menon@example.com");
+        edited.setAge(30);
+        edited.setCourse("Mathematics");
+        database.updateStudent(edited);
+
+        assertNull(database.getStudentByEmail("asha@example.com"));
+        assertEquals(id, database.getStudentByEmail("asha.menon@example.com").getId());
+        // The old email is free again
+        database.addStudent(new Student(0, "Another Asha", "asha@example.com", 22, "Economics"));
+
+        assertTrue(database.getStudentsByExactCourse("Physics").isEmpty());
+        assertEquals(1, database.getStudentsByExactCourse("Mathematics").size());
+        assertEquals(0, database.getCourseCount("Physics"));
+        assertEquals(1, database.getCourseCount("Mathematics"));
+
+        assertEquals(0, database.query(StudentPredicate.ageBetween(20, 20)).ids().length);
+        assertArrayEquals(new int[] {id}, database.query(StudentPredicate.ageBetween(30, 30)).ids());
+        StudentQuery byAge = new StudentQuery();
+        byAge.setAgeRange(30, 30);
+        assertEquals(1, database.findStudents(byAge).size());
+
+        assertTrue(database.searchStudentsByName("rao").isEmpty());
+        assertEquals(1, database.searchStudentsByName("menon").size());
+
+        Map<String, Object> stats = database.getStatistics();
+        assertEquals(Map.of(22, 1, 30, 1), stats.get("ageHistogram"));
+    }
+
+    @Test
+    void changingAStudentThatWasReadDoesNotChangeTheStore() {
+        InMemoryDatabase database = InMemoryDatabase.createEmpty("test-copies");
+        Student added = new Student(0, "Ravi Iyer", "ravi@example.com", 21, "Economics");
+        database.addStudent(added);
+        int id = added.getId();
+        added.setName("Changed after add");
+
+        database.getStudentById(id).setName("Changed by id");
+        database.getStudentByEmail("ravi@example.com").setName("Changed by email");
+        database.getAllStudents().get(0).setName("Changed in list");
+        database.searchStudentsByName("ravi").get(0).setName("Changed in search");
+        database.getStudentsByCourse("econ").get(0).setName("Changed in course filter");
+        database.getStudentsByExactCourse("Economics").get(0).setName("Changed in exact course");
+        database.query(StudentPredicate.courseEquals("Economics")).iterator().next().setName("Changed in query");
+        database.findStudents(new StudentQuery()).get(0).setName("Changed in page");
+
+        List<Student> all = database.getAllStudents();
+        assertEquals(1, all.size());
+        assertEquals("Ravi Iyer", all.get(0).getName());
+        assertEquals(1, database.searchStudentsByName("ravi iyer").size());
+    }
+}
@@ -0,0 +1,56 @@
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JdbcStudentRepositoryTest {
+    private StudentDAO dao;
+    private JdbcStudentRepository repository;
+
+    @BeforeEach
+    void start() {
+        EmbeddedDatabase.start("jdbc-repository");
+        dao = new StudentDAO();
+        dao.setBatchSize(50);
+        repository = new JdbcStudentRepository(dao);
+        List<Student> students = new ArrayList<>();
+        for (int i = 0; i < 300; i++) {
+            students.add(new Student(0, "Student " + i, "s" + i + "@example.com", 18 + i % 10,
+                    i % 2 == 0 ? "Physics" : "Economics"));
+        }
+        assertFalse(dao.addStudents(students).hasFailures());
+        StudentDAO.getMetrics().reset();
+    }
+
+    @AfterEach
+    void stop() {
+        EmbeddedDatabase.stop();
+    }
+
+    @Test
+    void queryResultsAreReadInBatches() {
+        QueryResult result = repository.query(StudentPredicate.courseEquals("physics"));
+
+        List<Student> page = result.page(20, 30);
+        assertEquals(30, page.size());
+        assertTrue(page.stream().allMatch(s -> s.getCourse().equals("Physics")));
+        assertEquals(1, StudentDAO.getMetrics().getCallCount("getStudentsById"));
+
+        assertEquals(150, result.toList().size());
+        assertEquals(1 + 3, StudentDAO.getMetrics().getCallCount("getStudentsById"));
+        assertEquals(0, StudentDAO.getMetrics().getCallCount("getStudentById"));
+    }
+
+    @Test
+    void studentsByIdSkipDeletedIdsAndKeepIdOrder() {
+        int[] ids = dao.getStudentIds();
+        repository.deleteStudent(ids[1]);
+
+        List<Student> students = repository.getStudentsById(new int[] {ids[2], ids[0], ids[1]});
+        assertEquals(List.of(ids[0], ids[2]), students.stream().map(Student::getId).toList());
+    }
+}
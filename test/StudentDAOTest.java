@@ -0,0 +1,105 @@
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StudentDAOTest {
+    private StudentDAO dao;
+
+    @BeforeEach
+    void start() {
+        EmbeddedDatabase.start("student-dao");
+        dao = new StudentDAO();
+    }
+
+    @AfterEach
+    void stop() {
+        EmbeddedDatabase.stop();
+    }
+
+    @Test
+    void failedRowByRowRetryLeavesNothingBehind() {
+        // The duplicate email fails the batch; the retry then writes the first row and dies on the last
+        List<Student> chunk = List.of(
+                new Student(0, "Asha Rao", "asha@example.com", 20, "Physics"),
+                new Student(0, "Asha Again", "asha@example.com", 21, "Physics"),
+                new Student(0, "Ravi Iyer", "ravi@example.com", 22, "Economics") {
+                    private int reads;
+
+                    @Override
+                    public String getName() {
+                        if (++reads > 1) {
+                            throw new IllegalStateException("second read");
+                        }
+                        return super.getName();
+                    }
+                });
+
+        assertThrows(IllegalStateException.class, () -> dao.addStudents(chunk));
+        assertEquals(0, dao.countStudents());
+    }
+
+    @Test
+    void rowByRowRetryKeepsTheGoodRows() {
+        BatchResult result = dao.addStudents(List.of(
+                new Student(0, "Asha Rao", "asha@example.com", 20, "Physics"),
+                new Student(0, "Asha Again", "asha@example.com", 21, "Physics"),
+                new Student(0, "Ravi Iyer", "ravi@example.com", 22, "Economics")));
+
+        assertEquals(1, result.getFailures().size());
+        assertEquals(2, dao.countStudents());
+    }
+
+    // The database goes away during the row-by-row retry, after it has rejected the duplicate
+    @Test
+    void rowsOfAChunkThatFailsAsAWholeAreReportedOnce() {
+        List<Student> chunk = List.of(
+                new Student(0, "Asha Rao", "asha@example.com", 20, "Physics"),
+                new Student(0, "Asha Again", "asha@example.com", 21, "Physics"),
+                new Student(0, "Ravi Iyer", "ravi@example.com", 22, "Economics") {
+                    private int reads;
+
+                    @Override
+                    public String getName() {
+                        if (++reads == 2) {
+                            shutDownDatabase();
+                        }
+                        return super.getName();
+                    }
+                });
+
+        BatchResult result = dao.addStudents(chunk);
+        assertEquals(0, result.getSuccessCount());
+        assertEquals(chunk.size(), result.getFailureCount());
+        for (Student student : chunk) {
+            assertEquals(1, result.getFailures().stream().filter(failure -> failure.getStudent() == student).count());
+        }
+    }
+
+    @Test
+    void emailsMatchIgnoringCase() {
+        Student asha = new Student(0, "Asha Rao", "Asha.Rao@Example.com", 20, "Physics");
+        assertTrue(dao.addStudent(asha));
+
+        assertEquals(asha.getId(), dao.getStudentByEmail(" asha.rao@EXAMPLE.com ").getId());
+        assertEquals(Set.of("asha.rao@example.com"), dao.getExistingEmails(List.of("ASHA.RAO@example.com", "ravi@example.com")));
+        assertArrayEquals(new int[] {asha.getId()}, dao.findStudentIds(StudentPredicate.emailStartsWith("asha.r")));
+    }
+
+    private static void shutDownDatabase() {
+        try (Connection connection = DriverManager.getConnection(EmbeddedDatabase.config("student-dao").getUrl(), "sa", "");
+             Statement statement = connection.createStatement()) {
+            statement.execute("SHUTDOWN");
+        } catch (SQLException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
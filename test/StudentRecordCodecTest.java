@@ -0,0 +1,131 @@
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StudentRecordCodecTest {
+    @TempDir
+    Path directory;
+
+    @Test
+    void recordsRoundTrip() {
+        List<Student> students = List.of(
+                new Student(1, "Aarav Sharma", "aarav@example.com", 20, "Computer Science"),
+                new Student(2, null, null, 0, null),
+                new Student(3, "", "", -1, ""),
+                new Student(4, "Zoë Ångström", "zoe@exämple.com", 41, "Économie"),
+                new Student(5, "李小龙 😀", "li@example.com", 22, "数学"),
+                new Student(Integer.MAX_VALUE, "x".repeat(127), "y".repeat(128), Integer.MIN_VALUE, "z".repeat(16384)));
+        ByteBuffer buffer = encodeAll(students);
+
+        int offset = 0;
+        for (Student expected : students) {
+            assertSame(expected, StudentRecordCodec.decode(buffer, offset));
+            offset += 4 + buffer.getInt(offset);
+        }
+        assertEquals(buffer.limit(), offset);
+    }
+
+    // The store accepts fields of any length, so the format must too
+    @Test
+    void fieldsLongerThan64KiloBytesRoundTrip() {
+        Student student = new Student(7, "n".repeat(70_000), "e@example.com", 30, "é".repeat(40_000));
+        ByteBuffer buffer = encodeAll(List.of(student));
+        assertSame(student, StudentRecordCodec.decode(buffer, 0));
+    }
+
+    @Test
+    void unpairedSurrogatesAreWrittenAsQuestionMarks() {
+        Student student = new Student(8, "a\uD800b", "e@example.com", 30, "c\uDC00");
+        ByteBuffer buffer = encodeAll(List.of(student));
+        Student decoded = StudentRecordCodec.decode(buffer, 0);
+        assertEquals("a?b", decoded.getName());
+        assertEquals("c?", decoded.getCourse());
+    }
+
+    @Test
+    void snapshotsRoundTripThroughTheMappedFile() throws IOException {
+        List<Student> students = new ArrayList<>();
+        // More than the writer buffers at once, plus one record larger than its buffer
+        for (int i = 1; i <= 5000; i++) {
+            students.add(new Student(i, "Student " + i, "student" + i + "@example.com", 17 + i % 24,
+                    i % 7 == 0 ? null : "Course " + i % 5));
+        }
+        students.add(2500, new Student(5001, "n".repeat(100_000), "long@example.com", 30, "Physics"));
+        Path path = directory.resolve("snapshot.dat");
+        MappedSnapshot.write(path, 42, 5002, students);
+
+        for (MappedSnapshot snapshot : List.of(MappedSnapshot.open(path), MappedSnapshot.read(path))) {
+            snapshot.verify();
+            assertEquals(42, snapshot.getSeq());
+            assertEquals(5002, snapshot.getNextId());
+            assertEquals(students.size(), snapshot.size());
+            for (int i = 0; i < students.size(); i++) {
+                assertSame(students.get(i), snapshot.get(i));
+            }
+        }
+    }
+
+    @Test
+    void snapshotStoreKeepsOnlyTheNewestSnapshot() throws IOException {
+        SnapshotStore store = new SnapshotStore(directory);
+        store.write(10, 2, List.of(new Student(1, "Aarav Sharma", "aarav@example.com", 20, "Physics")));
+        store.write(20, 3, List.of(new Student(2, "Priya Patel", "priya@example.com", 21, null)));
+
+        List<Student> loaded = new ArrayList<>();
+        SnapshotStore.Header header = store.load(new WriteAheadLog.ReplayHandler() {
+            @Override
+            public void put(Student student) {
+                loaded.add(student);
+            }
+
+            @Override
+            public void delete(int id) {
+                fail("snapshots hold no deletions");
+            }
+
+            @Override
+            public void clear() {
+                loaded.clear();
+            }
+        });
+        assertEquals(20, header.getSeq());
+        assertEquals(3, header.getNextId());
+        assertEquals(1, loaded.size());
+        assertSame(new Student(2, "Priya Patel", "priya@example.com", 21, null), loaded.get(0));
+        try (Stream<Path> files = Files.list(directory)) {
+            assertEquals(List.of("snapshot-00000000000000000020.dat"), files.map(f -> f.getFileName().toString()).toList());
+        }
+    }
+
+    private static ByteBuffer encodeAll(List<Student> students) {
+        int size = 0;
+        for (Student student : students) {
+            size += StudentRecordCodec.encodedSize(student);
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(size);
+        for (Student student : students) {
+            int before = buffer.position();
+            StudentRecordCodec.encode(buffer, student);
+            assertEquals(StudentRecordCodec.encodedSize(student), buffer.position() - before);
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+    private static void assertSame(Student expected, Student actual) {
+        assertEquals(expected.getId(), actual.getId());
+        assertEquals(expected.getName(), actual.getName());
+        assertEquals(expected.getEmail(), actual.getEmail());
+        assertEquals(expected.getAge(), actual.getAge());
+        assertEquals(expected.getCourse(), actual.getCourse());
+    }
+}
@@ -0,0 +1,89 @@
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import javax.swing.SwingUtilities;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StudentTableModelTest {
+    private final InMemoryDatabase database = InMemoryDatabase.createEmpty("test-table");
+    private final StudentService service = new StudentService(database);
+
+    @AfterEach
+    void stop() {
+        service.shutdown();
+    }
+
+    @Test
+    void rowsAreReadInPagesOffTheEventThread() throws Exception {
+        for (int i = 0; i < 250; i++) {
+            database.addStudent(new Student(0, "Student " + i, "s" + i + "@example.com", 20, "Physics"));
+        }
+        StudentTableModel model = onEdt(() -> new StudentTableModel(service));
+        CountDownLatch painted = new CountDownLatch(1);
+        onEdt(() -> {
+            model.showAll(database.getStudentIds());
+            model.addTableModelListener(e -> painted.countDown());
+            // Not read yet; asking for the row starts loading its page
+            assertNull(model.getValueAt(150, 1));
+            return null;
+        });
+
+        assertTrue(painted.await(10, TimeUnit.SECONDS));
+        assertEquals("Student 150", onEdt(() -> model.getValueAt(150, 1)));
+        assertEquals("Student 199", onEdt(() -> model.getValueAt(199, 1)));
+        assertNull(onEdt(() -> model.getValueAt(200, 1)), "the next page is read only when painted");
+    }
+
+    @Test
+    void changeEventsReplaceLoadedRows() throws Exception {
+        Student student = new Student(0, "Asha Rao", "asha@example.com", 20, "Physics");
+        database.addStudent(student);
+        StudentTableModel model = onEdt(() -> new StudentTableModel(service));
+        onEdt(() -> {
+            model.showStudents(List.of(database.getStudentById(student.getId())));
+            return null;
+        });
+
+        Student changed = new Student(student);
+        changed.setName("Asha Menon");
+        onEdt(() -> {
+            model.applyChanges(List.of(new ChangeEvent(1, ChangeEvent.Type.UPDATE, student, changed)));
+            return null;
+        });
+        assertEquals("Asha Menon", onEdt(() -> model.getValueAt(0, 1)));
+
+        onEdt(() -> {
+            model.applyChanges(List.of(new ChangeEvent(2, ChangeEvent.Type.DELETE, changed, null)));
+            return null;
+        });
+        assertEquals(0, (int) onEdt(model::getRowCount));
+    }
+
+    private interface EdtCall<T> {
+        T call() throws Exception;
+    }
+
+    private static <T> T onEdt(EdtCall<T> call) throws Exception {
+        AtomicReference<T> result = new AtomicReference<>();
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        SwingUtilities.invokeAndWait(() -> {
+            try {
+                result.set(call.call());
+            } catch (Throwable t) {
+                failure.set(t);
+            }
+        });
+        if (failure.get() instanceof Exception) {
+            throw (Exception) failure.get();
+        }
+        if (failure.get() != null) {
+            throw new AssertionError(failure.get());
+        }
+        return result.get();
+    }
+}
@@ -0,0 +1,137 @@
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TieredStudentRepositoryTest {
+    private StudentDAO dao;
+    private TieredStudentRepository repository;
+
+    @BeforeEach
+    void start() {
+        EmbeddedDatabase.start("tiered-repository");
+        dao = new StudentDAO();
+        repository = new TieredStudentRepository(InMemoryDatabase.createEmpty("test-tiered-hot"),
+                new JdbcStudentRepository(dao), 2);
+    }
+
+    @AfterEach
+    void stop() {
+        EmbeddedDatabase.stop();
+    }
+
+    @Test
+    void rowsTheHotStoreRejectsAreStillReadable() {
+        // Written by another client straight to the database, which allows a missing email
+        Student noEmail = new Student(0, "Asha Rao", null, 20, "Physics");
+        assertTrue(dao.addStudent(noEmail));
+
+        Student read = repository.getStudentById(noEmail.getId());
+        assertEquals("Asha Rao", read.getName());
+        assertNull(read.getEmail());
+        assertEquals(0, repository.getHotSize());
+        assertEquals(1, repository.getStudentsById(new int[] {noEmail.getId()}).size());
+    }
+
+    @Test
+    void hotSetKeepsTheLatestWritesWithinItsBound() {
+        Student asha = new Student(0, "Asha Rao", "asha@example.com", 20, "Physics");
+        Student ravi = new Student(0, "Ravi Iyer", "ravi@example.com", 22, "Economics");
+        Student meera = new Student(0, "Meera Nair", "meera@example.com", 23, "Physics");
+        repository.addStudent(asha);
+        repository.addStudent(ravi);
+        repository.addStudent(meera);
+        assertEquals(2, repository.getHotSize());
+
+        asha.setCourse("Mathematics");
+        repository.updateStudent(asha);
+        assertEquals("Mathematics", repository.getStudentById(asha.getId()).getCourse());
+        assertEquals(2, repository.getHotSize());
+
+        repository.deleteStudent(asha.getId());
+        assertNull(repository.getStudentById(asha.getId()));
+        assertEquals(1, repository.getHotSize());
+    }
+
+    @Test
+    void aWriteToAnotherStudentDoesNotCancelAnAdmission() {
+        Student asha = new Student(0, "Asha Rao", "asha@example.com", 20, "Physics");
+        Student ravi = new Student(0, "Ravi Iyer", "ravi@example.com", 22, "Economics");
+        assertTrue(dao.addStudent(asha));
+        assertTrue(dao.addStudent(ravi));
+        TieredStudentRepository[] tiered = new TieredStudentRepository[1];
+        tiered[0] = new TieredStudentRepository(InMemoryDatabase.createEmpty("test-tiered-other"),
+                writingDuringFirstRead(() -> {
+                    ravi.setCourse("Mathematics");
+                    tiered[0].updateStudent(ravi);
+                }), 10);
+
+        assertEquals("Physics", tiered[0].getStudentById(asha.getId()).getCourse());
+        assertEquals(2, tiered[0].getHotSize());
+        assertEquals(0, tiered[0].getHotMetrics().getCounter("tiered.skippedAdmissions"));
+    }
+
+    @Test
+    void aLookupThatReadBeforeAWriteLeavesTheWrittenCopyInMemory() {
+        Student asha = new Student(0, "Asha Rao", "asha@example.com", 20, "Physics");
+        assertTrue(dao.addStudent(asha));
+        TieredStudentRepository[] tiered = new TieredStudentRepository[1];
+        tiered[0] = new TieredStudentRepository(InMemoryDatabase.createEmpty("test-tiered-same"),
+                writingDuringFirstRead(() -> tiered[0].updateStudent(
+                        new Student(asha.getId(), "Asha Rao", "asha@example.com", 20, "Mathematics"))), 10);
+
+        assertEquals("Physics", tiered[0].getStudentById(asha.getId()).getCourse());
+        assertEquals(1, tiered[0].getHotSize());
+        assertEquals("Mathematics", tiered[0].getStudentById(asha.getId()).getCourse());
+    }
+
+    @Test
+    void theChangeStreamCarriesWritesButNotAdmissionsOrEvictions() {
+        ChangeStream.Subscription subscription = repository.getChangeStream().subscribe();
+        Student asha = new Student(0, "Asha Rao", "asha@example.com", 20, "Physics");
+        Student ravi = new Student(0, "Ravi Iyer", "ravi@example.com", 22, "Economics");
+        Student meera = new Student(0, "Meera Nair", "meera@example.com", 23, "Physics");
+        repository.addStudent(asha);
+        repository.addStudent(ravi);
+        repository.addStudent(meera);
+        repository.getStudentById(asha.getId());
+        asha.setCourse("Mathematics");
+        repository.updateStudent(asha);
+        repository.deleteStudent(ravi.getId());
+
+        assertEvent(subscription.poll(), ChangeEvent.Type.INSERT, asha.getId());
+        assertEvent(subscription.poll(), ChangeEvent.Type.INSERT, ravi.getId());
+        assertEvent(subscription.poll(), ChangeEvent.Type.INSERT, meera.getId());
+        ChangeEvent update = subscription.poll();
+        assertEvent(update, ChangeEvent.Type.UPDATE, asha.getId());
+        assertEquals("Physics", update.getBefore().getCourse());
+        assertEquals("Mathematics", update.getAfter().getCourse());
+        assertEvent(subscription.poll(), ChangeEvent.Type.DELETE, ravi.getId());
+        assertNull(subscription.poll());
+        subscription.close();
+    }
+
+    // Runs the write once, inside the first database read, after that read has its row
+    private JdbcStudentRepository writingDuringFirstRead(Runnable write) {
+        return new JdbcStudentRepository(dao) {
+            private boolean written;
+
+            @Override
+            public Student getStudentById(int id) {
+                Student student = super.getStudentById(id);
+                if (!written) {
+                    written = true;
+                    write.run();
+                }
+                return student;
+            }
+        };
+    }
+
+    private static void assertEvent(ChangeEvent event, ChangeEvent.Type type, int id) {
+        assertNotNull(event);
+        assertEquals(type, event.getType());
+        assertEquals(id, event.getStudentId());
+    }
+}
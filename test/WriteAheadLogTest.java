@@ -0,0 +1,144 @@
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class WriteAheadLogTest {
+    @TempDir
+    Path directory;
+
+    // A crash right after a rollover leaves a partial entry at the start of the new segment.
+    // Recovery reopens that segment, so the tail must be cut off before new entries follow it.
+    @Test
+    void entriesWrittenAfterRecoveringATornTailSurviveTheNextRestart() throws IOException {
+        WriteAheadLog log = new WriteAheadLog(directory, FsyncPolicy.ALWAYS, 0);
+        log.open(0);
+        put(log, 1, 2, 3);
+        log.rollover();
+        log.close();
+        appendTo(segment(4), new byte[] {0, 0, 0, 40, 0, 0, 0});
+
+        log = new WriteAheadLog(directory, FsyncPolicy.ALWAYS, 0);
+        List<Integer> replayed = new ArrayList<>();
+        assertEquals(3, log.replay(0, recorder(replayed)));
+        assertEquals(List.of(1, 2, 3), replayed);
+        log.open(3);
+        put(log, 4, 5);
+        log.close();
+
+        log = new WriteAheadLog(directory, FsyncPolicy.ALWAYS, 0);
+        replayed.clear();
+        assertEquals(5, log.replay(0, recorder(replayed)));
+        assertEquals(List.of(1, 2, 3, 4, 5), replayed);
+        log.close();
+    }
+
+    // Appends queued while an ended segment is still being forced belong to the next segment
+    @Test
+    void entriesAppendedBeforeARolloverFinishesGoToTheNextSegment() throws IOException {
+        WriteAheadLog log = new WriteAheadLog(directory, FsyncPolicy.ALWAYS, 0);
+        log.open(0);
+        put(log, 1, 2);
+        CompletableFuture<Long> rollover = log.startRollover();
+        CompletableFuture<Void> appended = log.logPut(new Student(3, "Student 3", "student3@example.com", 20, "Physics"));
+        assertEquals(2, log.finishRollover(rollover));
+        appended.join();
+        log.close();
+
+        log = new WriteAheadLog(directory, FsyncPolicy.ALWAYS, 0);
+        List<Integer> replayed = new ArrayList<>();
+        assertEquals(3, log.replay(2, recorder(replayed)));
+        assertEquals(List.of(3), replayed);
+        assertTrue(Files.exists(segment(3)));
+        log.close();
+    }
+
+    // A damaged entry in an earlier segment must not let later segments be applied past the gap
+    @Test
+    void replayStopsAtCorruptionInTheMiddleOfTheLog() throws IOException {
+        WriteAheadLog log = new WriteAheadLog(directory, FsyncPolicy.ALWAYS, 0);
+        log.open(0);
+        put(log, 1, 2, 3);
+        log.rollover();
+        put(log, 4, 5, 6);
+        log.rollover();
+        put(log, 7, 8, 9);
+        log.close();
+        // Flip a payload byte of the second entry in the middle segment
+        byte[] bytes = Files.readAllBytes(segment(4));
+        int entryLength = bytes.length / 3;
+        bytes[entryLength + 14] ^= 0x5A;
+        Files.write(segment(4), bytes);
+
+        log = new WriteAheadLog(directory, FsyncPolicy.ALWAYS, 0);
+        List<Integer> replayed = new ArrayList<>();
+        assertEquals(4, log.replay(0, recorder(replayed)));
+        assertEquals(List.of(1, 2, 3, 4), replayed);
+        assertFalse(Files.exists(segment(7)));
+        assertTrue(Files.exists(directory.resolve(segment(7).getFileName() + ".corrupt")));
+        log.open(4);
+        put(log, 50);
+        log.close();
+
+        log = new WriteAheadLog(directory, FsyncPolicy.ALWAYS, 0);
+        replayed.clear();
+        assertEquals(5, log.replay(0, recorder(replayed)));
+        assertEquals(List.of(1, 2, 3, 4, 50), replayed);
+        log.close();
+    }
+
+    @Test
+    void entriesCoveredByTheSnapshotAreNotApplied() throws IOException {
+        WriteAheadLog log = new WriteAheadLog(directory, FsyncPolicy.ALWAYS, 0);
+        log.open(0);
+        put(log, 1, 2, 3);
+        log.close();
+
+        log = new WriteAheadLog(directory, FsyncPolicy.ALWAYS, 0);
+        List<Integer> replayed = new ArrayList<>();
+        assertEquals(3, log.replay(2, recorder(replayed)));
+        assertEquals(List.of(3), replayed);
+        log.close();
+    }
+
+    private Path segment(long firstSeq) {
+        return directory.resolve(String.format("wal-%020d.log", firstSeq));
+    }
+
+    private static void put(WriteAheadLog log, int... ids) {
+        for (int id : ids) {
+            log.logPut(new Student(id, "Student " + id, "student" + id + "@example.com", 20, "Physics")).join();
+        }
+    }
+
+    private static void appendTo(Path segment, byte[] bytes) throws IOException {
+        Files.write(segment, bytes, StandardOpenOption.APPEND);
+    }
+
+    private static WriteAheadLog.ReplayHandler recorder(List<Integer> ids) {
+        return new WriteAheadLog.ReplayHandler() {
+            @Override
+            public void put(Student student) {
+                ids.add(student.getId());
+            }
+
+            @Override
+            public void delete(int id) {
+                ids.add(-id);
+            }
+
+            @Override
+            public void clear() {
+                ids.clear();
+            }
+        };
+    }
+}